@@ -0,0 +1,19 @@
+package com.aokolnychyi.ds.cache;
+
+// the operations that all caches in this package support
+public interface Cache<K, V> {
+
+  // returns null if there is no entry for the key, counts as an access
+  V get(K key);
+
+  // replaces the existing entry if any, might evict other entries
+  void add(K key, V value);
+
+  // does nothing if there is no entry for the key
+  void invalidate(K key);
+
+  // unlike get, does not count as an access and does not change the eviction order
+  boolean containsKey(K key);
+
+  int size();
+}
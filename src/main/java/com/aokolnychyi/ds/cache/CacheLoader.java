@@ -0,0 +1,26 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// computes values for keys that are missing in a LoadingCache (e.g., by querying a database)
+@FunctionalInterface
+public interface CacheLoader<K, V> {
+
+  // returns null if there is no value for the key
+  V load(K key) throws Exception;
+
+  // loads many keys at once, keys without values can be omitted from the result
+  // should be overridden if the backing store supports bulk reads, loads keys one by one by default
+  default Map<K, V> loadAll(Set<? extends K> keys) throws Exception {
+    final Map<K, V> values = new HashMap<>();
+    for (K key : keys) {
+      final V value = load(key);
+      if (value != null) {
+        values.put(key, value);
+      }
+    }
+    return values;
+  }
+}
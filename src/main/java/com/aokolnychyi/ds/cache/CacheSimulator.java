@@ -0,0 +1,274 @@
+package com.aokolnychyi.ds.cache;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.IntFunction;
+
+// replays an access trace against many cache policies and capacities to compare their hit ratios
+// every request is a get, a miss is followed by an add of the key (like a cache in front of a database)
+// the trace is read once: the reading thread passes batches of keys to worker threads,
+// every worker owns a share of the simulations and replays each batch against all of them
+// a batch is shared by all workers and never modified, so it is not copied
+public class CacheSimulator {
+
+  private static final int BATCH_SIZE = 8192;
+  // the number of batches that a worker can lag behind the reader
+  private static final int QUEUE_SIZE = 16;
+  private static final long[] END_OF_TRACE = new long[0];
+
+  private final Map<String, IntFunction<Cache<Long, Long>>> policies = new LinkedHashMap<>();
+  private final int numberOfWorkers;
+
+  public CacheSimulator() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public CacheSimulator(int numberOfWorkers) {
+    if (numberOfWorkers <= 0) {
+      throw new IllegalArgumentException("Number of workers must be positive");
+    }
+    this.numberOfWorkers = numberOfWorkers;
+  }
+
+  // the factory creates an empty cache with the given capacity
+  public CacheSimulator addPolicy(String name, IntFunction<Cache<Long, Long>> cacheFactory) {
+    if (policies.putIfAbsent(name, cacheFactory) != null) {
+      throw new IllegalArgumentException("Duplicate policy: " + name);
+    }
+    return this;
+  }
+
+  // runs every policy with every capacity in one pass over the trace
+  public List<Result> run(Path trace, TraceFormat format, int... capacities) throws InterruptedException {
+    if (policies.isEmpty() || capacities.length == 0) {
+      throw new IllegalArgumentException("At least one policy and one capacity are required");
+    }
+
+    final List<Simulation> simulations = new ArrayList<>();
+    for (Map.Entry<String, IntFunction<Cache<Long, Long>>> policy : policies.entrySet()) {
+      for (int capacity : capacities) {
+        simulations.add(new Simulation(policy.getKey(), capacity, policy.getValue().apply(capacity)));
+      }
+    }
+
+    final Worker[] workers = new Worker[Math.min(numberOfWorkers, simulations.size())];
+    for (int index = 0; index < workers.length; index++) {
+      workers[index] = new Worker();
+    }
+    for (int index = 0; index < simulations.size(); index++) {
+      workers[index % workers.length].simulations.add(simulations.get(index));
+    }
+    for (Worker worker : workers) {
+      worker.start();
+    }
+
+    final long startTime = System.nanoTime();
+    long numberOfRequests = 0;
+    try (TraceReader reader = new TraceReader(trace, format)) {
+      long[] batch = new long[BATCH_SIZE];
+      int count;
+      while ((count = reader.read(batch)) > 0) {
+        final long[] keys = count == BATCH_SIZE ? batch : Arrays.copyOf(batch, count);
+        for (Worker worker : workers) {
+          worker.batches.put(keys);
+        }
+        numberOfRequests += count;
+        batch = new long[BATCH_SIZE];
+      }
+    } finally {
+      // the workers must stop even if the trace cannot be read
+      for (Worker worker : workers) {
+        worker.batches.put(END_OF_TRACE);
+      }
+      for (Worker worker : workers) {
+        worker.join();
+      }
+    }
+    final long elapsedTime = System.nanoTime() - startTime;
+
+    for (Worker worker : workers) {
+      if (worker.failure != null) {
+        throw new IllegalStateException("Simulation failed", worker.failure);
+      }
+    }
+
+    final List<Result> results = new ArrayList<>();
+    for (Simulation simulation : simulations) {
+      results.add(new Result(simulation, numberOfRequests, elapsedTime));
+    }
+    return results;
+  }
+
+  // prints the hit ratio of every policy per capacity, followed by the throughput of every simulation
+  public static void printReport(List<Result> results) {
+    final Map<String, Map<Integer, Result>> resultsByPolicy = new LinkedHashMap<>();
+    final List<Integer> capacities = new ArrayList<>();
+    for (Result result : results) {
+      resultsByPolicy.computeIfAbsent(result.policy, policy -> new LinkedHashMap<>()).put(result.capacity, result);
+      if (!capacities.contains(result.capacity)) {
+        capacities.add(result.capacity);
+      }
+    }
+
+    printHeader("Hit ratio", capacities);
+    for (Map.Entry<String, Map<Integer, Result>> policyResults : resultsByPolicy.entrySet()) {
+      System.out.printf("%-24s", policyResults.getKey());
+      for (int capacity : capacities) {
+        System.out.printf("%11.2f%%", 100 * policyResults.getValue().get(capacity).hitRatio());
+      }
+      System.out.println();
+    }
+
+    printHeader("Million ops/sec", capacities);
+    for (Map.Entry<String, Map<Integer, Result>> policyResults : resultsByPolicy.entrySet()) {
+      System.out.printf("%-24s", policyResults.getKey());
+      for (int capacity : capacities) {
+        System.out.printf("%12.2f", policyResults.getValue().get(capacity).operationsPerSecond() / 1_000_000);
+      }
+      System.out.println();
+    }
+  }
+
+  private static void printHeader(String title, List<Integer> capacities) {
+    System.out.printf("%-24s", title);
+    for (int capacity : capacities) {
+      System.out.printf("%12d", capacity);
+    }
+    System.out.println();
+  }
+
+  public enum TraceFormat {
+    // one key per line, the first token of the line is the key
+    TEXT(0),
+    // big-endian 4-byte keys
+    BINARY_INT(Integer.BYTES),
+    // big-endian 8-byte keys
+    BINARY_LONG(Long.BYTES);
+
+    final int recordSize;
+
+    TraceFormat(int recordSize) {
+      this.recordSize = recordSize;
+    }
+  }
+
+  public static class Result {
+    private final String policy;
+    private final int capacity;
+    private final long hitCount;
+    private final long missCount;
+    private final long simulationTimeNanos;
+    private final long totalTimeNanos;
+
+    private Result(Simulation simulation, long numberOfRequests, long totalTimeNanos) {
+      this.policy = simulation.policy;
+      this.capacity = simulation.capacity;
+      this.hitCount = simulation.hitCount;
+      this.missCount = numberOfRequests - simulation.hitCount;
+      this.simulationTimeNanos = simulation.timeNanos;
+      this.totalTimeNanos = totalTimeNanos;
+    }
+
+    public String policy() {
+      return policy;
+    }
+
+    public int capacity() {
+      return capacity;
+    }
+
+    public long hitCount() {
+      return hitCount;
+    }
+
+    public long missCount() {
+      return missCount;
+    }
+
+    public double hitRatio() {
+      final long requestCount = hitCount + missCount;
+      return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    // the throughput of the cache alone, the time spent reading the trace and in other simulations is excluded
+    public double operationsPerSecond() {
+      return simulationTimeNanos == 0 ? 0 : (hitCount + missCount) * 1e9 / simulationTimeNanos;
+    }
+
+    // the wall-clock time of the whole pass over the trace
+    public long totalTimeNanos() {
+      return totalTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s(%d): hit ratio %.2f%%, %.2f M ops/sec",
+          policy, capacity, 100 * hitRatio(), operationsPerSecond() / 1_000_000);
+    }
+  }
+
+  private static class Simulation {
+    private final String policy;
+    private final int capacity;
+    private final Cache<Long, Long> cache;
+    private long hitCount;
+    private long timeNanos;
+
+    Simulation(String policy, int capacity, Cache<Long, Long> cache) {
+      this.policy = policy;
+      this.capacity = capacity;
+      this.cache = cache;
+    }
+
+    void replay(long[] keys) {
+      final long startTime = System.nanoTime();
+      for (long key : keys) {
+        final Long boxedKey = key;
+        if (cache.get(boxedKey) != null) {
+          hitCount++;
+        } else {
+          cache.add(boxedKey, boxedKey);
+        }
+      }
+      timeNanos += System.nanoTime() - startTime;
+    }
+  }
+
+  private static class Worker extends Thread {
+    private final BlockingQueue<long[]> batches = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final List<Simulation> simulations = new ArrayList<>();
+    // written before the thread ends, read after join
+    private Throwable failure;
+
+    @Override
+    public void run() {
+      try {
+        long[] keys;
+        while ((keys = batches.take()) != END_OF_TRACE) {
+          // after a failure the batches are still taken, so the reader does not block forever
+          if (failure == null) {
+            replay(keys);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void replay(long[] keys) {
+      try {
+        for (Simulation simulation : simulations) {
+          simulation.replay(keys);
+        }
+      } catch (Throwable throwable) {
+        failure = throwable;
+      }
+    }
+  }
+}
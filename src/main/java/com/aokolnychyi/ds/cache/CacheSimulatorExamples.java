@@ -0,0 +1,91 @@
+package com.aokolnychyi.ds.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+public class CacheSimulatorExamples {
+
+  private static final int NUMBER_OF_REQUESTS = 2_000_000;
+  private static final int NUMBER_OF_KEYS = 100_000;
+
+  // with arguments, replays a real trace: <trace file> <TEXT|BINARY_INT|BINARY_LONG> <capacity>...
+  public static void main(String[] args) throws IOException, InterruptedException {
+    final CacheSimulator simulator = new CacheSimulator()
+        .addPolicy("EfficientLRUCache", capacity -> new EfficientLRUCache<>(capacity, capacity))
+        .addPolicy("LinkedHashMapLRUCache", LinkedHashMapLRUCache::new)
+        .addPolicy("TreeSetLRUCache", TreeSetLRUCache::new)
+        .addPolicy("ConcurrentLRUCache", capacity -> new ConcurrentLRUCache<>(capacity, capacity))
+        .addPolicy("TinyLFUCache", capacity -> new TinyLFUCache<>(capacity, capacity))
+        .addPolicy("ClockCache", ClockCache::new)
+        .addPolicy("ClockProCache", ClockProCache::new);
+
+    if (args.length >= 3) {
+      final int[] capacities = new int[args.length - 2];
+      for (int index = 0; index < capacities.length; index++) {
+        capacities[index] = Integer.parseInt(args[index + 2]);
+      }
+      final List<CacheSimulator.Result> results =
+          simulator.run(Paths.get(args[0]), CacheSimulator.TraceFormat.valueOf(args[1]), capacities);
+      CacheSimulator.printReport(results);
+      return;
+    }
+
+    // a synthetic trace: a skewed workload mixed with scans of keys that are requested only once
+    final Path textTrace = Files.createTempFile("trace", ".txt");
+    final Path binaryTrace = Files.createTempFile("trace", ".bin");
+    try {
+      writeTraces(textTrace, binaryTrace, new Random(42));
+      System.out.printf("Text trace: %d MB, binary trace: %d MB%n",
+          Files.size(textTrace) >> 20, Files.size(binaryTrace) >> 20);
+
+      final long startTime = System.nanoTime();
+      final List<CacheSimulator.Result> textResults =
+          simulator.run(textTrace, CacheSimulator.TraceFormat.TEXT, 1_000, 5_000, 20_000);
+      System.out.printf("%d simulations over the text trace in %d ms%n",
+          textResults.size(), (System.nanoTime() - startTime) / 1_000_000);
+      CacheSimulator.printReport(textResults);
+
+      // both formats contain the same keys, so the hit ratios are the same
+      final List<CacheSimulator.Result> binaryResults =
+          simulator.run(binaryTrace, CacheSimulator.TraceFormat.BINARY_LONG, 1_000, 5_000, 20_000);
+      boolean isSame = true;
+      for (int index = 0; index < textResults.size(); index++) {
+        isSame &= textResults.get(index).hitCount() == binaryResults.get(index).hitCount();
+      }
+      System.out.println("Same hit counts for the binary trace: " + isSame);
+    } finally {
+      Files.delete(textTrace);
+      Files.delete(binaryTrace);
+    }
+  }
+
+  private static void writeTraces(Path textTrace, Path binaryTrace, Random random) throws IOException {
+    long nextScanKey = NUMBER_OF_KEYS;
+    try (BufferedWriter textWriter = Files.newBufferedWriter(textTrace, StandardCharsets.UTF_8);
+         DataOutputStream binaryWriter = new DataOutputStream(
+             new BufferedOutputStream(Files.newOutputStream(binaryTrace)))) {
+      int request = 0;
+      while (request < NUMBER_OF_REQUESTS) {
+        final long key;
+        if (random.nextInt(100) < 20) {
+          key = nextScanKey++;
+        } else {
+          final double uniform = random.nextDouble();
+          key = (long) (uniform * uniform * uniform * NUMBER_OF_KEYS);
+        }
+        // extra columns are ignored by the reader
+        textWriter.write(key + " " + request + "\n");
+        binaryWriter.writeLong(key);
+        request++;
+      }
+    }
+  }
+}
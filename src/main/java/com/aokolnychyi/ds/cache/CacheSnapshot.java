@@ -0,0 +1,183 @@
+package com.aokolnychyi.ds.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// saves the entries of EfficientLRUCache into a file and loads them into another instance (e.g., after a restart)
+// the file has a header (magic number, version, wall-clock time of the snapshot) followed by the entries
+// from the most recently used to the least recently used one, every entry starts with a marker byte
+// and the file ends with the end marker, so entries are streamed and their number does not have to be known upfront
+// entries are restored from the most recently used one, so a smaller cache keeps the hottest entries
+// and the rest of the file is not read at all
+// the time left until an entry expires is stored and reduced by the wall-clock time between the snapshot and the restore
+public final class CacheSnapshot {
+
+  private static final int MAGIC = 0x4C525553;
+  private static final byte VERSION = 1;
+  private static final byte ENTRY_MARKER = 1;
+  private static final byte END_MARKER = 0;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int DEFAULT_BATCH_SIZE = 1024;
+
+  private CacheSnapshot() {
+  }
+
+  // writes into a temporary file first and then replaces the target file,
+  // so a crash in the middle never leaves a truncated snapshot behind
+  public static <K, V> void write(
+      EfficientLRUCache<K, V> cache,
+      Path file,
+      SnapshotCodec<K> keyCodec,
+      SnapshotCodec<V> valueCodec) throws IOException {
+
+    final Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporaryFile), BUFFER_SIZE))) {
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeLong(System.currentTimeMillis());
+      cache.writeEntries((key, value, timeToLive, remainingTime) -> {
+        out.writeByte(ENTRY_MARKER);
+        keyCodec.write(out, key);
+        valueCodec.write(out, value);
+        out.writeLong(timeToLive);
+        if (timeToLive != Expiration.NO_EXPIRATION) {
+          out.writeLong(remainingTime);
+        }
+      });
+      out.writeByte(END_MARKER);
+    }
+    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // restores as many entries as fit and returns their number
+  // the cache should be used only by the current thread, see Reader for restoring while the cache serves reads
+  public static <K, V> int restore(
+      EfficientLRUCache<K, V> cache,
+      Path file,
+      SnapshotCodec<K> keyCodec,
+      SnapshotCodec<V> valueCodec) throws IOException {
+
+    int numberOfRestoredEntries = 0;
+    try (Reader<K, V> reader = open(file, keyCodec, valueCodec)) {
+      List<Entry<K, V>> batch;
+      boolean hasRoom = true;
+      while (hasRoom && !(batch = reader.readBatch(DEFAULT_BATCH_SIZE)).isEmpty()) {
+        final int sizeBefore = cache.size();
+        hasRoom = cache.restore(batch);
+        numberOfRestoredEntries += cache.size() - sizeBefore;
+      }
+    }
+    return numberOfRestoredEntries;
+  }
+
+  public static <K, V> Reader<K, V> open(
+      Path file,
+      SnapshotCodec<K> keyCodec,
+      SnapshotCodec<V> valueCodec) throws IOException {
+
+    return new Reader<>(file, keyCodec, valueCodec);
+  }
+
+  @FunctionalInterface
+  interface EntryWriter<K, V> {
+    void write(K key, V value, long timeToLive, long remainingTime) throws IOException;
+  }
+
+  // one entry of a snapshot, times are in nanoseconds
+  public static final class Entry<K, V> {
+    final K key;
+    final V value;
+    final long timeToLive;
+    final long remainingTime;
+
+    private Entry(K key, V value, long timeToLive, long remainingTime) {
+      this.key = key;
+      this.value = value;
+      this.timeToLive = timeToLive;
+      this.remainingTime = remainingTime;
+    }
+
+    public K key() {
+      return key;
+    }
+
+    public V value() {
+      return value;
+    }
+  }
+
+  // decodes a snapshot in batches without touching any cache
+  // a thread-safe wrapper can decode the next batch outside of its lock and hold the lock only to call
+  // EfficientLRUCache.restore, so readers are blocked for one small batch at a time instead of the whole file
+  public static final class Reader<K, V> implements AutoCloseable {
+    private final DataInputStream in;
+    private final SnapshotCodec<K> keyCodec;
+    private final SnapshotCodec<V> valueCodec;
+    private final long elapsedTime;
+    private boolean isFinished;
+
+    private Reader(Path file, SnapshotCodec<K> keyCodec, SnapshotCodec<V> valueCodec) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+      this.keyCodec = keyCodec;
+      this.valueCodec = valueCodec;
+      try {
+        if (in.readInt() != MAGIC) {
+          throw new IllegalArgumentException(file + " is not a cache snapshot");
+        }
+        final byte version = in.readByte();
+        if (version != VERSION) {
+          throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+        }
+        final long snapshotTime = in.readLong();
+        this.elapsedTime = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - snapshotTime));
+      } catch (IOException | RuntimeException e) {
+        in.close();
+        throw e;
+      }
+    }
+
+    // returns the next entries from the most recently used one, an empty list once the snapshot is over
+    // entries that have expired since the snapshot are skipped
+    public List<Entry<K, V>> readBatch(int maxSize) throws IOException {
+      final List<Entry<K, V>> batch = new ArrayList<>(Math.min(maxSize, DEFAULT_BATCH_SIZE));
+      while (!isFinished && batch.size() < maxSize) {
+        final byte marker = in.readByte();
+        if (marker == END_MARKER) {
+          isFinished = true;
+          break;
+        }
+        if (marker != ENTRY_MARKER) {
+          throw new IllegalStateException("Corrupted snapshot, unexpected marker: " + marker);
+        }
+        final K key = keyCodec.read(in);
+        final V value = valueCodec.read(in);
+        final long timeToLive = in.readLong();
+        final long remainingTime = timeToLive == Expiration.NO_EXPIRATION ? 0 : in.readLong() - elapsedTime;
+        if (timeToLive == Expiration.NO_EXPIRATION || remainingTime > 0) {
+          batch.add(new Entry<>(key, value, timeToLive, remainingTime));
+        }
+      }
+      return batch;
+    }
+
+    @Override
+    public void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
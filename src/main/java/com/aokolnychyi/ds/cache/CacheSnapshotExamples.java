@@ -0,0 +1,104 @@
+package com.aokolnychyi.ds.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class CacheSnapshotExamples {
+
+  private static final int NUMBER_OF_ENTRIES = 1_000_000;
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    final Path file = Files.createTempFile("cache", ".snapshot");
+    try {
+      final EfficientLRUCache<Long, String> cache = new EfficientLRUCache<>(NUMBER_OF_ENTRIES, NUMBER_OF_ENTRIES);
+      for (long key = 0; key < NUMBER_OF_ENTRIES; key++) {
+        cache.add(key, "value-" + key);
+      }
+      // make the even keys more recently used than the odd ones
+      for (long key = 0; key < NUMBER_OF_ENTRIES; key += 2) {
+        cache.get(key);
+      }
+
+      long startTime = System.nanoTime();
+      CacheSnapshot.write(cache, file, SnapshotCodec.LONG, SnapshotCodec.STRING);
+      System.out.printf("Wrote %d entries (%d MB) in %d ms%n",
+          cache.size(), Files.size(file) >> 20, (System.nanoTime() - startTime) / 1_000_000);
+
+      startTime = System.nanoTime();
+      final EfficientLRUCache<Long, String> restoredCache =
+          new EfficientLRUCache<>(NUMBER_OF_ENTRIES, NUMBER_OF_ENTRIES);
+      final int numberOfRestoredEntries = CacheSnapshot.restore(restoredCache, file, SnapshotCodec.LONG, SnapshotCodec.STRING);
+      System.out.printf("Restored %d entries in %d ms%n", numberOfRestoredEntries, (System.nanoTime() - startTime) / 1_000_000);
+      System.out.println("Same LRU order: " + keysInOrder(cache).equals(keysInOrder(restoredCache)));
+
+      // a smaller cache gets the most recently used entries only
+      final EfficientLRUCache<Long, String> smallCache = new EfficientLRUCache<>(1000, 1000);
+      CacheSnapshot.restore(smallCache, file, SnapshotCodec.LONG, SnapshotCodec.STRING);
+      System.out.println("Small cache: " + smallCache.size() + " entries, has the hot key 999998: "
+          + smallCache.containsKey(999_998L) + ", has the cold key 999999: " + smallCache.containsKey(999_999L));
+
+      // a thread-safe wrapper holds its lock only while one batch is linked, so readers barely notice the restore
+      final ReentrantLock lock = new ReentrantLock();
+      final EfficientLRUCache<Long, String> sharedCache = new EfficientLRUCache<>(NUMBER_OF_ENTRIES, NUMBER_OF_ENTRIES);
+      final List<Long> lockTimes = new ArrayList<>();
+      try (CacheSnapshot.Reader<Long, String> reader = CacheSnapshot.open(file, SnapshotCodec.LONG, SnapshotCodec.STRING)) {
+        List<CacheSnapshot.Entry<Long, String>> batch;
+        while (!(batch = reader.readBatch(1000)).isEmpty()) {
+          lock.lock();
+          try {
+            final long lockTime = System.nanoTime();
+            sharedCache.restore(batch);
+            lockTimes.add(System.nanoTime() - lockTime);
+          } finally {
+            lock.unlock();
+          }
+        }
+      }
+      // the longest batches are slowed down by GC pauses since the heap grows during the restore
+      Collections.sort(lockTimes);
+      System.out.printf("Restored %d entries in %d batches, the lock was held for %d us (median), %d us (p99)%n",
+          sharedCache.size(), lockTimes.size(), lockTimes.get(lockTimes.size() / 2) / 1000,
+          lockTimes.get(lockTimes.size() * 99 / 100) / 1000);
+
+      // entries that expire before the restore are skipped
+      final EfficientLRUCache<Long, String> expiringCache =
+          new EfficientLRUCache<>(16, 16, Expiration.afterWrite(1, TimeUnit.HOURS));
+      expiringCache.add(1L, "one hour");
+      expiringCache.add(2L, "100 ms", 100, TimeUnit.MILLISECONDS);
+      CacheSnapshot.write(expiringCache, file, SnapshotCodec.LONG, SnapshotCodec.STRING);
+      Thread.sleep(200);
+      final EfficientLRUCache<Long, String> restoredExpiringCache = new EfficientLRUCache<>(16, 16);
+      CacheSnapshot.restore(restoredExpiringCache, file, SnapshotCodec.LONG, SnapshotCodec.STRING);
+      System.out.println("After the restore: 1 -> " + restoredExpiringCache.get(1L)
+          + ", 2 -> " + restoredExpiringCache.get(2L));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  // writes a snapshot and reads its keys, which are ordered from the most recently used one
+  private static List<Long> keysInOrder(EfficientLRUCache<Long, String> cache) throws IOException {
+    final Path file = Files.createTempFile("order", ".snapshot");
+    try {
+      CacheSnapshot.write(cache, file, SnapshotCodec.LONG, SnapshotCodec.STRING);
+      final List<Long> keys = new ArrayList<>();
+      try (CacheSnapshot.Reader<Long, String> reader = CacheSnapshot.open(file, SnapshotCodec.LONG, SnapshotCodec.STRING)) {
+        List<CacheSnapshot.Entry<Long, String>> batch;
+        while (!(batch = reader.readBatch(1000)).isEmpty()) {
+          for (CacheSnapshot.Entry<Long, String> entry : batch) {
+            keys.add(entry.key());
+          }
+        }
+      }
+      return keys;
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.aokolnychyi.ds.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class CacheStatsExamples {
+
+  private static final int CAPACITY = 1000;
+  private static final int NUMBER_OF_KEYS = 10_000;
+  private static final int NUMBER_OF_OPERATIONS = 1_000_000;
+
+  public static void main(String[] args) throws JMException {
+    // the same skewed workload against every implementation
+    final int[] keys = skewedKeys(new Random(42));
+
+    final Map<String, Cache<Integer, Integer>> caches = new LinkedHashMap<>();
+    caches.put("LRUCache", new LRUCache<>(CAPACITY));
+    caches.put("NaiveLRUCache", new NaiveLRUCache<>(CAPACITY));
+    caches.put("TreeSetLRUCache", new TreeSetLRUCache<>(CAPACITY));
+    caches.put("LinkedHashMapLRUCache", new LinkedHashMapLRUCache<>(CAPACITY));
+    caches.put("EfficientLRUCache", new EfficientLRUCache<>(CAPACITY, CAPACITY));
+    caches.put("ConcurrentLRUCache", new ConcurrentLRUCache<>(CAPACITY, CAPACITY));
+    caches.put("TinyLFUCache", new TinyLFUCache<>(CAPACITY, CAPACITY));
+    caches.put("ClockCache", new ClockCache<>(CAPACITY));
+    caches.put("ClockProCache", new ClockProCache<>(CAPACITY));
+
+    for (Map.Entry<String, Cache<Integer, Integer>> namedCache : caches.entrySet()) {
+      final ConcurrentStatsCounter statsCounter = new ConcurrentStatsCounter();
+      final Cache<Integer, Integer> cache = new InstrumentedCache<>(namedCache.getValue(), statsCounter);
+      // NaiveLRUCache scans all entries on eviction, so it gets a shorter run
+      final int numberOfOperations = namedCache.getKey().equals("NaiveLRUCache") ? keys.length / 10 : keys.length;
+      run(cache, keys, numberOfOperations);
+      System.out.println(namedCache.getKey() + ": " + statsCounter);
+      System.out.printf(
+          "  get p50=%dns p99=%dns p99.9=%dns, add p50=%dns p99=%dns p99.9=%dns%n",
+          statsCounter.getGetLatencyP50(), statsCounter.getGetLatencyP99(), statsCounter.getGetLatencyP999(),
+          statsCounter.getAddLatencyP50(), statsCounter.getAddLatencyP99(), statsCounter.getAddLatencyP999());
+    }
+
+    // the statistics cost nothing unless the cache is wrapped
+    for (int round = 0; round < 3; round++) {
+      final long plainTime = timeRun(new EfficientLRUCache<>(CAPACITY, CAPACITY), keys);
+      final Cache<Integer, Integer> instrumentedCache =
+          new InstrumentedCache<>(new EfficientLRUCache<>(CAPACITY, CAPACITY), new ConcurrentStatsCounter());
+      final long instrumentedTime = timeRun(instrumentedCache, keys);
+      System.out.printf("Round %d: plain %d ms, instrumented %d ms%n", round, plainTime, instrumentedTime);
+    }
+
+    // a LoadingCache records hits, misses and loads itself
+    final ConcurrentStatsCounter loadingStats = new ConcurrentStatsCounter();
+    final LoadingCache<Integer, String> loadingCache =
+        new LoadingCache<>(100, key -> "value-" + key, loadingStats);
+    for (int index = 0; index < 1000; index++) {
+      loadingCache.get(keys[index] % 200);
+    }
+    System.out.println("LoadingCache: " + loadingStats);
+
+    // the statistics are visible to JMX tools
+    loadingStats.register("loading-cache-example");
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    final ObjectName name = new ObjectName("com.aokolnychyi.ds.cache:type=CacheStats,name=\"loading-cache-example\"");
+    System.out.println("JMX HitRate: " + server.getAttribute(name, "HitRate"));
+    System.out.println("JMX LoadSuccessCount: " + server.getAttribute(name, "LoadSuccessCount"));
+    loadingStats.unregister();
+    System.out.println("Registered after unregister: " + server.isRegistered(name));
+  }
+
+  private static void run(Cache<Integer, Integer> cache, int[] keys, int numberOfOperations) {
+    for (int index = 0; index < numberOfOperations; index++) {
+      final int key = keys[index];
+      if (cache.get(key) == null) {
+        cache.add(key, key);
+      }
+    }
+  }
+
+  private static long timeRun(Cache<Integer, Integer> cache, int[] keys) {
+    final long startTime = System.nanoTime();
+    run(cache, keys, keys.length);
+    return (System.nanoTime() - startTime) / 1_000_000;
+  }
+
+  // roughly Zipfian: the key is the square of a uniform number, so small keys are much more popular
+  private static int[] skewedKeys(Random random) {
+    final int[] keys = new int[NUMBER_OF_OPERATIONS];
+    for (int index = 0; index < keys.length; index++) {
+      final double uniform = random.nextDouble();
+      keys[index] = (int) (uniform * uniform * uniform * NUMBER_OF_KEYS);
+    }
+    return keys;
+  }
+}
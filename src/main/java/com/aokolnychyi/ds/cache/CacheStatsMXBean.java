@@ -0,0 +1,32 @@
+package com.aokolnychyi.ds.cache;
+
+// the statistics of a cache as seen in JMX tools (e.g., JConsole or VisualVM)
+// latencies are in nanoseconds
+public interface CacheStatsMXBean {
+
+  long getHitCount();
+
+  long getMissCount();
+
+  double getHitRate();
+
+  long getEvictionCount();
+
+  long getLoadSuccessCount();
+
+  long getLoadFailureCount();
+
+  double getAverageLoadPenaltyNanos();
+
+  long getGetLatencyP50();
+
+  long getGetLatencyP99();
+
+  long getGetLatencyP999();
+
+  long getAddLatencyP50();
+
+  long getAddLatencyP99();
+
+  long getAddLatencyP999();
+}
@@ -0,0 +1,113 @@
+package com.aokolnychyi.ds.cache;
+
+// a cache with the CLOCK policy, an approximation of LRU
+// entries live in fixed arrays, every slot has a reference bit that is set on a hit
+// so a hit is a lookup and a single write, there are no linked lists to update
+// the slots form a circle with a hand: to evict, the hand sweeps forward, clearing reference bits,
+// and evicts the first entry whose bit is already clear (i.e., it was not used since the previous sweep)
+// keys are mapped to slots by SlotIndex, so adding and removing entries do not allocate
+public class ClockCache<K, V> implements Cache<K, V> {
+
+  private final Object[] keys;
+  private final Object[] values;
+  private final boolean[] referenced;
+  private final SlotIndex slotIndex;
+  // slots that were freed by invalidate, the slots after numberOfUsedSlots are free as well until the cache fills up once
+  private final int[] freeSlots;
+  private int numberOfFreeSlots;
+  private int numberOfUsedSlots;
+  private int hand;
+  private int size;
+
+  public ClockCache(int maxCapacity) {
+    if (maxCapacity <= 0) {
+      throw new IllegalArgumentException("Max capacity must be positive");
+    }
+    this.keys = new Object[maxCapacity];
+    this.values = new Object[maxCapacity];
+    this.referenced = new boolean[maxCapacity];
+    this.slotIndex = new SlotIndex(keys);
+    this.freeSlots = new int[maxCapacity];
+  }
+
+  // O(1) time on average
+  @Override
+  public V get(K key) {
+    final int slot = slotIndex.find(key);
+    if (slot < 0) {
+      return null;
+    }
+    referenced[slot] = true;
+    return (V) values[slot];
+  }
+
+  // O(1) time on average, an eviction sweeps over at most all slots
+  @Override
+  public void add(K key, V value) {
+    if (value == null) {
+      throw new NullPointerException("Null values are not supported");
+    }
+    final int existingSlot = slotIndex.find(key);
+    if (existingSlot >= 0) {
+      values[existingSlot] = value;
+      referenced[existingSlot] = true;
+      return;
+    }
+
+    final int slot;
+    if (numberOfFreeSlots > 0) {
+      slot = freeSlots[--numberOfFreeSlots];
+    } else if (numberOfUsedSlots < keys.length) {
+      slot = numberOfUsedSlots++;
+    } else {
+      slot = evict();
+    }
+    // a new entry has its bit clear, so it is evicted on the next sweep unless it is used
+    keys[slot] = key;
+    values[slot] = value;
+    referenced[slot] = false;
+    slotIndex.insert(slot);
+    size++;
+  }
+
+  // O(1) time on average
+  @Override
+  public void invalidate(K key) {
+    final int slot = slotIndex.find(key);
+    if (slot >= 0) {
+      clearSlot(slot);
+      freeSlots[numberOfFreeSlots++] = slot;
+    }
+  }
+
+  // O(1) time on average, does not set the reference bit
+  @Override
+  public boolean containsKey(K key) {
+    return slotIndex.find(key) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  // called only when all slots are taken, returns the freed slot
+  private int evict() {
+    while (referenced[hand]) {
+      referenced[hand] = false;
+      hand = (hand + 1) % keys.length;
+    }
+    final int slot = hand;
+    hand = (hand + 1) % keys.length;
+    clearSlot(slot);
+    return slot;
+  }
+
+  private void clearSlot(int slot) {
+    slotIndex.remove(keys[slot]);
+    keys[slot] = null;
+    values[slot] = null;
+    referenced[slot] = false;
+    size--;
+  }
+}
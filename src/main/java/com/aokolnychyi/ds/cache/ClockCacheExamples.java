@@ -0,0 +1,59 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.Random;
+
+public class ClockCacheExamples {
+
+  private static final int CACHE_CAPACITY = 100_000;
+  private static final int NUMBER_OF_GETS = 20_000_000;
+
+  public static void main(String[] args) {
+    final ClockCache<Integer, String> cache = new ClockCache<>(3);
+    cache.add(1, "1");
+    cache.add(2, "2");
+    cache.add(3, "3");
+    // 1 gets its reference bit, so the hand gives it a second chance and evicts 2 instead
+    System.out.println("1: " + cache.get(1));
+    cache.add(4, "4");
+    System.out.println("After the addition of 4");
+    System.out.println("1: " + cache.get(1));
+    System.out.println("2: " + cache.get(2));
+    System.out.println("3: " + cache.get(3));
+    System.out.println("4: " + cache.get(4));
+    cache.invalidate(1);
+    System.out.println("After the invalidation of 1");
+    System.out.println("1: " + cache.get(1));
+    System.out.println("Size: " + cache.size());
+
+    // hits on a full cache: CLOCK sets a bit, LRU moves a node to the end of its list
+    final Integer[] keys = new Integer[NUMBER_OF_GETS];
+    final Random random = new Random(42);
+    for (int index = 0; index < NUMBER_OF_GETS; index++) {
+      keys[index] = random.nextInt(CACHE_CAPACITY);
+    }
+    final ClockCache<Integer, Integer> clockCache = new ClockCache<>(CACHE_CAPACITY);
+    final EfficientLRUCache<Integer, Integer> lruCache = new EfficientLRUCache<>(CACHE_CAPACITY, CACHE_CAPACITY);
+    for (int key = 0; key < CACHE_CAPACITY; key++) {
+      clockCache.add(key, key);
+      lruCache.add(key, key);
+    }
+    for (int round = 0; round < 3; round++) {
+      final long clockTime = timeGets(clockCache, keys);
+      final long lruTime = timeGets(lruCache, keys);
+      System.out.printf("Round %d: %d hits take %d ms with ClockCache and %d ms with EfficientLRUCache%n",
+          round, NUMBER_OF_GETS, clockTime, lruTime);
+    }
+  }
+
+  private static long timeGets(Cache<Integer, Integer> cache, Integer[] keys) {
+    final long startTime = System.nanoTime();
+    long sum = 0;
+    for (Integer key : keys) {
+      sum += cache.get(key);
+    }
+    if (sum < 0) {
+      throw new IllegalStateException("Unexpected sum: " + sum);
+    }
+    return (System.nanoTime() - startTime) / 1_000_000;
+  }
+}
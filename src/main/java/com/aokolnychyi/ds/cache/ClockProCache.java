@@ -0,0 +1,304 @@
+package com.aokolnychyi.ds.cache;
+
+// a cache with the CLOCK-Pro policy (Jiang, Chen, Zhang), which approximates LIRS with the cost of CLOCK
+// like in ClockCache, a hit only sets the reference bit of the entry
+// entries are either hot (proved to be reused often) or cold, and a cold entry is in a test period after it is added
+// the cache also remembers the keys of cold entries that were evicted during their test period (non-resident entries)
+// all entries are kept in one circular list in fixed arrays, new entries go right behind the hot hand
+// three hands move over the list:
+// - the cold hand evicts cold entries that were not referenced and promotes referenced cold entries in the test period
+// - the hot hand demotes hot entries that were not referenced to cold and ends test periods of cold entries it passes
+// - the test hand ends test periods and forgets non-resident entries, so there are at most maxCapacity of them
+// a miss on a non-resident entry means the cold area was too small, so the target size of the cold area grows
+// a test period that ends without a reuse means the opposite, so the target shrinks
+// hot entries do not have to be reused within a short window to survive, so scans of cold keys cannot evict them
+public class ClockProCache<K, V> implements Cache<K, V> {
+
+  private static final byte FREE = 0;
+  private static final byte HOT = 1;
+  private static final byte COLD = 2;
+  private static final byte NON_RESIDENT = 3;
+  private static final int NONE = -1;
+
+  private final int maxCapacity;
+  private final Object[] keys;
+  private final Object[] values;
+  private final byte[] states;
+  private final boolean[] referenced;
+  private final boolean[] isInTest;
+  private final int[] previousNodes;
+  private final int[] nextNodes;
+  private final SlotIndex slotIndex;
+  private final int[] freeNodes;
+  private int numberOfFreeNodes;
+  private int hotHand = NONE;
+  private int coldHand = NONE;
+  private int testHand = NONE;
+  private int hotSize;
+  private int coldSize;
+  private int nonResidentSize;
+  // the adaptive target for the number of resident cold entries, the rest of the capacity is for hot entries
+  private int coldTarget;
+
+  public ClockProCache(int maxCapacity) {
+    if (maxCapacity <= 0) {
+      throw new IllegalArgumentException("Max capacity must be positive");
+    }
+    this.maxCapacity = maxCapacity;
+    // resident entries and non-resident entries, at most maxCapacity of each
+    final int numberOfNodes = 2 * maxCapacity;
+    this.keys = new Object[numberOfNodes];
+    this.values = new Object[numberOfNodes];
+    this.states = new byte[numberOfNodes];
+    this.referenced = new boolean[numberOfNodes];
+    this.isInTest = new boolean[numberOfNodes];
+    this.previousNodes = new int[numberOfNodes];
+    this.nextNodes = new int[numberOfNodes];
+    this.slotIndex = new SlotIndex(keys);
+    this.freeNodes = new int[numberOfNodes];
+    for (int node = 0; node < numberOfNodes; node++) {
+      freeNodes[numberOfFreeNodes++] = numberOfNodes - 1 - node;
+    }
+    // all entries start cold, so the cache behaves like CLOCK until test periods show how large the cold area should be
+    this.coldTarget = maxCapacity;
+  }
+
+  // O(1) time on average
+  @Override
+  public V get(K key) {
+    final int node = slotIndex.find(key);
+    if (node < 0 || states[node] == NON_RESIDENT) {
+      return null;
+    }
+    referenced[node] = true;
+    return (V) values[node];
+  }
+
+  // O(1) amortized time on average, every hand passes an entry at most a few times per its lifetime
+  @Override
+  public void add(K key, V value) {
+    if (value == null) {
+      throw new NullPointerException("Null values are not supported");
+    }
+    int node = slotIndex.find(key);
+    if (node >= 0 && states[node] != NON_RESIDENT) {
+      values[node] = value;
+      referenced[node] = true;
+      return;
+    }
+
+    if (hotSize + coldSize == maxCapacity) {
+      runColdHand();
+      // the hands might have forgotten the non-resident entry of the key
+      node = slotIndex.find(key);
+    }
+
+    if (node >= 0) {
+      // the key was evicted too early, so the cold area should be larger
+      coldTarget = Math.min(coldTarget + 1, maxCapacity);
+      removeNode(node);
+      nonResidentSize--;
+      addNode(key, value, HOT);
+      hotSize++;
+      while (hotSize > maxCapacity - coldTarget) {
+        runHotHand();
+      }
+    } else {
+      final int newNode = addNode(key, value, COLD);
+      isInTest[newNode] = true;
+      coldSize++;
+    }
+  }
+
+  // O(1) time on average, the key is forgotten completely, even as a non-resident entry
+  @Override
+  public void invalidate(K key) {
+    final int node = slotIndex.find(key);
+    if (node < 0) {
+      return;
+    }
+    if (states[node] == HOT) {
+      hotSize--;
+    } else if (states[node] == COLD) {
+      coldSize--;
+    } else {
+      nonResidentSize--;
+    }
+    removeNode(node);
+  }
+
+  // O(1) time on average, does not set the reference bit
+  @Override
+  public boolean containsKey(K key) {
+    final int node = slotIndex.find(key);
+    return node >= 0 && states[node] != NON_RESIDENT;
+  }
+
+  @Override
+  public int size() {
+    return hotSize + coldSize;
+  }
+
+  // evicts one resident cold entry
+  private void runColdHand() {
+    while (true) {
+      final int node = coldHand;
+      coldHand = nextNodes[node];
+      if (states[node] != COLD) {
+        continue;
+      }
+
+      if (referenced[node]) {
+        referenced[node] = false;
+        if (isInTest[node]) {
+          // reused within the test period, so the entry becomes hot
+          states[node] = HOT;
+          isInTest[node] = false;
+          coldSize--;
+          hotSize++;
+          while (hotSize > maxCapacity - coldTarget) {
+            runHotHand();
+          }
+        } else {
+          // reused after the test period, so the entry gets a new one as if it was just added
+          isInTest[node] = true;
+          moveToHead(node);
+        }
+        continue;
+      }
+
+      values[node] = null;
+      coldSize--;
+      if (isInTest[node]) {
+        // the key is remembered until its test period ends
+        states[node] = NON_RESIDENT;
+        nonResidentSize++;
+        while (nonResidentSize > maxCapacity) {
+          runTestHand();
+        }
+      } else {
+        removeNode(node);
+      }
+      return;
+    }
+  }
+
+  // demotes one hot entry to cold
+  private void runHotHand() {
+    while (true) {
+      final int node = hotHand;
+      if (states[node] == HOT) {
+        hotHand = nextNodes[node];
+        if (referenced[node]) {
+          referenced[node] = false;
+        } else {
+          states[node] = COLD;
+          hotSize--;
+          coldSize++;
+          return;
+        }
+      } else if (states[node] == NON_RESIDENT) {
+        // removing the node moves the hand forward
+        endTest(node);
+      } else {
+        hotHand = nextNodes[node];
+        if (isInTest[node]) {
+          endTest(node);
+        }
+      }
+    }
+  }
+
+  // forgets one non-resident entry
+  private void runTestHand() {
+    while (true) {
+      final int node = testHand;
+      if (states[node] == NON_RESIDENT) {
+        endTest(node);
+        return;
+      }
+      testHand = nextNodes[node];
+      if (states[node] == COLD && isInTest[node]) {
+        endTest(node);
+      }
+    }
+  }
+
+  // the entry was not reused during its test period, so the cold area can be smaller
+  private void endTest(int node) {
+    coldTarget = Math.max(coldTarget - 1, 1);
+    if (states[node] == NON_RESIDENT) {
+      removeNode(node);
+      nonResidentSize--;
+    } else {
+      isInTest[node] = false;
+    }
+  }
+
+  // puts the entry right behind the hot hand, so it is the last one to be reached by the hot hand
+  private int addNode(K key, V value, byte state) {
+    final int node = freeNodes[--numberOfFreeNodes];
+    keys[node] = key;
+    values[node] = value;
+    states[node] = state;
+    referenced[node] = false;
+    slotIndex.insert(node);
+    linkToHead(node);
+    return node;
+  }
+
+  private void removeNode(int node) {
+    unlink(node);
+    slotIndex.remove(keys[node]);
+    keys[node] = null;
+    values[node] = null;
+    states[node] = FREE;
+    referenced[node] = false;
+    isInTest[node] = false;
+    freeNodes[numberOfFreeNodes++] = node;
+  }
+
+  private void moveToHead(int node) {
+    unlink(node);
+    linkToHead(node);
+  }
+
+  private void linkToHead(int node) {
+    if (hotHand == NONE) {
+      previousNodes[node] = node;
+      nextNodes[node] = node;
+      hotHand = node;
+      coldHand = node;
+      testHand = node;
+      return;
+    }
+    final int previousNode = previousNodes[hotHand];
+    previousNodes[node] = previousNode;
+    nextNodes[node] = hotHand;
+    nextNodes[previousNode] = node;
+    previousNodes[hotHand] = node;
+  }
+
+  // hands that point to the node move forward
+  private void unlink(int node) {
+    final int nextNode = nextNodes[node];
+    if (nextNode == node) {
+      hotHand = NONE;
+      coldHand = NONE;
+      testHand = NONE;
+      return;
+    }
+    if (hotHand == node) {
+      hotHand = nextNode;
+    }
+    if (coldHand == node) {
+      coldHand = nextNode;
+    }
+    if (testHand == node) {
+      testHand = nextNode;
+    }
+    final int previousNode = previousNodes[node];
+    nextNodes[previousNode] = nextNode;
+    previousNodes[nextNode] = previousNode;
+  }
+}
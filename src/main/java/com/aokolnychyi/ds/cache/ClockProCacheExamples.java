@@ -0,0 +1,70 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class ClockProCacheExamples {
+
+  private static final int CACHE_CAPACITY = 5_000;
+  private static final int NUMBER_OF_ACCESSES = 3_000_000;
+  private static final int NUMBER_OF_POPULAR_KEYS = 100_000;
+  // a loop over 8_000 keys is a bit too large for the cache, LRU and CLOCK evict every key right before its reuse
+  private static final int LOOP_LENGTH = 8_000;
+
+  public static void main(String[] args) {
+    final ClockProCache<Integer, String> cache = new ClockProCache<>(3);
+    cache.add(1, "1");
+    cache.add(2, "2");
+    cache.add(3, "3");
+    System.out.println("1: " + cache.get(1));
+    System.out.println("2: " + cache.get(2));
+    // 3 was not referenced, so it is evicted, but its key is remembered during its test period
+    cache.add(4, "4");
+    System.out.println("After the addition of 4");
+    System.out.println("3: " + cache.get(3));
+    System.out.println("Contains 4: " + cache.containsKey(4));
+    // 3 comes back soon after its eviction, so it is added as a hot entry
+    cache.add(3, "3");
+    System.out.println("After the addition of 3");
+    System.out.println("3: " + cache.get(3));
+    System.out.println("Size: " + cache.size());
+
+    // skewed accesses mixed with one-time scans and a loop
+    final int[] trace = generateTrace(new Random(42));
+    final Map<String, Cache<Integer, Integer>> caches = new LinkedHashMap<>();
+    caches.put("LRU", new EfficientLRUCache<>(CACHE_CAPACITY, CACHE_CAPACITY));
+    caches.put("CLOCK", new ClockCache<>(CACHE_CAPACITY));
+    caches.put("CLOCK-Pro", new ClockProCache<>(CACHE_CAPACITY));
+    for (Map.Entry<String, Cache<Integer, Integer>> namedCache : caches.entrySet()) {
+      final Cache<Integer, Integer> currentCache = namedCache.getValue();
+      int hits = 0;
+      for (int key : trace) {
+        if (currentCache.get(key) != null) {
+          hits++;
+        } else {
+          currentCache.add(key, key);
+        }
+      }
+      System.out.printf("%s hit ratio with %d entries: %.1f%%%n",
+          namedCache.getKey(), CACHE_CAPACITY, 100.0 * hits / trace.length);
+    }
+  }
+
+  private static int[] generateTrace(Random random) {
+    final int[] trace = new int[NUMBER_OF_ACCESSES];
+    int nextScanKey = 2 * NUMBER_OF_POPULAR_KEYS;
+    for (int index = 0; index < NUMBER_OF_ACCESSES; index++) {
+      final int type = random.nextInt(100);
+      if (type < 20) {
+        trace[index] = nextScanKey++;
+      } else if (type < 30) {
+        trace[index] = NUMBER_OF_POPULAR_KEYS + index % LOOP_LENGTH;
+      } else {
+        final double uniform = random.nextDouble();
+        trace[index] = (int) (uniform * uniform * uniform * NUMBER_OF_POPULAR_KEYS);
+      }
+    }
+    return trace;
+  }
+}
@@ -0,0 +1,287 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// a thread-safe LRU cache in the style of Caffeine
+// the entries live in a concurrent hash map, the access order is kept in a linked list like in EfficientLRUCache
+// the list is not thread-safe, so it is updated only by the thread that holds the eviction lock
+// reads do not touch the list, they record the accessed node into a striped lossy buffer instead
+// writes are recorded into a bounded write buffer
+// both buffers are replayed against the list in batches by whoever acquires the lock with tryLock
+public class ConcurrentLRUCache<K, V> implements Cache<K, V> {
+
+  // the number of read buffers is a power of two that is at least 4 times the number of cores
+  private static final int NUMBER_OF_READ_BUFFERS =
+      roundUpToPowerOfTwo(4 * Runtime.getRuntime().availableProcessors());
+  private static final int WRITE_BUFFER_SIZE = 128;
+
+  private final ConcurrentHashMap<K, Node<K, V>> keyNodeMap;
+  private final int maxCapacity;
+  private final ReadBuffer<K, V>[] readBuffers;
+  private final ArrayBlockingQueue<WriteTask<K, V>> writeBuffer = new ArrayBlockingQueue<>(WRITE_BUFFER_SIZE);
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  // the fields below are guarded by the eviction lock
+  // the left-most node
+  private Node<K, V> leastRecentlyUsedNode;
+  // the right-most node
+  private Node<K, V> mostRecentlyUsedNode;
+  private int numberOfLinkedNodes;
+
+  public ConcurrentLRUCache(int initialCapacity, int maxCapacity) {
+    if (maxCapacity <= 0) {
+      throw new IllegalArgumentException("Max capacity must be positive");
+    }
+    this.keyNodeMap = new ConcurrentHashMap<>(initialCapacity);
+    this.maxCapacity = maxCapacity;
+    this.readBuffers = (ReadBuffer<K, V>[]) new ReadBuffer[NUMBER_OF_READ_BUFFERS];
+    for (int index = 0; index < NUMBER_OF_READ_BUFFERS; index++) {
+      readBuffers[index] = new ReadBuffer<>();
+    }
+  }
+
+  // O(1) time, never blocks
+  // the access is dropped if the read buffer of the current thread is contended or full
+  // losing a few accesses only makes the LRU order slightly less precise
+  @Override
+  public V get(K key) {
+    final Node<K, V> node = keyNodeMap.get(key);
+    if (node == null) {
+      return null;
+    }
+
+    final ReadBuffer<K, V> readBuffer = readBuffers[readBufferIndex()];
+    if (readBuffer.offer(node)) {
+      tryToDrainBuffers();
+    }
+    return node.value;
+  }
+
+  // O(1) time, blocks only if the write buffer is full
+  @Override
+  public void add(K key, V value) {
+    if (value == null) {
+      throw new NullPointerException("Null values are not supported");
+    }
+    final Node<K, V> newNode = new Node<>(key, value);
+    final Node<K, V> previousNode = keyNodeMap.put(key, newNode);
+    if (previousNode != null) {
+      previousNode.isAlive = false;
+      afterWrite(new WriteTask<>(previousNode, false));
+    }
+    afterWrite(new WriteTask<>(newNode, true));
+  }
+
+  // O(1) time, blocks only if the write buffer is full
+  public void remove(K key) {
+    final Node<K, V> removedNode = keyNodeMap.remove(key);
+    if (removedNode != null) {
+      removedNode.isAlive = false;
+      afterWrite(new WriteTask<>(removedNode, false));
+    }
+  }
+
+  @Override
+  public void invalidate(K key) {
+    remove(key);
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return keyNodeMap.containsKey(key);
+  }
+
+  // might be larger than the max capacity until the pending writes are replayed
+  @Override
+  public int size() {
+    return keyNodeMap.size();
+  }
+
+  // replays all pending reads and writes, evicting entries if needed
+  public void cleanUp() {
+    evictionLock.lock();
+    try {
+      drainBuffers();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void afterWrite(WriteTask<K, V> task) {
+    // writes must not be lost, so the writer replays the buffer itself if it is full
+    while (!writeBuffer.offer(task)) {
+      cleanUp();
+    }
+    tryToDrainBuffers();
+  }
+
+  private void tryToDrainBuffers() {
+    // if another thread holds the lock, it will replay the buffers
+    if (evictionLock.tryLock()) {
+      try {
+        drainBuffers();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  // called under the eviction lock
+  private void drainBuffers() {
+    for (ReadBuffer<K, V> readBuffer : readBuffers) {
+      readBuffer.drainTo(this);
+    }
+
+    WriteTask<K, V> task;
+    while ((task = writeBuffer.poll()) != null) {
+      if (task.isAddition) {
+        // the node might have been replaced or removed before its addition was replayed
+        if (task.node.isAlive && !task.node.isLinked) {
+          linkLast(task.node);
+        }
+      } else if (task.node.isLinked) {
+        unlink(task.node);
+      }
+    }
+
+    evictIfNeeded();
+  }
+
+  // called under the eviction lock
+  private void onAccess(Node<K, V> node) {
+    // the node might have been removed or not added yet
+    if (node.isLinked && node != mostRecentlyUsedNode) {
+      unlink(node);
+      linkLast(node);
+    }
+  }
+
+  // called under the eviction lock
+  private void evictIfNeeded() {
+    while (numberOfLinkedNodes > maxCapacity) {
+      final Node<K, V> evictedNode = leastRecentlyUsedNode;
+      unlink(evictedNode);
+      // the key might already map to a newer node, which must stay
+      keyNodeMap.remove(evictedNode.key, evictedNode);
+      evictedNode.isAlive = false;
+    }
+  }
+
+  private void linkLast(Node<K, V> node) {
+    node.previousNode = mostRecentlyUsedNode;
+    node.nextNode = null;
+    if (mostRecentlyUsedNode == null) {
+      leastRecentlyUsedNode = node;
+    } else {
+      mostRecentlyUsedNode.nextNode = node;
+    }
+    mostRecentlyUsedNode = node;
+    node.isLinked = true;
+    numberOfLinkedNodes++;
+  }
+
+  private void unlink(Node<K, V> node) {
+    final Node<K, V> previousNode = node.previousNode;
+    final Node<K, V> nextNode = node.nextNode;
+    if (previousNode == null) {
+      leastRecentlyUsedNode = nextNode;
+    } else {
+      previousNode.nextNode = nextNode;
+    }
+    if (nextNode == null) {
+      mostRecentlyUsedNode = previousNode;
+    } else {
+      nextNode.previousNode = previousNode;
+    }
+    node.previousNode = null;
+    node.nextNode = null;
+    node.isLinked = false;
+    numberOfLinkedNodes--;
+  }
+
+  // threads are spread across the read buffers by their ids
+  private int readBufferIndex() {
+    final int hash = (int) Thread.currentThread().getId() * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & (NUMBER_OF_READ_BUFFERS - 1);
+  }
+
+  private static int roundUpToPowerOfTwo(int value) {
+    return value == 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+
+  private static class Node<K, V> {
+    private final K key;
+    private final V value;
+    // false once the node is replaced, removed or evicted
+    private volatile boolean isAlive = true;
+    // the fields below are guarded by the eviction lock
+    private boolean isLinked;
+    private Node<K, V> previousNode;
+    private Node<K, V> nextNode;
+
+    Node(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private static class WriteTask<K, V> {
+    private final Node<K, V> node;
+    // either the node must be added to the list or removed from it
+    private final boolean isAddition;
+
+    WriteTask(Node<K, V> node, boolean isAddition) {
+      this.node = node;
+      this.isAddition = isAddition;
+    }
+  }
+
+  // a lossy ring buffer with many producers and a single consumer (the thread that holds the eviction lock)
+  // producers claim a slot by incrementing the write counter with CAS and give up on failure
+  private static class ReadBuffer<K, V> {
+    private static final int SIZE = 16;
+    private static final int MASK = SIZE - 1;
+
+    private final AtomicReferenceArray<Node<K, V>> slots = new AtomicReferenceArray<>(SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    // written only by the consumer
+    private volatile long readCounter;
+
+    // returns true if the buffer is full and should be drained
+    boolean offer(Node<K, V> node) {
+      final long currentWriteCounter = writeCounter.get();
+      final long numberOfPendingReads = currentWriteCounter - readCounter;
+      if (numberOfPendingReads >= SIZE) {
+        return true;
+      }
+      if (writeCounter.compareAndSet(currentWriteCounter, currentWriteCounter + 1)) {
+        slots.lazySet((int) (currentWriteCounter & MASK), node);
+        return numberOfPendingReads + 1 == SIZE;
+      }
+      return false;
+    }
+
+    // called under the eviction lock
+    void drainTo(ConcurrentLRUCache<K, V> cache) {
+      long currentReadCounter = readCounter;
+      final long currentWriteCounter = writeCounter.get();
+      while (currentReadCounter < currentWriteCounter) {
+        final int index = (int) (currentReadCounter & MASK);
+        final Node<K, V> node = slots.get(index);
+        // the producer claimed the slot but has not published the node yet
+        if (node == null) {
+          break;
+        }
+        slots.lazySet(index, null);
+        cache.onAccess(node);
+        currentReadCounter++;
+      }
+      readCounter = currentReadCounter;
+    }
+  }
+
+}
@@ -0,0 +1,116 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+public class ConcurrentLRUCacheExamples {
+
+  private static final int NUMBER_OF_KEYS = 100_000;
+  private static final long BENCHMARK_DURATION_MILLIS = 2_000;
+
+  public static void main(String[] args) throws InterruptedException {
+    final ConcurrentLRUCache<Integer, String> cache = new ConcurrentLRUCache<>(0, 3);
+    cache.add(1, "1");
+    cache.add(2, "2");
+    cache.add(3, "3");
+    System.out.println("3: " + cache.get(3));
+    System.out.println("4: " + cache.get(4));
+    System.out.println("1: " + cache.get(1));
+
+    // reads are buffered, so replay them before checking the order
+    cache.cleanUp();
+    System.out.println("After the addition of 4");
+    cache.add(4, "4");
+    System.out.println("2: " + cache.get(2));
+    System.out.println("4: " + cache.get(4));
+    System.out.println("1: " + cache.get(1));
+    System.out.println("3: " + cache.get(3));
+
+    cache.remove(4);
+    System.out.println("After the removal of 4");
+    System.out.println("4: " + cache.get(4));
+    System.out.println("Size: " + cache.size());
+
+    // concurrent writers never leave the cache above its capacity once the buffers are replayed
+    final int numberOfThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    final ConcurrentLRUCache<Integer, Integer> sharedCache = new ConcurrentLRUCache<>(1_000, 1_000);
+    final LongAdder wrongValues = new LongAdder();
+    final Thread[] threads = new Thread[numberOfThreads];
+    for (int threadIndex = 0; threadIndex < numberOfThreads; threadIndex++) {
+      threads[threadIndex] = new Thread(() -> {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int operation = 0; operation < 1_000_000; operation++) {
+          final int key = random.nextInt(5_000);
+          final int action = random.nextInt(10);
+          if (action == 0) {
+            sharedCache.add(key, key * 2);
+          } else if (action == 1) {
+            sharedCache.remove(key);
+          } else {
+            final Integer value = sharedCache.get(key);
+            if (value != null && value != key * 2) wrongValues.increment();
+          }
+        }
+      });
+      threads[threadIndex].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    sharedCache.cleanUp();
+    System.out.println("Size after concurrent updates: " + sharedCache.size() + ", wrong values: " + wrongValues.sum());
+
+    // cache hits only, compared to a lock around EfficientLRUCache
+    final ConcurrentLRUCache<Integer, Integer> concurrentCache = new ConcurrentLRUCache<>(NUMBER_OF_KEYS, NUMBER_OF_KEYS);
+    final EfficientLRUCache<Integer, Integer> efficientCache = new EfficientLRUCache<>(NUMBER_OF_KEYS, NUMBER_OF_KEYS);
+    for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+      concurrentCache.add(key, key);
+      efficientCache.add(key, key);
+    }
+    for (int threadCount = 1; threadCount <= Runtime.getRuntime().availableProcessors(); threadCount *= 2) {
+      final double concurrentThroughput = benchmark(threadCount, concurrentCache::get);
+      final double synchronizedThroughput = benchmark(threadCount, key -> {
+        synchronized (efficientCache) {
+          efficientCache.get(key);
+        }
+      });
+      System.out.printf("%d threads: ConcurrentLRUCache %.1f Mops/s, synchronized EfficientLRUCache %.1f Mops/s%n",
+          threadCount, concurrentThroughput, synchronizedThroughput);
+    }
+  }
+
+  // returns millions of operations per second
+  private static double benchmark(int threadCount, IntConsumer operation) throws InterruptedException {
+    final LongAdder operationCount = new LongAdder();
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final Thread[] threads = new Thread[threadCount];
+    final long deadline = System.currentTimeMillis() + BENCHMARK_DURATION_MILLIS;
+    for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+      threads[threadIndex] = new Thread(() -> {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+          startLatch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        long localCount = 0;
+        while (System.currentTimeMillis() < deadline) {
+          for (int iteration = 0; iteration < 1_000; iteration++) {
+            operation.accept(random.nextInt(NUMBER_OF_KEYS));
+          }
+          localCount += 1_000;
+        }
+        operationCount.add(localCount);
+      });
+      threads[threadIndex].start();
+    }
+    startLatch.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return operationCount.sum() / (BENCHMARK_DURATION_MILLIS * 1_000.0);
+  }
+}
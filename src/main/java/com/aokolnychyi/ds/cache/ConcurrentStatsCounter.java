@@ -0,0 +1,181 @@
+package com.aokolnychyi.ds.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// a thread-safe StatsCounter that can be exposed via JMX
+// counters are LongAdders, so concurrent updates do not contend on a single memory location
+public class ConcurrentStatsCounter implements StatsCounter, CacheStatsMXBean {
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final LongAdder loadSuccessCount = new LongAdder();
+  private final LongAdder loadFailureCount = new LongAdder();
+  private final LongAdder totalLoadTime = new LongAdder();
+  private final LatencyHistogram[] latencies;
+  private ObjectName objectName;
+
+  public ConcurrentStatsCounter() {
+    final StatsCounter.Operation[] operations = StatsCounter.Operation.values();
+    this.latencies = new LatencyHistogram[operations.length];
+    for (StatsCounter.Operation operation : operations) {
+      latencies[operation.ordinal()] = new LatencyHistogram();
+    }
+  }
+
+  @Override
+  public void recordHit() {
+    hitCount.increment();
+  }
+
+  @Override
+  public void recordMiss() {
+    missCount.increment();
+  }
+
+  @Override
+  public void recordEvictions(int count) {
+    evictionCount.add(count);
+  }
+
+  @Override
+  public void recordLoadSuccess(long loadTimeNanos) {
+    loadSuccessCount.increment();
+    totalLoadTime.add(loadTimeNanos);
+  }
+
+  @Override
+  public void recordLoadFailure(long loadTimeNanos) {
+    loadFailureCount.increment();
+    totalLoadTime.add(loadTimeNanos);
+  }
+
+  @Override
+  public void recordLatency(StatsCounter.Operation operation, long latencyNanos) {
+    latencies[operation.ordinal()].record(latencyNanos);
+  }
+
+  @Override
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  // 1.0 if there were no requests
+  @Override
+  public double getHitRate() {
+    final long hits = hitCount.sum();
+    final long requests = hits + missCount.sum();
+    return requests == 0 ? 1.0 : (double) hits / requests;
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  @Override
+  public long getLoadSuccessCount() {
+    return loadSuccessCount.sum();
+  }
+
+  @Override
+  public long getLoadFailureCount() {
+    return loadFailureCount.sum();
+  }
+
+  @Override
+  public double getAverageLoadPenaltyNanos() {
+    final long loads = loadSuccessCount.sum() + loadFailureCount.sum();
+    return loads == 0 ? 0 : (double) totalLoadTime.sum() / loads;
+  }
+
+  @Override
+  public long getGetLatencyP50() {
+    return latencyPercentile(StatsCounter.Operation.GET, 50);
+  }
+
+  @Override
+  public long getGetLatencyP99() {
+    return latencyPercentile(StatsCounter.Operation.GET, 99);
+  }
+
+  @Override
+  public long getGetLatencyP999() {
+    return latencyPercentile(StatsCounter.Operation.GET, 99.9);
+  }
+
+  @Override
+  public long getAddLatencyP50() {
+    return latencyPercentile(StatsCounter.Operation.ADD, 50);
+  }
+
+  @Override
+  public long getAddLatencyP99() {
+    return latencyPercentile(StatsCounter.Operation.ADD, 99);
+  }
+
+  @Override
+  public long getAddLatencyP999() {
+    return latencyPercentile(StatsCounter.Operation.ADD, 99.9);
+  }
+
+  // the result is the upper bound of the histogram bucket, so it is at most ~3% higher than the real value
+  public long latencyPercentile(StatsCounter.Operation operation, double percentile) {
+    return latencies[operation.ordinal()].percentile(percentile);
+  }
+
+  public long latencyCount(StatsCounter.Operation operation) {
+    return latencies[operation.ordinal()].count();
+  }
+
+  public double averageLatency(StatsCounter.Operation operation) {
+    return latencies[operation.ordinal()].mean();
+  }
+
+  // registers this counter in the platform MBean server under the given cache name
+  public synchronized void register(String cacheName) {
+    if (objectName != null) {
+      throw new IllegalStateException("Already registered as " + objectName);
+    }
+    try {
+      final ObjectName name = new ObjectName(
+          "com.aokolnychyi.ds.cache:type=CacheStats,name=" + ObjectName.quote(cacheName));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+      objectName = name;
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register cache statistics for " + cacheName, e);
+    }
+  }
+
+  public synchronized void unregister() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      objectName = null;
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot unregister " + objectName, e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "hits=%d, misses=%d, hitRate=%.3f, evictions=%d, loads=%d, loadFailures=%d, avgLoadPenalty=%.0fns",
+        getHitCount(), getMissCount(), getHitRate(), getEvictionCount(),
+        getLoadSuccessCount(), getLoadFailureCount(), getAverageLoadPenaltyNanos());
+  }
+}
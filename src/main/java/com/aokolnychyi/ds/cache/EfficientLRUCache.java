@@ -1,30 +1,85 @@
 package com.aokolnychyi.ds.cache;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
-public class EfficientLRUCache<K, V> {
+public class EfficientLRUCache<K, V> implements Cache<K, V> {
 
   private final Map<K, Node> keyNodeMap;
-  private final int maxCapacity;
+  // the max total weight of all entries, every entry weighs 1 unless there is a custom weigher
+  private final long maxWeight;
+  private final Weigher<K, V> weigher;
+  private long weightedSize;
   // The left-most node
   private Node leastRecentlyUsedNode;
   // The right-most node
   private Node mostRecentlyUsedNode;
+  private final Expiration expiration;
+  // times are measured from the creation of the cache, so they are never negative
+  private final LongSupplier ticker;
+  private final long startTime;
+  // expired entries are reclaimed by advancing the wheel on every operation, there is no background thread
+  // the wheel is created when the first entry with a time to live is added
+  private TimerWheel<Node> timerWheel;
+  private final Consumer<Node> expirationListener = node -> removeEntry(node.key);
 
   public EfficientLRUCache(int initialCapacity, int maxCapacity) {
+    this(initialCapacity, maxCapacity, Weigher.singleton());
+  }
+
+  public EfficientLRUCache(int initialCapacity, int maxCapacity, Expiration expiration) {
+    this(initialCapacity, maxCapacity, Weigher.singleton(), expiration, System::nanoTime);
+  }
+
+  public EfficientLRUCache(int initialCapacity, long maxWeight, Weigher<K, V> weigher) {
+    this(initialCapacity, maxWeight, weigher, Expiration.never(), System::nanoTime);
+  }
+
+  // the ticker returns the current time in nanoseconds
+  public EfficientLRUCache(
+      int initialCapacity,
+      long maxWeight,
+      Weigher<K, V> weigher,
+      Expiration expiration,
+      LongSupplier ticker) {
+
+    if (maxWeight < 0) {
+      throw new IllegalArgumentException("Max weight must be non-negative");
+    }
     keyNodeMap = new HashMap<>(initialCapacity);
-    this.maxCapacity = maxCapacity;
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+    this.expiration = expiration;
+    this.ticker = ticker;
+    this.startTime = ticker.getAsLong();
   }
 
-  // O(1) time if no collisions
+  // O(1) time if no collisions, plus the time to reclaim expired entries
+  @Override
   public V get(K key) {
+    final long currentTime = advanceTime();
     final Node node = keyNodeMap.get(key);
     // no such element
     if (node == null) {
       return null;
     }
 
+    // the entry has expired but the wheel has not reached its bucket yet
+    if (node.isExpired(currentTime)) {
+      removeEntry(key);
+      return null;
+    }
+
+    if (expiration.isAfterAccess() && node.timeToLive != Expiration.NO_EXPIRATION) {
+      node.expirationTime = currentTime + node.timeToLive;
+      timerWheel.reschedule(node);
+    }
+
     // if it is the most recently used
     if (node == mostRecentlyUsedNode) {
       return mostRecentlyUsedNode.value;
@@ -52,42 +107,177 @@ public class EfficientLRUCache<K, V> {
     return node.value;
   }
 
-  // O(1) time if no collisions
+  // O(1) time if no collisions and the weights are the same
+  // otherwise, O(k) time, where k is the number of evicted entries
+  // the entry expires according to the expiration of the cache
+  @Override
   public void add(K key, V value) {
+    put(key, value, expiration.timeToLive());
+  }
+
+  // the same as add but the entry expires after the given duration instead of the default one
+  // if the cache expires entries after access, reads extend the time to live by this duration
+  public void add(K key, V value, long duration, TimeUnit unit) {
+    put(key, value, Expiration.toNanos(duration, unit));
+  }
+
+  private void put(K key, V value, long timeToLive) {
+    final int weight = weigher.weigh(key, value);
+    if (weight < 0) {
+      throw new IllegalArgumentException("Weight must be non-negative");
+    }
+
+    final long currentTime = timeToLive == Expiration.NO_EXPIRATION ? advanceTime() : advanceTimeForExpiration();
+
     if (keyNodeMap.containsKey(key)) {
-      remove(key);
+      removeEntry(key);
+    }
+
+    // an entry that is heavier than the whole cache is not added and does not evict anything
+    if (weight > maxWeight) {
+      return;
     }
 
     // put the new node at the right-most end of the linked list
-    final Node newNode = new Node(mostRecentlyUsedNode, null, key, value);
+    final Node newNode = new Node(mostRecentlyUsedNode, null, key, value, weight);
     keyNodeMap.put(key, newNode);
-    final int currentSize = keyNodeMap.size();
+    weightedSize += weight;
+    if (timeToLive != Expiration.NO_EXPIRATION) {
+      newNode.timeToLive = timeToLive;
+      newNode.expirationTime = currentTime + timeToLive;
+      timerWheel.schedule(newNode);
+    }
 
     // if the cache contains only element now
-    if (currentSize == 1) {
+    if (keyNodeMap.size() == 1) {
       mostRecentlyUsedNode = newNode;
       leastRecentlyUsedNode = newNode;
-      return;
+    } else {
+      mostRecentlyUsedNode.nextNode = newNode;
+      mostRecentlyUsedNode = newNode;
     }
 
-    mostRecentlyUsedNode.nextNode = newNode;
-    mostRecentlyUsedNode = newNode;
+    // delete the left-most nodes until the total weight fits
+    while (weightedSize > maxWeight) {
+      removeEntry(leastRecentlyUsedNode.key);
+    }
+  }
 
-    // delete the left-most pointer if the size exceeds the threshold
-    if (currentSize > maxCapacity) {
-      // Important! Do not forget to remove from the map!
-      keyNodeMap.remove(leastRecentlyUsedNode.key);
-      leastRecentlyUsedNode = leastRecentlyUsedNode.nextNode;
-      leastRecentlyUsedNode.previousNode = null;
+  // adds entries of a snapshot (see CacheSnapshot) as less recently used than all current entries
+  // the entries must be ordered from the most recently used one, so the LRU order of the snapshot is kept
+  // keys that are already present are skipped, their current values are newer
+  // returns false once an entry does not fit, the rest of the snapshot is older and can be skipped
+  // O(k) time, where k is the number of entries in the batch
+  public boolean restore(List<CacheSnapshot.Entry<K, V>> entries) {
+    // the wheel is advanced only once, so no entry is reclaimed while the list is being extended
+    long currentTime = advanceTime();
+    for (CacheSnapshot.Entry<K, V> entry : entries) {
+      if (keyNodeMap.containsKey(entry.key)) {
+        continue;
+      }
+      final int weight = weigher.weigh(entry.key, entry.value);
+      if (weight < 0) {
+        throw new IllegalArgumentException("Weight must be non-negative");
+      }
+      if (weightedSize + weight > maxWeight) {
+        return false;
+      }
+
+      // put the new node at the left-most end of the linked list
+      final Node newNode = new Node(null, leastRecentlyUsedNode, entry.key, entry.value, weight);
+      keyNodeMap.put(entry.key, newNode);
+      weightedSize += weight;
+      if (entry.timeToLive != Expiration.NO_EXPIRATION) {
+        if (timerWheel == null) {
+          currentTime = advanceTimeForExpiration();
+        }
+        newNode.timeToLive = entry.timeToLive;
+        newNode.expirationTime = currentTime + entry.remainingTime;
+        timerWheel.schedule(newNode);
+      }
+
+      if (leastRecentlyUsedNode == null) {
+        mostRecentlyUsedNode = newNode;
+      } else {
+        leastRecentlyUsedNode.previousNode = newNode;
+      }
+      leastRecentlyUsedNode = newNode;
+    }
+    return true;
+  }
+
+  // passes entries to the writer from the most recently used one, expired entries are skipped
+  // O(n) time
+  void writeEntries(CacheSnapshot.EntryWriter<K, V> writer) throws IOException {
+    final long currentTime = advanceTime();
+    for (Node node = mostRecentlyUsedNode; node != null; node = node.previousNode) {
+      if (node.timeToLive == Expiration.NO_EXPIRATION) {
+        writer.write(node.key, node.value, Expiration.NO_EXPIRATION, 0);
+      } else if (!node.isExpired(currentTime)) {
+        writer.write(node.key, node.value, node.timeToLive, node.expirationTime - currentTime);
+      }
     }
   }
 
-  // O(1) time if no collisions
+  // O(1) time if no collisions, plus the time to reclaim expired entries
   public void remove(K key) {
+    advanceTime();
+    removeEntry(key);
+  }
+
+  // O(1) time if no collisions, plus the time to reclaim expired entries
+  @Override
+  public void invalidate(K key) {
+    remove(key);
+  }
+
+  // O(1) time if no collisions, plus the time to reclaim expired entries
+  @Override
+  public boolean containsKey(K key) {
+    // the wheel is advanced even if the key is missing, so probing missing keys also reclaims expired entries
+    final long currentTime = advanceTime();
+    final Node node = keyNodeMap.get(key);
+    return node != null && !node.isExpired(currentTime);
+  }
+
+  // the number of entries, including expired ones that have not been reclaimed yet
+  @Override
+  public int size() {
+    return keyNodeMap.size();
+  }
+
+  // the sum of weights of all entries
+  public long weightedSize() {
+    return weightedSize;
+  }
+
+  // reclaims expired entries and returns the current time (0 if no entry has a time to live)
+  private long advanceTime() {
+    if (timerWheel == null) {
+      return 0;
+    }
+    final long currentTime = ticker.getAsLong() - startTime;
+    timerWheel.advance(currentTime, expirationListener);
+    return currentTime;
+  }
+
+  // the same as advanceTime but creates the timer wheel if needed, so an entry with a time to live can be scheduled
+  private long advanceTimeForExpiration() {
+    if (timerWheel == null) {
+      timerWheel = new TimerWheel<>(ticker.getAsLong() - startTime);
+    }
+    return advanceTime();
+  }
+
+  private void removeEntry(K key) {
     final Node removedNode = keyNodeMap.remove(key);
     final boolean isRemovalFromMapSuccessful = removedNode != null;
 
     if (isRemovalFromMapSuccessful) {
+      weightedSize -= removedNode.weight;
+      if (timerWheel != null) {
+        timerWheel.cancel(removedNode);
+      }
       if (removedNode == mostRecentlyUsedNode) {
         mostRecentlyUsedNode = mostRecentlyUsedNode.previousNode;
         if (mostRecentlyUsedNode != null) {
@@ -110,20 +300,28 @@ public class EfficientLRUCache<K, V> {
     }
   }
 
-  private class Node {
+  // the timer links and the expiration time are managed by the timer wheel
+  private class Node extends TimerWheel.Timer {
     Node previousNode;
     Node nextNode;
     K key;
     V value;
+    int weight;
+    long timeToLive = Expiration.NO_EXPIRATION;
 
     private Node() {
     }
 
-    private Node(Node previousNode, Node nextNode, K key, V value) {
+    private Node(Node previousNode, Node nextNode, K key, V value, int weight) {
       this.previousNode = previousNode;
       this.nextNode = nextNode;
       this.key = key;
       this.value = value;
+      this.weight = weight;
+    }
+
+    private boolean isExpired(long currentTime) {
+      return timeToLive != Expiration.NO_EXPIRATION && expirationTime - currentTime <= 0;
     }
   }
 }
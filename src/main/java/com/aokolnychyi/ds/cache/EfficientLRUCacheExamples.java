@@ -1,5 +1,7 @@
 package com.aokolnychyi.ds.cache;
 
+import java.util.concurrent.TimeUnit;
+
 public class EfficientLRUCacheExamples {
 
   public static void main(String[] args) {
@@ -38,5 +40,58 @@ public class EfficientLRUCacheExamples {
     System.out.println("4: " + cache.get(4));
     System.out.println("1: " + cache.get(1));
     System.out.println("3: " + cache.get(3));
+
+    // the cache is bounded by the total size of values in bytes instead of the number of entries
+    final Weigher<String, byte[]> byteWeigher = (key, value) -> value.length;
+    final EfficientLRUCache<String, byte[]> byteCache = new EfficientLRUCache<>(16, 10_000, byteWeigher);
+    byteCache.add("small-1", new byte[100]);
+    byteCache.add("small-2", new byte[100]);
+    byteCache.add("large-1", new byte[5_000]);
+    System.out.println("Weighted size: " + byteCache.weightedSize());
+    byteCache.get("small-1");
+    // small-2 and large-1 are evicted to fit large-2
+    byteCache.add("large-2", new byte[6_000]);
+    System.out.println("After the addition of large-2");
+    System.out.println("small-1: " + (byteCache.get("small-1") != null));
+    System.out.println("small-2: " + (byteCache.get("small-2") != null));
+    System.out.println("large-1: " + (byteCache.get("large-1") != null));
+    System.out.println("Weighted size: " + byteCache.weightedSize());
+    // an entry that is heavier than the max weight is not added and does not evict anything
+    byteCache.add("huge", new byte[20_000]);
+    System.out.println("huge: " + (byteCache.get("huge") != null));
+    System.out.println("Weighted size: " + byteCache.weightedSize());
+
+    // a manual clock to show expiration without waiting
+    final long[] currentTime = {0};
+    final EfficientLRUCache<String, String> expiringCache = new EfficientLRUCache<>(
+        16, 100, Weigher.singleton(), Expiration.afterAccess(10, TimeUnit.SECONDS), () -> currentTime[0]);
+    expiringCache.add("session", "data");
+    expiringCache.add("token", "secret", 3, TimeUnit.SECONDS);
+    currentTime[0] += TimeUnit.SECONDS.toNanos(5);
+    System.out.println("After 5 seconds");
+    System.out.println("session: " + expiringCache.get("session"));
+    System.out.println("token: " + expiringCache.get("token"));
+    // the read of session extended its time to live by another 10 seconds
+    currentTime[0] += TimeUnit.SECONDS.toNanos(8);
+    System.out.println("After 13 seconds");
+    System.out.println("session: " + expiringCache.get("session"));
+    currentTime[0] += TimeUnit.SECONDS.toNanos(20);
+    System.out.println("After 33 seconds");
+    System.out.println("Weighted size: " + expiringCache.weightedSize());
+    System.out.println("session: " + expiringCache.get("session"));
+    System.out.println("Weighted size: " + expiringCache.weightedSize());
+
+    // expired entries are reclaimed by the timer wheel as the cache is used
+    final EfficientLRUCache<Integer, Integer> shortLivedCache = new EfficientLRUCache<>(
+        1_000, 1_000_000, Weigher.singleton(), Expiration.afterWrite(1, TimeUnit.MINUTES), () -> currentTime[0]);
+    for (int key = 0; key < 1_000_000; key++) {
+      shortLivedCache.add(key, key);
+      currentTime[0] += TimeUnit.MICROSECONDS.toNanos(100);
+    }
+    System.out.println("Live entries after 100 seconds of writes: " + shortLivedCache.weightedSize());
+    // probing a missing key advances the wheel as well
+    currentTime[0] += TimeUnit.HOURS.toNanos(6);
+    System.out.println("Contains a missing key after 6 hours: " + shortLivedCache.containsKey(-1));
+    System.out.println("Size after the probe: " + shortLivedCache.size());
   }
 }
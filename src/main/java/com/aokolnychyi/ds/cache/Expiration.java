@@ -0,0 +1,51 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.concurrent.TimeUnit;
+
+// describes when entries of a cache expire by default
+// after write: the time to live starts when the entry is added and is not extended by reads
+// after access: the time to live starts again on every read
+public final class Expiration {
+
+  static final long NO_EXPIRATION = -1;
+  // about 146 years, so that adding the time to live to the current time never overflows
+  static final long MAX_TIME_TO_LIVE = 1L << 62;
+
+  private static final Expiration NEVER = new Expiration(NO_EXPIRATION, false);
+
+  private final long timeToLive;
+  private final boolean isAfterAccess;
+
+  private Expiration(long timeToLive, boolean isAfterAccess) {
+    this.timeToLive = timeToLive;
+    this.isAfterAccess = isAfterAccess;
+  }
+
+  public static Expiration never() {
+    return NEVER;
+  }
+
+  public static Expiration afterWrite(long duration, TimeUnit unit) {
+    return new Expiration(toNanos(duration, unit), false);
+  }
+
+  public static Expiration afterAccess(long duration, TimeUnit unit) {
+    return new Expiration(toNanos(duration, unit), true);
+  }
+
+  // in nanoseconds or NO_EXPIRATION
+  long timeToLive() {
+    return timeToLive;
+  }
+
+  boolean isAfterAccess() {
+    return isAfterAccess;
+  }
+
+  static long toNanos(long duration, TimeUnit unit) {
+    if (duration < 0) {
+      throw new IllegalArgumentException("Duration must be non-negative");
+    }
+    return Math.min(unit.toNanos(duration), MAX_TIME_TO_LIVE);
+  }
+}
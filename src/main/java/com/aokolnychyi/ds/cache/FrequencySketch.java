@@ -0,0 +1,95 @@
+package com.aokolnychyi.ds.cache;
+
+// a count-min sketch that estimates how often keys were accessed recently
+// counters take 4 bits (up to 15), so 16 of them are packed into a long
+// every key is mapped to 4 counters and its frequency is the minimum of them
+// once the number of increments reaches 10 times the capacity, all counters are halved (aging)
+// so the sketch reflects the recent history and keys that are not popular anymore fade out
+final class FrequencySketch<K> {
+
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final int MAX_COUNTER_VALUE = 15;
+
+  private final long[] table;
+  private final int counterMask;
+  private final int sampleSize;
+  private int numberOfIncrements;
+
+  FrequencySketch(int maxCapacity) {
+    // about 4 counters per cached key
+    final int numberOfWords = roundUpToPowerOfTwo(Math.min(Math.max(maxCapacity, 16), 1 << 26)) / 4;
+    this.table = new long[numberOfWords];
+    this.counterMask = table.length * 16 - 1;
+    this.sampleSize = (int) Math.min(10L * Math.max(maxCapacity, 1), Integer.MAX_VALUE);
+  }
+
+  // O(1) time
+  int frequency(K key) {
+    final int hash = spread(key.hashCode());
+    int frequency = MAX_COUNTER_VALUE;
+    for (int depth = 0; depth < SEEDS.length; depth++) {
+      final int counterIndex = counterIndex(hash, depth);
+      final long counter = (table[counterIndex >>> 4] >>> counterShift(counterIndex)) & 0xfL;
+      frequency = Math.min(frequency, (int) counter);
+    }
+    return frequency;
+  }
+
+  // O(1) time, amortized O(1) with aging
+  void increment(K key) {
+    final int hash = spread(key.hashCode());
+    boolean isIncremented = false;
+    for (int depth = 0; depth < SEEDS.length; depth++) {
+      isIncremented |= incrementCounter(counterIndex(hash, depth));
+    }
+
+    if (isIncremented && ++numberOfIncrements == sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementCounter(int counterIndex) {
+    final int wordIndex = counterIndex >>> 4;
+    final int shift = counterShift(counterIndex);
+    final long mask = 0xfL << shift;
+    if ((table[wordIndex] & mask) == mask) {
+      // the counter is saturated
+      return false;
+    }
+    table[wordIndex] += 1L << shift;
+    return true;
+  }
+
+  // halves every counter with one shift per word
+  private void reset() {
+    int numberOfOddCounters = 0;
+    for (int wordIndex = 0; wordIndex < table.length; wordIndex++) {
+      numberOfOddCounters += Long.bitCount(table[wordIndex] & ONE_MASK);
+      table[wordIndex] = (table[wordIndex] >>> 1) & RESET_MASK;
+    }
+    // odd counters lose a half, which is spread across 4 counters of every key
+    numberOfIncrements = (numberOfIncrements - (numberOfOddCounters >>> 2)) >>> 1;
+  }
+
+  private int counterIndex(int hash, int depth) {
+    long counterHash = (hash + SEEDS[depth]) * SEEDS[depth];
+    counterHash += counterHash >>> 32;
+    return (int) counterHash & counterMask;
+  }
+
+  private static int counterShift(int counterIndex) {
+    return (counterIndex & 15) << 2;
+  }
+
+  private static int spread(int hashCode) {
+    final int hash = hashCode * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int roundUpToPowerOfTwo(int value) {
+    return value == 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+}
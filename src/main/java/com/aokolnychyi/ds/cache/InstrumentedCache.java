@@ -0,0 +1,65 @@
+package com.aokolnychyi.ds.cache;
+
+// a decorator that records the statistics of any Cache
+// caches that are not wrapped pay nothing for the statistics
+// hits and misses are decided by whether get returns a value
+// evictions are derived from the size of the cache before and after an addition,
+// so they are precise only if the cache is not modified concurrently through another reference
+// LoadingCache records its statistics itself, wrapping it would count loaded values as hits
+public class InstrumentedCache<K, V> implements Cache<K, V> {
+
+  private final Cache<K, V> cache;
+  private final StatsCounter statsCounter;
+
+  public InstrumentedCache(Cache<K, V> cache, StatsCounter statsCounter) {
+    if (cache == null || statsCounter == null) {
+      throw new NullPointerException("Cache and stats counter must not be null");
+    }
+    this.cache = cache;
+    this.statsCounter = statsCounter;
+  }
+
+  @Override
+  public V get(K key) {
+    final long startTime = System.nanoTime();
+    final V value = cache.get(key);
+    statsCounter.recordLatency(StatsCounter.Operation.GET, System.nanoTime() - startTime);
+    if (value == null) {
+      statsCounter.recordMiss();
+    } else {
+      statsCounter.recordHit();
+    }
+    return value;
+  }
+
+  @Override
+  public void add(K key, V value) {
+    final long startTime = System.nanoTime();
+    final boolean isNewKey = !cache.containsKey(key);
+    final int sizeBefore = cache.size();
+    cache.add(key, value);
+    final int sizeAfter = cache.size();
+    statsCounter.recordLatency(StatsCounter.Operation.ADD, System.nanoTime() - startTime);
+    final int numberOfEvictions = sizeBefore + (isNewKey ? 1 : 0) - sizeAfter;
+    if (numberOfEvictions > 0) {
+      statsCounter.recordEvictions(numberOfEvictions);
+    }
+  }
+
+  @Override
+  public void invalidate(K key) {
+    final long startTime = System.nanoTime();
+    cache.invalidate(key);
+    statsCounter.recordLatency(StatsCounter.Operation.INVALIDATE, System.nanoTime() - startTime);
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return cache.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return cache.size();
+  }
+}
@@ -4,7 +4,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 
-public class LRUCache<K, V> {
+public class LRUCache<K, V> implements Cache<K, V> {
 
   private final Map<K, V> keyValueMap = new HashMap<>();
   private final LinkedList<K> keyList = new LinkedList<>();
@@ -15,6 +15,7 @@ public class LRUCache<K, V> {
   }
 
   // O(n)
+  @Override
   public V get(K key) {
     final V value = keyValueMap.get(key);
     if (value != null) {
@@ -34,6 +35,7 @@ public class LRUCache<K, V> {
   }
 
   // O(n)
+  @Override
   public void add(K key, V value) {
     // remove if already exists
     remove(key);
@@ -47,6 +49,23 @@ public class LRUCache<K, V> {
     keyList.addFirst(key);
   }
 
+  // O(n)
+  @Override
+  public void invalidate(K key) {
+    remove(key);
+  }
+
+  // O(1)
+  @Override
+  public boolean containsKey(K key) {
+    return keyValueMap.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return keyValueMap.size();
+  }
+
   // O(n)
   private void markAsMostRecentlyUsed(K key) {
     keyList.remove(key);
@@ -0,0 +1,75 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// a thread-safe histogram of latencies in nanoseconds with log-linear buckets (like HdrHistogram)
+// every power of two is split into 32 equal buckets, so values are tracked with a relative error of at most ~3%
+// values below 64 ns are tracked exactly, values above ~18 minutes go into the last bucket
+// recording a value does not allocate and takes a few instructions plus one atomic increment
+final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final long MAX_TRACKED_VALUE = (1L << 40) - 1;
+  private static final int NUMBER_OF_BUCKETS = bucketIndex(MAX_TRACKED_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(NUMBER_OF_BUCKETS);
+  private final LongAdder totalCount = new LongAdder();
+  private final LongAdder totalValue = new LongAdder();
+
+  void record(long value) {
+    final long trackedValue = Math.min(Math.max(value, 0), MAX_TRACKED_VALUE);
+    counts.incrementAndGet(bucketIndex(trackedValue));
+    totalCount.increment();
+    totalValue.add(trackedValue);
+  }
+
+  long count() {
+    return totalCount.sum();
+  }
+
+  double mean() {
+    final long count = totalCount.sum();
+    return count == 0 ? 0 : (double) totalValue.sum() / count;
+  }
+
+  // returns the largest value of the bucket that contains the given percentile (0 if there are no values)
+  // the counts might change while they are being read, so the result is approximate under concurrent updates
+  long percentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+    long count = 0;
+    for (int index = 0; index < NUMBER_OF_BUCKETS; index++) {
+      count += counts.get(index);
+    }
+    if (count == 0) {
+      return 0;
+    }
+
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seenCount = 0;
+    for (int index = 0; index < NUMBER_OF_BUCKETS; index++) {
+      seenCount += counts.get(index);
+      if (seenCount >= rank) {
+        return highestValueInBucket(index);
+      }
+    }
+    return MAX_TRACKED_VALUE;
+  }
+
+  // a value with the highest set bit at position p (p >= 5) is in the range [2^p, 2^(p+1))
+  // the range is split into 32 buckets by the 5 bits that follow the highest one
+  private static int bucketIndex(long value) {
+    final int highestBit = 63 - Long.numberOfLeadingZeros(value | SUB_BUCKET_COUNT);
+    final int shift = highestBit - SUB_BUCKET_BITS;
+    return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+  }
+
+  private static long highestValueInBucket(int index) {
+    final int shift = Math.max(0, (index >>> SUB_BUCKET_BITS) - 1);
+    final long subBucket = index - ((long) shift << SUB_BUCKET_BITS);
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
@@ -3,7 +3,8 @@ package com.aokolnychyi.ds.cache;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-public class LinkedHashMapLRUCache<K, V> extends LinkedHashMap<K, V> {
+// get, containsKey and size come from LinkedHashMap
+public class LinkedHashMapLRUCache<K, V> extends LinkedHashMap<K, V> implements Cache<K, V> {
 
   private final int maxSize;
 
@@ -13,6 +14,16 @@ public class LinkedHashMapLRUCache<K, V> extends LinkedHashMap<K, V> {
     this.maxSize = maxSize;
   }
 
+  @Override
+  public void add(K key, V value) {
+    put(key, value);
+  }
+
+  @Override
+  public void invalidate(K key) {
+    remove(key);
+  }
+
   @Override
   protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
     return maxSize < size();
@@ -0,0 +1,409 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// a thread-safe cache that loads missing values with a CacheLoader
+// the entries are kept in an EfficientLRUCache, which is accessed under a lock
+// loads run outside of the lock, every load is represented by a future in a map of in-flight loads
+// concurrent callers that miss the same key wait for the same future, so the key is loaded only once
+// put and invalidate supersede a load in flight by removing its future, so a value loaded before a write
+// is returned to the callers that waited for it but never overwrites the newer entry
+// if refresh after write is enabled, an old entry is still returned while a new value is loaded in the background
+// loading errors are thrown as CompletionException
+// statistics are recorded into the given StatsCounter, a miss is a get that had to load or wait for a load
+// without a StatsCounter, the clock is not read and nothing is recorded, like with caches that are not instrumented
+public class LoadingCache<K, V> implements Cache<K, V> {
+
+  private static final long NO_REFRESH = -1;
+
+  private final EfficientLRUCache<K, Entry<V>> cache;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ConcurrentHashMap<K, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<>();
+  private final CacheLoader<K, V> loader;
+  private final long refreshAfterWrite;
+  private final Executor executor;
+  private final LongSupplier ticker;
+  private final StatsCounter statsCounter;
+  private final boolean isRecordingStats;
+
+  public LoadingCache(int maxCapacity, CacheLoader<K, V> loader) {
+    this(maxCapacity, loader, StatsCounter.disabled());
+  }
+
+  public LoadingCache(int maxCapacity, CacheLoader<K, V> loader, StatsCounter statsCounter) {
+    this(maxCapacity, loader, NO_REFRESH, ForkJoinPool.commonPool(), System::nanoTime, statsCounter);
+  }
+
+  public LoadingCache(int maxCapacity, CacheLoader<K, V> loader, long refreshAfterWrite, TimeUnit unit) {
+    this(maxCapacity, loader, Expiration.toNanos(refreshAfterWrite, unit), ForkJoinPool.commonPool(), System::nanoTime);
+  }
+
+  public LoadingCache(
+      int maxCapacity,
+      CacheLoader<K, V> loader,
+      long refreshAfterWriteNanos,
+      Executor executor,
+      LongSupplier ticker) {
+
+    this(maxCapacity, loader, refreshAfterWriteNanos, executor, ticker, StatsCounter.disabled());
+  }
+
+  // refreshes run on the executor, the ticker returns the current time in nanoseconds
+  public LoadingCache(
+      int maxCapacity,
+      CacheLoader<K, V> loader,
+      long refreshAfterWriteNanos,
+      Executor executor,
+      LongSupplier ticker,
+      StatsCounter statsCounter) {
+
+    if (statsCounter == null) {
+      throw new NullPointerException("Stats counter must not be null");
+    }
+    this.cache = new EfficientLRUCache<>(maxCapacity, maxCapacity);
+    this.loader = loader;
+    this.refreshAfterWrite = refreshAfterWriteNanos;
+    this.executor = executor;
+    this.ticker = ticker;
+    this.statsCounter = statsCounter;
+    this.isRecordingStats = statsCounter != StatsCounter.disabled();
+  }
+
+  // returns the cached value or loads it, blocks if another thread is loading the same key
+  // returns null if the loader has no value for the key
+  @Override
+  public V get(K key) {
+    if (!isRecordingStats) {
+      return getOrLoad(key);
+    }
+    final long startTime = System.nanoTime();
+    try {
+      return getOrLoad(key);
+    } finally {
+      statsCounter.recordLatency(StatsCounter.Operation.GET, System.nanoTime() - startTime);
+    }
+  }
+
+  // returns the values of all keys that have them
+  // the missing keys are loaded with one call to loadAll, the keys that are loaded by other threads are awaited
+  public Map<K, V> getAll(Iterable<? extends K> keys) {
+    final Map<K, V> values = new LinkedHashMap<>();
+    final Map<K, CompletableFuture<V>> awaitedLoads = new HashMap<>();
+    final Map<K, CompletableFuture<V>> ownLoads = new LinkedHashMap<>();
+
+    for (K key : keys) {
+      if (values.containsKey(key) || awaitedLoads.containsKey(key) || ownLoads.containsKey(key)) {
+        continue;
+      }
+      final Entry<V> entry = getEntry(key);
+      if (entry != null) {
+        recordHit();
+        if (isRefreshNeeded(entry)) {
+          refreshAsync(key, entry);
+        }
+        values.put(key, entry.value);
+        continue;
+      }
+      recordMiss();
+      final CompletableFuture<V> future = new CompletableFuture<>();
+      final CompletableFuture<V> inFlightLoad = inFlightLoads.putIfAbsent(key, future);
+      if (inFlightLoad != null) {
+        awaitedLoads.put(key, inFlightLoad);
+      } else {
+        ownLoads.put(key, future);
+      }
+    }
+
+    if (!ownLoads.isEmpty()) {
+      loadAll(ownLoads, values);
+    }
+    for (Map.Entry<K, CompletableFuture<V>> awaitedLoad : awaitedLoads.entrySet()) {
+      final V value = awaitedLoad.getValue().join();
+      if (value != null) {
+        values.put(awaitedLoad.getKey(), value);
+      }
+    }
+    return values;
+  }
+
+  public void put(K key, V value) {
+    if (value == null) {
+      throw new NullPointerException("Null values are not supported");
+    }
+    final long startTime = isRecordingStats ? System.nanoTime() : 0L;
+    final Entry<V> entry = new Entry<>(value, ticker.getAsLong());
+    lock.lock();
+    try {
+      inFlightLoads.remove(key);
+      addEntry(key, entry);
+    } finally {
+      lock.unlock();
+    }
+    if (isRecordingStats) {
+      statsCounter.recordLatency(StatsCounter.Operation.ADD, System.nanoTime() - startTime);
+    }
+  }
+
+  @Override
+  public void add(K key, V value) {
+    put(key, value);
+  }
+
+  // a load or refresh that is in flight does not bring the entry back
+  @Override
+  public void invalidate(K key) {
+    lock.lock();
+    try {
+      inFlightLoads.remove(key);
+      cache.remove(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // does not load the value
+  @Override
+  public boolean containsKey(K key) {
+    lock.lock();
+    try {
+      return cache.containsKey(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return cache.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private V getOrLoad(K key) {
+    final Entry<V> entry = getEntry(key);
+    if (entry != null) {
+      recordHit();
+      if (isRefreshNeeded(entry)) {
+        refreshAsync(key, entry);
+      }
+      return entry.value;
+    }
+    recordMiss();
+
+    final CompletableFuture<V> future = new CompletableFuture<>();
+    final CompletableFuture<V> inFlightLoad = inFlightLoads.putIfAbsent(key, future);
+    if (inFlightLoad != null) {
+      return inFlightLoad.join();
+    }
+
+    try {
+      // another thread might have finished loading the key right before this one registered its future
+      final Entry<V> loadedEntry = getEntry(key);
+      final V value = loadedEntry != null ? loadedEntry.value : load(key);
+      if (loadedEntry == null && value != null) {
+        install(key, future, value);
+      }
+      future.complete(value);
+      return value;
+    } catch (Throwable throwable) {
+      future.completeExceptionally(throwable);
+      throw asUnchecked(throwable);
+    } finally {
+      inFlightLoads.remove(key, future);
+    }
+  }
+
+  private V load(K key) throws Exception {
+    if (!isRecordingStats) {
+      return loader.load(key);
+    }
+    final long startTime = System.nanoTime();
+    try {
+      final V value = loader.load(key);
+      statsCounter.recordLoadSuccess(System.nanoTime() - startTime);
+      return value;
+    } catch (Throwable throwable) {
+      statsCounter.recordLoadFailure(System.nanoTime() - startTime);
+      throw throwable;
+    }
+  }
+
+  private void loadAll(Map<K, CompletableFuture<V>> ownLoads, Map<K, V> values) {
+    try {
+      // some keys might have been loaded by other threads right before this one registered its futures
+      final Set<K> missingKeys = new LinkedHashSet<>();
+      for (Map.Entry<K, CompletableFuture<V>> ownLoad : ownLoads.entrySet()) {
+        final Entry<V> entry = getEntry(ownLoad.getKey());
+        if (entry != null) {
+          values.put(ownLoad.getKey(), entry.value);
+          ownLoad.getValue().complete(entry.value);
+        } else {
+          missingKeys.add(ownLoad.getKey());
+        }
+      }
+
+      final Map<K, V> loadedValues = missingKeys.isEmpty() ? new HashMap<>() : loadAll(missingKeys);
+      for (K key : missingKeys) {
+        final V value = loadedValues.get(key);
+        if (value != null) {
+          install(key, ownLoads.get(key), value);
+          values.put(key, value);
+        }
+        ownLoads.get(key).complete(value);
+      }
+    } catch (Throwable throwable) {
+      for (CompletableFuture<V> future : ownLoads.values()) {
+        future.completeExceptionally(throwable);
+      }
+      throw asUnchecked(throwable);
+    } finally {
+      for (Map.Entry<K, CompletableFuture<V>> ownLoad : ownLoads.entrySet()) {
+        inFlightLoads.remove(ownLoad.getKey(), ownLoad.getValue());
+      }
+    }
+  }
+
+  // a bulk load counts as one load
+  private Map<K, V> loadAll(Set<K> keys) throws Exception {
+    if (!isRecordingStats) {
+      return loader.loadAll(keys);
+    }
+    final long startTime = System.nanoTime();
+    try {
+      final Map<K, V> values = loader.loadAll(keys);
+      statsCounter.recordLoadSuccess(System.nanoTime() - startTime);
+      return values;
+    } catch (Throwable throwable) {
+      statsCounter.recordLoadFailure(System.nanoTime() - startTime);
+      throw throwable;
+    }
+  }
+
+  private void refreshAsync(K key, Entry<V> staleEntry) {
+    final CompletableFuture<V> future = new CompletableFuture<>();
+    // the key is being refreshed or loaded already
+    if (inFlightLoads.putIfAbsent(key, future) != null) {
+      return;
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          final V value = load(key);
+          if (value != null) {
+            replace(key, staleEntry, new Entry<>(value, ticker.getAsLong()));
+          }
+          future.complete(value);
+        } catch (Throwable throwable) {
+          // the stale value stays, so the refresh will be retried on the next read
+          future.completeExceptionally(throwable);
+        } finally {
+          inFlightLoads.remove(key, future);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // the stale value is served until the executor accepts a refresh
+      future.completeExceptionally(e);
+      inFlightLoads.remove(key, future);
+    }
+  }
+
+  // the loaded value is dropped if the load was superseded by put or invalidate, or the key got a value otherwise
+  private void install(K key, CompletableFuture<V> load, V value) {
+    final Entry<V> entry = new Entry<>(value, ticker.getAsLong());
+    lock.lock();
+    try {
+      if (inFlightLoads.get(key) == load && !cache.containsKey(key)) {
+        addEntry(key, entry);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // the refreshed value is dropped if the entry was updated or removed while it was being loaded
+  private void replace(K key, Entry<V> expectedEntry, Entry<V> newEntry) {
+    lock.lock();
+    try {
+      if (cache.get(key) == expectedEntry) {
+        addEntry(key, newEntry);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // called under the lock
+  private void addEntry(K key, Entry<V> entry) {
+    if (!isRecordingStats) {
+      cache.add(key, entry);
+      return;
+    }
+    final boolean isNewKey = !cache.containsKey(key);
+    final int sizeBefore = cache.size();
+    cache.add(key, entry);
+    final int numberOfEvictions = sizeBefore + (isNewKey ? 1 : 0) - cache.size();
+    if (numberOfEvictions > 0) {
+      statsCounter.recordEvictions(numberOfEvictions);
+    }
+  }
+
+  private void recordHit() {
+    if (isRecordingStats) {
+      statsCounter.recordHit();
+    }
+  }
+
+  private void recordMiss() {
+    if (isRecordingStats) {
+      statsCounter.recordMiss();
+    }
+  }
+
+  private Entry<V> getEntry(K key) {
+    lock.lock();
+    try {
+      return cache.get(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean isRefreshNeeded(Entry<V> entry) {
+    return refreshAfterWrite != NO_REFRESH && ticker.getAsLong() - entry.writeTime >= refreshAfterWrite;
+  }
+
+  private static RuntimeException asUnchecked(Throwable throwable) {
+    if (throwable instanceof Error) {
+      throw (Error) throwable;
+    }
+    return new CompletionException(throwable);
+  }
+
+  private static class Entry<V> {
+    private final V value;
+    private final long writeTime;
+
+    Entry(V value, long writeTime) {
+      this.value = value;
+      this.writeTime = writeTime;
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LoadingCacheExamples {
+
+  public static void main(String[] args) throws InterruptedException {
+    // a slow backing store that counts how often it is queried
+    final AtomicInteger numberOfLoads = new AtomicInteger();
+    final AtomicInteger numberOfBulkLoads = new AtomicInteger();
+    final CacheLoader<Integer, String> loader = new CacheLoader<Integer, String>() {
+      @Override
+      public String load(Integer key) throws Exception {
+        numberOfLoads.incrementAndGet();
+        Thread.sleep(100);
+        if (key < 0) throw new IllegalArgumentException("Negative key: " + key);
+        return key == 0 ? null : "value-" + key;
+      }
+
+      @Override
+      public Map<Integer, String> loadAll(Set<? extends Integer> keys) {
+        numberOfBulkLoads.incrementAndGet();
+        final Map<Integer, String> values = new HashMap<>();
+        for (Integer key : keys) {
+          values.put(key, "bulk-value-" + key);
+        }
+        return values;
+      }
+    };
+
+    final LoadingCache<Integer, String> cache = new LoadingCache<>(100, loader);
+    System.out.println("Get 1: " + cache.get(1));
+    System.out.println("Get 1 again: " + cache.get(1));
+    System.out.println("Get 0 (no value): " + cache.get(0));
+    System.out.println("Loads so far: " + numberOfLoads.get());
+
+    // all concurrent misses of the same key wait for one load
+    final int numberOfThreads = 16;
+    final int numberOfLoadsBefore = numberOfLoads.get();
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final Thread[] threads = new Thread[numberOfThreads];
+    for (int threadIndex = 0; threadIndex < numberOfThreads; threadIndex++) {
+      threads[threadIndex] = new Thread(() -> {
+        try {
+          startLatch.await();
+          cache.get(42);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      threads[threadIndex].start();
+    }
+    startLatch.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    System.out.println("Loads of 42 by " + numberOfThreads + " threads: " + (numberOfLoads.get() - numberOfLoadsBefore));
+
+    try {
+      cache.get(-1);
+    } catch (CompletionException e) {
+      System.out.println("Failed load: " + e.getCause().getMessage());
+    }
+
+    // cached keys are served directly, the rest are loaded with one call
+    final Map<Integer, String> values = cache.getAll(Arrays.asList(1, 42, 7, 8, 9));
+    System.out.println("Get all: " + values + ", bulk loads: " + numberOfBulkLoads.get());
+
+    // a manual clock and a direct executor to show refresh after write step by step
+    final long[] currentTime = {0};
+    final AtomicInteger version = new AtomicInteger();
+    final LoadingCache<String, String> refreshingCache = new LoadingCache<>(
+        100, key -> key + "-v" + version.incrementAndGet(), TimeUnit.MINUTES.toNanos(1), Runnable::run,
+        () -> currentTime[0]);
+    System.out.println("Get config: " + refreshingCache.get("config"));
+    currentTime[0] += TimeUnit.MINUTES.toNanos(2);
+    // the old value is returned while the refresh is triggered
+    System.out.println("Get config after 2 minutes: " + refreshingCache.get("config"));
+    System.out.println("Get config again: " + refreshingCache.get("config"));
+
+    // a put while the key is being loaded wins over the loaded value, which might be stale by then
+    final CountDownLatch loadStarted = new CountDownLatch(1);
+    final CountDownLatch loadCanFinish = new CountDownLatch(1);
+    final LoadingCache<String, String> blockingCache = new LoadingCache<>(100, key -> {
+      loadStarted.countDown();
+      loadCanFinish.await();
+      return "stale-from-db";
+    });
+    final Thread loadingThread = new Thread(() -> System.out.println("Loading thread got: " + blockingCache.get("k")));
+    loadingThread.start();
+    loadStarted.await();
+    blockingCache.put("k", "fresh-explicit-put");
+    loadCanFinish.countDown();
+    loadingThread.join();
+    System.out.println("Get k after the put during the load: " + blockingCache.get("k"));
+
+    // an invalidation during a load is not undone by the load either
+    final CountDownLatch secondLoadStarted = new CountDownLatch(1);
+    final CountDownLatch secondLoadCanFinish = new CountDownLatch(1);
+    final LoadingCache<String, String> invalidatedCache = new LoadingCache<>(100, key -> {
+      secondLoadStarted.countDown();
+      secondLoadCanFinish.await();
+      return "loaded";
+    });
+    final Thread secondLoadingThread = new Thread(() -> invalidatedCache.get("k"));
+    secondLoadingThread.start();
+    secondLoadStarted.await();
+    invalidatedCache.invalidate("k");
+    secondLoadCanFinish.countDown();
+    secondLoadingThread.join();
+    System.out.println("Contains k after the invalidation during the load: " + invalidatedCache.containsKey("k"));
+  }
+}
@@ -6,7 +6,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
-public class NaiveLRUCache<K, V> {
+public class NaiveLRUCache<K, V> implements Cache<K, V> {
 
   private final Map<TimedKey, V> map = new HashMap<>();
   private final int maxSize;
@@ -19,6 +19,7 @@ public class NaiveLRUCache<K, V> {
   }
 
   // O(1) time if there is no collision
+  @Override
   public V get(K key) {
     TimedKey timedKey = new TimedKey(key, System.nanoTime());
     V value = map.get(timedKey);
@@ -41,6 +42,30 @@ public class NaiveLRUCache<K, V> {
     map.put(timedKey, value);
   }
 
+  // O(n)
+  @Override
+  public void add(K key, V value) {
+    put(key, value);
+  }
+
+  // O(1) time if there is no collision
+  @Override
+  public void invalidate(K key) {
+    // the timestamp is ignored by equals() and hashCode()
+    map.remove(new TimedKey(key, 0));
+  }
+
+  // O(1) time if there is no collision
+  @Override
+  public boolean containsKey(K key) {
+    return map.containsKey(new TimedKey(key, 0));
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
   private Optional<TimedKey> getLeastRecentlyUsedKey() {
     return map.keySet().stream().min(timedKeyComparator);
   }
@@ -0,0 +1,443 @@
+package com.aokolnychyi.ds.cache;
+
+import com.aokolnychyi.ds.map.DirectMemory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// an LRU cache for serialized values that keeps the bytes off-heap (like the slab allocator in memcached)
+// the memory is split into 1 MB pages of direct memory, every page belongs to one size class
+// a size class cuts its pages into chunks of the same size, sizes grow by a factor of 1.25
+// a value is stored in a chunk of the smallest class that fits it, so the waste is at most 20%
+// every class has its own LRU list, the list is built like in EfficientLRUCache
+// but uses int arrays indexed by chunk ids instead of Node objects
+// keys are mapped to their chunks by an open-addressing table of longs (like SlotIndex), so apart from the keys
+// themselves there are no objects per entry on the heap
+// once all pages are taken, a class that needs a chunk evicts its own LRU entry if it is the oldest in the cache
+// otherwise, it takes a page from the class with the oldest LRU entry, so pages follow the sizes in demand
+public class OffHeapByteArrayCache<K> implements AutoCloseable {
+
+  private static final int PAGE_SIZE = 1 << 20;
+  private static final int MIN_CHUNK_SIZE = 64;
+  private static final double GROWTH_FACTOR = 1.25;
+  private static final int NONE = -1;
+  private static final int INT_PHI = 0x9E3779B9;
+  private static final long NO_LOCATION = -1L;
+  private static final int MIN_INDEX_SIZE = 16;
+
+  private final SizeClass<K>[] sizeClasses;
+  // the location of a key is the index of its size class (upper 32 bits) and the chunk id (lower 32 bits)
+  // the index is a linear probing table of locations, the key of a location is read from its size class
+  // the hashes are kept next to the locations, so probing and resizing do not call hashCode again
+  private long[] locations = newLocations(MIN_INDEX_SIZE);
+  private int[] locationHashes = new int[MIN_INDEX_SIZE];
+  private int size;
+  private final int maxValueSize;
+  private int numberOfFreePages;
+  // incremented on every access, the LRU entries of classes are compared by their access times
+  private long clock;
+  private boolean isClosed;
+
+  public OffHeapByteArrayCache(long maxMemory) {
+    this(maxMemory, PAGE_SIZE);
+  }
+
+  public OffHeapByteArrayCache(long maxMemory, int maxValueSize) {
+    if (maxMemory < PAGE_SIZE) {
+      throw new IllegalArgumentException("Max memory must be at least " + PAGE_SIZE + " bytes");
+    }
+    if (maxValueSize <= 0 || maxValueSize > PAGE_SIZE) {
+      throw new IllegalArgumentException("Max value size must be between 1 and " + PAGE_SIZE);
+    }
+    this.maxValueSize = maxValueSize;
+    this.numberOfFreePages = (int) Math.min(maxMemory / PAGE_SIZE, Integer.MAX_VALUE);
+    this.sizeClasses = createSizeClasses(maxValueSize);
+  }
+
+  // O(1) time if no collisions
+  // returns a read-only view of the off-heap bytes without copying them
+  // the view is valid only until the next add or remove, which might reuse the chunk
+  public ByteBuffer get(K key) {
+    checkNotClosed();
+    final int position = findPosition(key, hash(key));
+    if (position < 0) {
+      return null;
+    }
+    final long location = locations[position];
+    final SizeClass<K> sizeClass = sizeClasses[(int) (location >>> 32)];
+    final int chunk = (int) location;
+    sizeClass.markAsMostRecentlyUsed(chunk, ++clock);
+    return sizeClass.view(chunk);
+  }
+
+  // O(1) time if no collisions and there is a free chunk or page or the LRU entry of the same size class is evicted
+  // O(number of classes + chunks per page) time if a page is taken from another class
+  public void add(K key, byte[] value) {
+    checkNotClosed();
+    if (value.length > maxValueSize) {
+      throw new IllegalArgumentException("Value is larger than " + maxValueSize + " bytes");
+    }
+    remove(key);
+
+    final int sizeClassIndex = sizeClassIndex(value.length);
+    final SizeClass<K> sizeClass = sizeClasses[sizeClassIndex];
+    final int chunk = allocateChunk(sizeClass);
+    sizeClass.write(chunk, key, value, ++clock);
+    insertLocation(hash(key), ((long) sizeClassIndex << 32) | chunk);
+  }
+
+  // O(1) time if no collisions
+  public void remove(K key) {
+    checkNotClosed();
+    final int position = findPosition(key, hash(key));
+    if (position >= 0) {
+      final long location = locations[position];
+      removeLocation(position);
+      sizeClasses[(int) (location >>> 32)].free((int) location);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  // the off-heap memory that is taken by pages
+  public long allocatedMemory() {
+    long numberOfPages = 0;
+    for (SizeClass<K> sizeClass : sizeClasses) {
+      numberOfPages += sizeClass.pages.size();
+    }
+    return numberOfPages * PAGE_SIZE;
+  }
+
+  // frees the off-heap memory, the cache must not be used afterwards
+  @Override
+  public void close() {
+    if (!isClosed) {
+      isClosed = true;
+      for (SizeClass<K> sizeClass : sizeClasses) {
+        for (ByteBuffer page : sizeClass.pages) {
+          DirectMemory.release(page);
+        }
+        sizeClass.pages.clear();
+      }
+      locations = newLocations(MIN_INDEX_SIZE);
+      locationHashes = new int[MIN_INDEX_SIZE];
+      size = 0;
+    }
+  }
+
+  private int allocateChunk(SizeClass<K> sizeClass) {
+    if (sizeClass.freeChunk == NONE) {
+      if (numberOfFreePages > 0) {
+        numberOfFreePages--;
+        sizeClass.addPage(DirectMemory.allocate(PAGE_SIZE));
+      } else {
+        final SizeClass<K> oldestSizeClass = findSizeClassWithOldestEntry(sizeClass);
+        if (oldestSizeClass == sizeClass) {
+          evict(sizeClass, sizeClass.leastRecentlyUsedChunk);
+        } else {
+          sizeClass.addPage(takeLastPage(oldestSizeClass));
+        }
+      }
+    }
+    return sizeClass.takeFreeChunk();
+  }
+
+  // a class with pages but without entries is the best candidate since it gives away a page for free
+  private SizeClass<K> findSizeClassWithOldestEntry(SizeClass<K> requestingSizeClass) {
+    SizeClass<K> oldestSizeClass = null;
+    long oldestAccessTime = Long.MAX_VALUE;
+    for (SizeClass<K> sizeClass : sizeClasses) {
+      if (sizeClass.pages.isEmpty()) {
+        continue;
+      }
+      if (sizeClass.numberOfEntries == 0 && sizeClass != requestingSizeClass) {
+        return sizeClass;
+      }
+      final long accessTime = sizeClass.numberOfEntries == 0
+          ? Long.MAX_VALUE
+          : sizeClass.accessTimes[sizeClass.leastRecentlyUsedChunk];
+      if (oldestSizeClass == null || accessTime < oldestAccessTime) {
+        oldestSizeClass = sizeClass;
+        oldestAccessTime = accessTime;
+      }
+    }
+    return oldestSizeClass;
+  }
+
+  // all entries of the last page are evicted, so chunk ids of the remaining pages stay the same
+  private ByteBuffer takeLastPage(SizeClass<K> sizeClass) {
+    final int lastPageIndex = sizeClass.pages.size() - 1;
+    final int firstChunk = lastPageIndex * sizeClass.chunksPerPage;
+    for (int chunk = firstChunk; chunk < firstChunk + sizeClass.chunksPerPage; chunk++) {
+      if (sizeClass.keys[chunk] != null) {
+        evict(sizeClass, chunk);
+      }
+    }
+    return sizeClass.removeLastPage();
+  }
+
+  private void evict(SizeClass<K> sizeClass, int chunk) {
+    final Object key = sizeClass.keys[chunk];
+    removeLocation(findPosition(key, hash(key)));
+    sizeClass.free(chunk);
+  }
+
+  // O(1) time on average
+  private int findPosition(Object key, int hash) {
+    final int mask = locations.length - 1;
+    int position = hash & mask;
+    long location;
+    while ((location = locations[position]) != NO_LOCATION) {
+      if (locationHashes[position] == hash && keyAt(location).equals(key)) {
+        return position;
+      }
+      position = (position + 1) & mask;
+    }
+    return -1;
+  }
+
+  // O(1) amortized time, the key must not be in the index
+  private void insertLocation(int hash, long location) {
+    final int mask = locations.length - 1;
+    int position = hash & mask;
+    while (locations[position] != NO_LOCATION) {
+      position = (position + 1) & mask;
+    }
+    locations[position] = location;
+    locationHashes[position] = hash;
+    // the table is at most half full
+    if (++size > locations.length / 2) {
+      resizeIndex(locations.length * 2);
+    }
+  }
+
+  // backward shift deletion, see IntIntHashMap
+  // must be called before the key is cleared in its size class
+  private void removeLocation(int hole) {
+    final int mask = locations.length - 1;
+    int position = hole;
+    while (true) {
+      position = (position + 1) & mask;
+      if (locations[position] == NO_LOCATION) {
+        locations[hole] = NO_LOCATION;
+        break;
+      }
+      final int idealPosition = locationHashes[position] & mask;
+      // the location can be moved only if the hole lies between its ideal position and its current position
+      if (((position - idealPosition) & mask) >= ((position - hole) & mask)) {
+        locations[hole] = locations[position];
+        locationHashes[hole] = locationHashes[position];
+        hole = position;
+      }
+    }
+    size--;
+  }
+
+  private void resizeIndex(int newSize) {
+    final long[] oldLocations = locations;
+    final int[] oldHashes = locationHashes;
+    locations = newLocations(newSize);
+    locationHashes = new int[newSize];
+    final int mask = newSize - 1;
+    for (int oldPosition = 0; oldPosition < oldLocations.length; oldPosition++) {
+      if (oldLocations[oldPosition] != NO_LOCATION) {
+        int position = oldHashes[oldPosition] & mask;
+        while (locations[position] != NO_LOCATION) {
+          position = (position + 1) & mask;
+        }
+        locations[position] = oldLocations[oldPosition];
+        locationHashes[position] = oldHashes[oldPosition];
+      }
+    }
+  }
+
+  private Object keyAt(long location) {
+    return sizeClasses[(int) (location >>> 32)].keys[(int) location];
+  }
+
+  private static int hash(Object key) {
+    final int hash = key.hashCode() * INT_PHI;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static long[] newLocations(int size) {
+    final long[] locations = new long[size];
+    Arrays.fill(locations, NO_LOCATION);
+    return locations;
+  }
+
+  // the classes are sorted by chunk size, so binary search finds the smallest one that fits
+  private int sizeClassIndex(int length) {
+    int low = 0;
+    int high = sizeClasses.length - 1;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (sizeClasses[middle].chunkSize < length) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private void checkNotClosed() {
+    if (isClosed) {
+      throw new IllegalStateException("Cache is closed");
+    }
+  }
+
+  private static <K> SizeClass<K>[] createSizeClasses(int maxValueSize) {
+    final List<SizeClass<K>> sizeClasses = new ArrayList<>();
+    int chunkSize = Math.min(MIN_CHUNK_SIZE, maxValueSize);
+    while (chunkSize < maxValueSize) {
+      sizeClasses.add(new SizeClass<>(chunkSize));
+      // chunks are aligned to 8 bytes
+      chunkSize = (int) Math.min(((long) (chunkSize * GROWTH_FACTOR) + 7) & ~7L, maxValueSize);
+    }
+    sizeClasses.add(new SizeClass<>(maxValueSize));
+    return sizeClasses.toArray((SizeClass<K>[]) new SizeClass[0]);
+  }
+
+  // chunk ids go through all pages of the class: the chunk c is located in the page c / chunksPerPage
+  // a chunk is either in the LRU list (if it holds an entry) or in the list of free chunks
+  // both lists use the same arrays of links
+  // the arrays grow and shrink geometrically, so adding and removing pages takes O(chunksPerPage) amortized time
+  private static class SizeClass<K> {
+    private final int chunkSize;
+    private final int chunksPerPage;
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    private int[] previousChunks = new int[0];
+    private int[] nextChunks = new int[0];
+    private int[] lengths = new int[0];
+    private long[] accessTimes = new long[0];
+    // null for free chunks
+    private Object[] keys = new Object[0];
+    private int leastRecentlyUsedChunk = NONE;
+    private int mostRecentlyUsedChunk = NONE;
+    private int freeChunk = NONE;
+    private int numberOfEntries;
+    // the number of chunks in all pages, the arrays might be longer
+    private int numberOfChunks;
+
+    SizeClass(int chunkSize) {
+      this.chunkSize = chunkSize;
+      this.chunksPerPage = PAGE_SIZE / chunkSize;
+    }
+
+    void addPage(ByteBuffer page) {
+      final int firstChunk = numberOfChunks;
+      pages.add(page);
+      numberOfChunks += chunksPerPage;
+      if (numberOfChunks > keys.length) {
+        resizeChunkArrays(Math.max(numberOfChunks, 2 * keys.length));
+      }
+      for (int chunk = firstChunk; chunk < numberOfChunks; chunk++) {
+        pushFreeChunk(chunk);
+      }
+    }
+
+    // all chunks of the last page must be free
+    ByteBuffer removeLastPage() {
+      final int firstChunk = (pages.size() - 1) * chunksPerPage;
+      for (int chunk = firstChunk; chunk < firstChunk + chunksPerPage; chunk++) {
+        unlink(chunk, true);
+      }
+      numberOfChunks = firstChunk;
+      if (numberOfChunks < keys.length / 4) {
+        resizeChunkArrays(keys.length / 2);
+      }
+      return pages.remove(pages.size() - 1);
+    }
+
+    private void resizeChunkArrays(int capacity) {
+      previousChunks = Arrays.copyOf(previousChunks, capacity);
+      nextChunks = Arrays.copyOf(nextChunks, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
+      accessTimes = Arrays.copyOf(accessTimes, capacity);
+      keys = Arrays.copyOf(keys, capacity);
+    }
+
+    int takeFreeChunk() {
+      final int chunk = freeChunk;
+      unlink(chunk, true);
+      return chunk;
+    }
+
+    void write(int chunk, K key, byte[] value, long accessTime) {
+      final ByteBuffer page = pages.get(chunk / chunksPerPage).duplicate();
+      page.position((chunk % chunksPerPage) * chunkSize);
+      page.put(value);
+      keys[chunk] = key;
+      lengths[chunk] = value.length;
+      accessTimes[chunk] = accessTime;
+      linkLast(chunk);
+      numberOfEntries++;
+    }
+
+    ByteBuffer view(int chunk) {
+      final ByteBuffer page = pages.get(chunk / chunksPerPage).duplicate();
+      final int offset = (chunk % chunksPerPage) * chunkSize;
+      page.limit(offset + lengths[chunk]);
+      page.position(offset);
+      return page.slice().asReadOnlyBuffer();
+    }
+
+    void free(int chunk) {
+      unlink(chunk, false);
+      keys[chunk] = null;
+      numberOfEntries--;
+      pushFreeChunk(chunk);
+    }
+
+    void markAsMostRecentlyUsed(int chunk, long accessTime) {
+      accessTimes[chunk] = accessTime;
+      if (chunk != mostRecentlyUsedChunk) {
+        unlink(chunk, false);
+        linkLast(chunk);
+      }
+    }
+
+    private void linkLast(int chunk) {
+      previousChunks[chunk] = mostRecentlyUsedChunk;
+      nextChunks[chunk] = NONE;
+      if (mostRecentlyUsedChunk == NONE) {
+        leastRecentlyUsedChunk = chunk;
+      } else {
+        nextChunks[mostRecentlyUsedChunk] = chunk;
+      }
+      mostRecentlyUsedChunk = chunk;
+    }
+
+    private void pushFreeChunk(int chunk) {
+      previousChunks[chunk] = NONE;
+      nextChunks[chunk] = freeChunk;
+      if (freeChunk != NONE) {
+        previousChunks[freeChunk] = chunk;
+      }
+      freeChunk = chunk;
+    }
+
+    private void unlink(int chunk, boolean isFree) {
+      final int previousChunk = previousChunks[chunk];
+      final int nextChunk = nextChunks[chunk];
+      if (previousChunk != NONE) {
+        nextChunks[previousChunk] = nextChunk;
+      } else if (isFree) {
+        freeChunk = nextChunk;
+      } else {
+        leastRecentlyUsedChunk = nextChunk;
+      }
+      if (nextChunk != NONE) {
+        previousChunks[nextChunk] = previousChunk;
+      } else if (!isFree) {
+        mostRecentlyUsedChunk = previousChunk;
+      }
+    }
+  }
+
+}
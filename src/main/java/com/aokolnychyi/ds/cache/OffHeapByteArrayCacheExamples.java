@@ -0,0 +1,63 @@
+package com.aokolnychyi.ds.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class OffHeapByteArrayCacheExamples {
+
+  private static final long MAX_MEMORY = 64L << 20;
+  private static final int NUMBER_OF_KEYS = 200_000;
+
+  public static void main(String[] args) {
+    try (OffHeapByteArrayCache<String> cache = new OffHeapByteArrayCache<>(MAX_MEMORY)) {
+      cache.add("greeting", "hello".getBytes(StandardCharsets.UTF_8));
+      cache.add("farewell", "goodbye".getBytes(StandardCharsets.UTF_8));
+      System.out.println("greeting: " + asString(cache.get("greeting")));
+      System.out.println("farewell: " + asString(cache.get("farewell")));
+      cache.add("greeting", "hi".getBytes(StandardCharsets.UTF_8));
+      System.out.println("greeting after the update: " + asString(cache.get("greeting")));
+      cache.remove("farewell");
+      System.out.println("farewell after the removal: " + cache.get("farewell"));
+
+      // the view shares memory with the cache, so writing through it is not allowed
+      try {
+        cache.get("greeting").put((byte) 0);
+      } catch (java.nio.ReadOnlyBufferException e) {
+        System.out.println("Views are read-only");
+      }
+    }
+
+    // values from 100 bytes to 64 KB, several times more data than fits into the cache
+    try (OffHeapByteArrayCache<Integer> cache = new OffHeapByteArrayCache<>(MAX_MEMORY)) {
+      final Random random = new Random(42);
+      final long startTime = System.nanoTime();
+      long totalBytes = 0;
+      for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+        final byte[] value = new byte[random.nextInt(10) == 0 ? 1_024 + random.nextInt(64 * 1_024) : 100 + random.nextInt(1_000)];
+        value[0] = (byte) key;
+        cache.add(key, value);
+        totalBytes += value.length;
+      }
+      System.out.printf("Added %d MB in %d ms, %d entries stay in %d MB of direct memory%n",
+          totalBytes >> 20, (System.nanoTime() - startTime) / 1_000_000, cache.size(), cache.allocatedMemory() >> 20);
+
+      int hits = 0;
+      boolean allCorrect = true;
+      for (int key = NUMBER_OF_KEYS - 10_000; key < NUMBER_OF_KEYS; key++) {
+        final ByteBuffer view = cache.get(key);
+        if (view != null) {
+          hits++;
+          allCorrect &= view.get(0) == (byte) key;
+        }
+      }
+      System.out.println("Hits among the last 10000 keys: " + hits + ", all correct: " + allCorrect);
+    }
+  }
+
+  private static String asString(ByteBuffer view) {
+    final byte[] bytes = new byte[view.remaining()];
+    view.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,81 @@
+package com.aokolnychyi.ds.cache;
+
+// maps keys to slots of a fixed array that is owned by a cache, the keys themselves stay in that array
+// an open-addressing table with linear probing like IntIntHashMap, it stores slot + 1 (0 marks a free position)
+// there are no per-entry objects, so adding and removing keys never allocate
+final class SlotIndex {
+
+  private static final int INT_PHI = 0x9E3779B9;
+  private static final int FREE = 0;
+
+  private final Object[] keys;
+  private final int[] table;
+  private final int mask;
+
+  // the table is at most half full when every slot is taken
+  SlotIndex(Object[] keys) {
+    this.keys = keys;
+    final int tableSize = Math.max(2, Integer.highestOneBit(Math.max(1, keys.length) * 2 - 1) << 1);
+    this.table = new int[tableSize];
+    this.mask = tableSize - 1;
+  }
+
+  // O(1) time on average, returns the slot of the key or -1
+  int find(Object key) {
+    final int position = positionOf(key);
+    return position < 0 ? -1 : table[position] - 1;
+  }
+
+  // O(1) time on average, the key must already be in its slot of the keys array and must not be indexed yet
+  void insert(int slot) {
+    int position = mix(keys[slot].hashCode()) & mask;
+    while (table[position] != FREE) {
+      position = (position + 1) & mask;
+    }
+    table[position] = slot + 1;
+  }
+
+  // O(1) time on average, must be called before the key is cleared from the keys array
+  void remove(Object key) {
+    final int position = positionOf(key);
+    if (position >= 0) {
+      shiftSlots(position);
+    }
+  }
+
+  private int positionOf(Object key) {
+    int position = mix(key.hashCode()) & mask;
+    int slot;
+    while ((slot = table[position]) != FREE) {
+      if (keys[slot - 1].equals(key)) {
+        return position;
+      }
+      position = (position + 1) & mask;
+    }
+    return -1;
+  }
+
+  // backward shift deletion, see IntIntHashMap
+  private void shiftSlots(int hole) {
+    int position = hole;
+    while (true) {
+      position = (position + 1) & mask;
+      final int slot = table[position];
+      if (slot == FREE) {
+        table[hole] = FREE;
+        return;
+      }
+      final int idealPosition = mix(keys[slot - 1].hashCode()) & mask;
+      // the slot can be moved only if the hole lies between its ideal position and its current position
+      if (((position - idealPosition) & mask) >= ((position - hole) & mask)) {
+        table[hole] = slot;
+        hole = position;
+      }
+    }
+  }
+
+  private static int mix(int hash) {
+    final int mixedHash = hash * INT_PHI;
+    return mixedHash ^ (mixedHash >>> 16);
+  }
+}
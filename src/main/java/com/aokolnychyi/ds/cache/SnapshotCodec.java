@@ -0,0 +1,67 @@
+package com.aokolnychyi.ds.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// writes keys and values of a cache into a snapshot and reads them back
+// a codec must read exactly the bytes that it wrote, since entries follow each other without separators
+public interface SnapshotCodec<T> {
+
+  void write(DataOutput out, T value) throws IOException;
+
+  T read(DataInput in) throws IOException;
+
+  SnapshotCodec<Long> LONG = new SnapshotCodec<Long>() {
+    @Override
+    public void write(DataOutput out, Long value) throws IOException {
+      out.writeLong(value);
+    }
+
+    @Override
+    public Long read(DataInput in) throws IOException {
+      return in.readLong();
+    }
+  };
+
+  SnapshotCodec<Integer> INTEGER = new SnapshotCodec<Integer>() {
+    @Override
+    public void write(DataOutput out, Integer value) throws IOException {
+      out.writeInt(value);
+    }
+
+    @Override
+    public Integer read(DataInput in) throws IOException {
+      return in.readInt();
+    }
+  };
+
+  // the length and the UTF-8 bytes, writeUTF is not used since it is limited to 64 KB
+  SnapshotCodec<String> STRING = new SnapshotCodec<String>() {
+    @Override
+    public void write(DataOutput out, String value) throws IOException {
+      BYTE_ARRAY.write(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String read(DataInput in) throws IOException {
+      return new String(BYTE_ARRAY.read(in), StandardCharsets.UTF_8);
+    }
+  };
+
+  SnapshotCodec<byte[]> BYTE_ARRAY = new SnapshotCodec<byte[]>() {
+    @Override
+    public void write(DataOutput out, byte[] value) throws IOException {
+      out.writeInt(value.length);
+      out.write(value);
+    }
+
+    @Override
+    public byte[] read(DataInput in) throws IOException {
+      final byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return bytes;
+    }
+  };
+}
@@ -0,0 +1,51 @@
+package com.aokolnychyi.ds.cache;
+
+// accumulates the statistics of a cache
+// the implementations must be thread-safe, the methods are called on every operation, so they must be cheap
+public interface StatsCounter {
+
+  void recordHit();
+
+  void recordMiss();
+
+  void recordEvictions(int count);
+
+  void recordLoadSuccess(long loadTimeNanos);
+
+  void recordLoadFailure(long loadTimeNanos);
+
+  void recordLatency(Operation operation, long latencyNanos);
+
+  // a counter that ignores everything, so a cache without statistics does not pay for them
+  static StatsCounter disabled() {
+    return DisabledStatsCounter.INSTANCE;
+  }
+
+  enum Operation {
+    GET, ADD, INVALIDATE
+  }
+
+  final class DisabledStatsCounter implements StatsCounter {
+    private static final DisabledStatsCounter INSTANCE = new DisabledStatsCounter();
+
+    private DisabledStatsCounter() {}
+
+    @Override
+    public void recordHit() {}
+
+    @Override
+    public void recordMiss() {}
+
+    @Override
+    public void recordEvictions(int count) {}
+
+    @Override
+    public void recordLoadSuccess(long loadTimeNanos) {}
+
+    @Override
+    public void recordLoadFailure(long loadTimeNanos) {}
+
+    @Override
+    public void recordLatency(Operation operation, long latencyNanos) {}
+  }
+}
@@ -0,0 +1,138 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.function.Consumer;
+
+// a hierarchical timing wheel (Varghese and Lauck) like the one in Caffeine
+// every level is an array of buckets, each bucket is a circular doubly linked list of timers
+// a timer goes into the finest level whose span covers the time left until its expiration:
+// level 0 has 64 buckets of ~1 second, level 1 has 64 buckets of ~1 minute, level 2 has 32 buckets of ~1 hour,
+// level 3 has 4 buckets of ~1.6 days and level 4 has one bucket for everything beyond ~6.5 days
+// as time passes, the buckets of coarse levels are emptied and their timers move to finer levels
+// scheduling and cancelling take O(1) time, advancing takes time proportional to the number of processed timers
+final class TimerWheel<T extends TimerWheel.Timer> {
+
+  // the number of buckets and the duration of one bucket (a power of two in nanoseconds) per level
+  private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+  private static final long[] SPANS = {1L << 30, 1L << 36, 1L << 42, 1L << 47, 1L << 49, 1L << 49};
+  private static final long[] SHIFTS = {30, 36, 42, 47, 49};
+
+  private final Timer[][] wheel;
+  // the time up to which the wheel has been advanced
+  private long currentTime;
+
+  TimerWheel(long currentTime) {
+    this.currentTime = currentTime;
+    this.wheel = new Timer[BUCKETS.length][];
+    for (int level = 0; level < BUCKETS.length; level++) {
+      wheel[level] = new Timer[BUCKETS[level]];
+      for (int bucketIndex = 0; bucketIndex < BUCKETS[level]; bucketIndex++) {
+        wheel[level][bucketIndex] = new Sentinel();
+      }
+    }
+  }
+
+  // O(1) time
+  void schedule(T timer) {
+    final Timer sentinel = findBucket(timer.expirationTime);
+    link(sentinel, timer);
+  }
+
+  // O(1) time
+  void reschedule(T timer) {
+    if (timer.nextTimer != null) {
+      unlink(timer);
+    }
+    schedule(timer);
+  }
+
+  // O(1) time, does nothing if the timer is not scheduled
+  void cancel(T timer) {
+    if (timer.nextTimer != null) {
+      unlink(timer);
+    }
+  }
+
+  // processes all buckets whose time has come
+  // timers that have expired are passed to the listener, the rest are rescheduled to finer levels
+  void advance(long time, Consumer<T> expirationListener) {
+    final long previousTime = currentTime;
+    currentTime = time;
+    for (int level = 0; level < SHIFTS.length; level++) {
+      final long previousTicks = previousTime >>> SHIFTS[level];
+      final long currentTicks = time >>> SHIFTS[level];
+      // coarser levels cannot have new buckets to process if this one does not
+      if (currentTicks - previousTicks <= 0) {
+        break;
+      }
+      expire(level, previousTicks, currentTicks - previousTicks, expirationListener);
+    }
+  }
+
+  private void expire(int level, long previousTicks, long delta, Consumer<T> expirationListener) {
+    final Timer[] buckets = wheel[level];
+    final int mask = buckets.length - 1;
+    // the bucket of the previous tick might have timers that expired since the last advance
+    final int steps = (int) Math.min(delta + 1, buckets.length);
+    final int start = (int) (previousTicks & mask);
+    for (int step = 0; step < steps; step++) {
+      final Timer sentinel = buckets[(start + step) & mask];
+      Timer timer = sentinel.nextTimer;
+      // detach the whole bucket, so the timers can be rescheduled into it if needed
+      sentinel.previousTimer = sentinel;
+      sentinel.nextTimer = sentinel;
+      while (timer != sentinel) {
+        final Timer nextTimer = timer.nextTimer;
+        timer.previousTimer = null;
+        timer.nextTimer = null;
+        if (timer.expirationTime - currentTime <= 0) {
+          expirationListener.accept((T) timer);
+        } else {
+          link(findBucket(timer.expirationTime), timer);
+        }
+        timer = nextTimer;
+      }
+    }
+  }
+
+  private Timer findBucket(long expirationTime) {
+    final long duration = expirationTime - currentTime;
+    final int lastLevel = wheel.length - 1;
+    for (int level = 0; level < lastLevel; level++) {
+      if (duration < SPANS[level + 1]) {
+        final long ticks = expirationTime >>> SHIFTS[level];
+        return wheel[level][(int) (ticks & (wheel[level].length - 1))];
+      }
+    }
+    return wheel[lastLevel][0];
+  }
+
+  // appends the timer to the end of the bucket
+  private static void link(Timer sentinel, Timer timer) {
+    timer.previousTimer = sentinel.previousTimer;
+    timer.nextTimer = sentinel;
+    sentinel.previousTimer.nextTimer = timer;
+    sentinel.previousTimer = timer;
+  }
+
+  private static void unlink(Timer timer) {
+    timer.previousTimer.nextTimer = timer.nextTimer;
+    timer.nextTimer.previousTimer = timer.previousTimer;
+    timer.previousTimer = null;
+    timer.nextTimer = null;
+  }
+
+  // the links are null if the timer is not scheduled
+  abstract static class Timer {
+    Timer previousTimer;
+    Timer nextTimer;
+    long expirationTime;
+  }
+
+  // the head of a bucket, an empty bucket points to itself
+  private static final class Sentinel extends Timer {
+    Sentinel() {
+      previousTimer = this;
+      nextTimer = this;
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// a cache with the W-TinyLFU policy (Einziger, Friedman, Manes)
+// new entries go into a small LRU window (1% of the capacity), which absorbs bursts of recent keys
+// the rest is the main region, which is a segmented LRU with a probation and a protected segment
+// entries that leave the window must win against the LRU entry of the probation segment to stay:
+// the one with the higher estimated frequency survives, so a scan of cold keys cannot wipe out popular ones
+// entries that are accessed again in the probation segment are promoted to the protected segment (80% of main)
+public class TinyLFUCache<K, V> implements Cache<K, V> {
+
+  private static final double WINDOW_PERCENTAGE = 0.01;
+  private static final double PROTECTED_PERCENTAGE = 0.8;
+
+  private final Map<K, Node<K, V>> keyNodeMap;
+  private final FrequencySketch<K> sketch;
+  private final int maxCapacity;
+  private final int maxWindowSize;
+  private final int maxProtectedSize;
+  private final NodeList<K, V> window = new NodeList<>();
+  private final NodeList<K, V> probation = new NodeList<>();
+  private final NodeList<K, V> protectedSegment = new NodeList<>();
+
+  public TinyLFUCache(int initialCapacity, int maxCapacity) {
+    if (maxCapacity <= 0) {
+      throw new IllegalArgumentException("Max capacity must be positive");
+    }
+    this.keyNodeMap = new HashMap<>(initialCapacity);
+    this.sketch = new FrequencySketch<>(maxCapacity);
+    this.maxCapacity = maxCapacity;
+    this.maxWindowSize = Math.max(1, (int) (maxCapacity * WINDOW_PERCENTAGE));
+    this.maxProtectedSize = (int) ((maxCapacity - maxWindowSize) * PROTECTED_PERCENTAGE);
+  }
+
+  // O(1) time if no collisions
+  @Override
+  public V get(K key) {
+    // misses are counted as well, so a key that is requested often gets admitted once it is added
+    sketch.increment(key);
+    final Node<K, V> node = keyNodeMap.get(key);
+    if (node == null) {
+      return null;
+    }
+    onAccess(node);
+    return node.value;
+  }
+
+  // O(1) time if no collisions
+  @Override
+  public void add(K key, V value) {
+    sketch.increment(key);
+    final Node<K, V> existingNode = keyNodeMap.get(key);
+    if (existingNode != null) {
+      existingNode.value = value;
+      onAccess(existingNode);
+      return;
+    }
+
+    final Node<K, V> newNode = new Node<>(key, value);
+    keyNodeMap.put(key, newNode);
+    window.linkLast(newNode, Segment.WINDOW);
+
+    if (window.size > maxWindowSize) {
+      // the LRU entry of the window becomes a candidate for the main region
+      final Node<K, V> candidate = window.leastRecentlyUsedNode;
+      window.unlink(candidate);
+      probation.linkLast(candidate, Segment.PROBATION);
+      if (keyNodeMap.size() > maxCapacity) {
+        evict(candidate);
+      }
+    }
+  }
+
+  // O(1) time if no collisions
+  public void remove(K key) {
+    final Node<K, V> removedNode = keyNodeMap.remove(key);
+    if (removedNode != null) {
+      listOf(removedNode).unlink(removedNode);
+    }
+  }
+
+  @Override
+  public void invalidate(K key) {
+    remove(key);
+  }
+
+  // O(1) time if no collisions, does not count as an access in the frequency sketch
+  @Override
+  public boolean containsKey(K key) {
+    return keyNodeMap.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return keyNodeMap.size();
+  }
+
+  private void onAccess(Node<K, V> node) {
+    if (node.segment == Segment.WINDOW) {
+      window.moveToEnd(node);
+    } else if (node.segment == Segment.PROBATION) {
+      probation.unlink(node);
+      protectedSegment.linkLast(node, Segment.PROTECTED);
+      // the protected segment is full, so its LRU entry gets another chance in the probation segment
+      if (protectedSegment.size > maxProtectedSize) {
+        final Node<K, V> demotedNode = protectedSegment.leastRecentlyUsedNode;
+        protectedSegment.unlink(demotedNode);
+        probation.linkLast(demotedNode, Segment.PROBATION);
+      }
+    } else {
+      protectedSegment.moveToEnd(node);
+    }
+  }
+
+  // the candidate is the most recently used entry of the probation segment,
+  // the victim is the least recently used one
+  private void evict(Node<K, V> candidate) {
+    Node<K, V> victim = probation.leastRecentlyUsedNode;
+    if (victim == candidate) {
+      // the probation segment has no other entries, so the victim comes from the protected segment
+      victim = protectedSegment.leastRecentlyUsedNode;
+    }
+
+    final Node<K, V> evictedNode;
+    if (victim == null) {
+      evictedNode = candidate;
+    } else {
+      // ties favor the victim since it has already proved useful while the candidate has not
+      evictedNode = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+    }
+    listOf(evictedNode).unlink(evictedNode);
+    keyNodeMap.remove(evictedNode.key);
+  }
+
+  private NodeList<K, V> listOf(Node<K, V> node) {
+    switch (node.segment) {
+      case WINDOW:
+        return window;
+      case PROBATION:
+        return probation;
+      default:
+        return protectedSegment;
+    }
+  }
+
+  private enum Segment {
+    WINDOW, PROBATION, PROTECTED
+  }
+
+  private static class Node<K, V> {
+    private final K key;
+    private V value;
+    private Segment segment;
+    private Node<K, V> previousNode;
+    private Node<K, V> nextNode;
+
+    Node(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  // the same doubly linked list as in EfficientLRUCache, the head is the least recently used node
+  private static class NodeList<K, V> {
+    private Node<K, V> leastRecentlyUsedNode;
+    private Node<K, V> mostRecentlyUsedNode;
+    private int size;
+
+    void linkLast(Node<K, V> node, Segment segment) {
+      node.segment = segment;
+      node.previousNode = mostRecentlyUsedNode;
+      node.nextNode = null;
+      if (mostRecentlyUsedNode == null) {
+        leastRecentlyUsedNode = node;
+      } else {
+        mostRecentlyUsedNode.nextNode = node;
+      }
+      mostRecentlyUsedNode = node;
+      size++;
+    }
+
+    void unlink(Node<K, V> node) {
+      final Node<K, V> previousNode = node.previousNode;
+      final Node<K, V> nextNode = node.nextNode;
+      if (previousNode == null) {
+        leastRecentlyUsedNode = nextNode;
+      } else {
+        previousNode.nextNode = nextNode;
+      }
+      if (nextNode == null) {
+        mostRecentlyUsedNode = previousNode;
+      } else {
+        nextNode.previousNode = previousNode;
+      }
+      node.previousNode = null;
+      node.nextNode = null;
+      size--;
+    }
+
+    void moveToEnd(Node<K, V> node) {
+      if (node != mostRecentlyUsedNode) {
+        unlink(node);
+        linkLast(node, node.segment);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,82 @@
+package com.aokolnychyi.ds.cache;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TinyLFUCacheExamples {
+
+  private static final int NUMBER_OF_POPULAR_KEYS = 100_000;
+  private static final int NUMBER_OF_ACCESSES = 2_000_000;
+  private static final int CACHE_CAPACITY = 2_000;
+  // every 10_000 accesses, there is a scan of 5_000 keys that are never requested again
+  private static final int SCAN_PERIOD = 10_000;
+  private static final int SCAN_LENGTH = 5_000;
+
+  public static void main(String[] args) {
+    final TinyLFUCache<Integer, String> cache = new TinyLFUCache<>(0, 3);
+    cache.add(1, "1");
+    cache.add(2, "2");
+    cache.add(3, "3");
+    System.out.println("1: " + cache.get(1));
+    System.out.println("2: " + cache.get(2));
+    System.out.println("3: " + cache.get(3));
+    System.out.println("1: " + cache.get(1));
+    System.out.println("2: " + cache.get(2));
+    // 4 pushes 3 out of the window, 3 is less popular than 1 and 2, so 3 is evicted
+    System.out.println("After the addition of 4");
+    cache.add(4, "4");
+    System.out.println("3: " + cache.get(3));
+    System.out.println("4: " + cache.get(4));
+    System.out.println("1: " + cache.get(1));
+    System.out.println("2: " + cache.get(2));
+    cache.remove(1);
+    System.out.println("After the removal of 1");
+    System.out.println("1: " + cache.get(1));
+    System.out.println("Size: " + cache.size());
+
+    // a Zipf-like distribution of popular keys mixed with scans
+    final int[] trace = generateTrace(new Random(42));
+    final EfficientLRUCache<Integer, Integer> lruCache = new EfficientLRUCache<>(CACHE_CAPACITY, CACHE_CAPACITY);
+    final TinyLFUCache<Integer, Integer> tinyLFUCache = new TinyLFUCache<>(CACHE_CAPACITY, CACHE_CAPACITY);
+    int lruHits = 0;
+    int tinyLFUHits = 0;
+    for (int key : trace) {
+      if (lruCache.get(key) != null) {
+        lruHits++;
+      } else {
+        lruCache.add(key, key);
+      }
+      if (tinyLFUCache.get(key) != null) {
+        tinyLFUHits++;
+      } else {
+        tinyLFUCache.add(key, key);
+      }
+    }
+    System.out.printf("Hit ratio with %d entries: LRU %.1f%%, W-TinyLFU %.1f%%%n",
+        CACHE_CAPACITY, 100.0 * lruHits / trace.length, 100.0 * tinyLFUHits / trace.length);
+  }
+
+  private static int[] generateTrace(Random random) {
+    // the cumulative distribution of keys, where the key k is accessed with probability proportional to 1 / k
+    final double[] cumulativeWeights = new double[NUMBER_OF_POPULAR_KEYS];
+    double totalWeight = 0;
+    for (int key = 0; key < NUMBER_OF_POPULAR_KEYS; key++) {
+      totalWeight += 1.0 / (key + 1);
+      cumulativeWeights[key] = totalWeight;
+    }
+
+    final int[] trace = new int[NUMBER_OF_ACCESSES];
+    int nextScanKey = NUMBER_OF_POPULAR_KEYS;
+    int index = 0;
+    while (index < NUMBER_OF_ACCESSES) {
+      for (int access = 0; access < SCAN_PERIOD && index < NUMBER_OF_ACCESSES; access++) {
+        final int position = Arrays.binarySearch(cumulativeWeights, random.nextDouble() * totalWeight);
+        trace[index++] = position >= 0 ? position : -position - 1;
+      }
+      for (int access = 0; access < SCAN_LENGTH && index < NUMBER_OF_ACCESSES; access++) {
+        trace[index++] = nextScanKey++;
+      }
+    }
+    return trace;
+  }
+}
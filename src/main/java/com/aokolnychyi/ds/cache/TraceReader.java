@@ -0,0 +1,163 @@
+package com.aokolnychyi.ds.cache;
+
+import com.aokolnychyi.ds.map.DirectMemory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// reads the keys of an access trace through memory-mapped chunks of the file
+// text traces have one request per line, the key is the first token of the line (other columns are ignored)
+// numeric keys are parsed as they are, any other key is hashed into a long with 64-bit FNV-1a
+// binary traces are sequences of big-endian 4-byte or 8-byte keys
+// parsing works directly on the mapped bytes, so no strings are created
+final class TraceReader implements AutoCloseable {
+
+  private static final long CHUNK_SIZE = 1L << 30;
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final FileChannel channel;
+  private final CacheSimulator.TraceFormat format;
+  private final long fileSize;
+  private MappedByteBuffer chunk;
+  // the offset of the current chunk in the file
+  private long chunkOffset;
+
+  TraceReader(Path file, CacheSimulator.TraceFormat format) {
+    this.format = format;
+    try {
+      this.channel = FileChannel.open(file, StandardOpenOption.READ);
+      this.fileSize = channel.size();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (format.recordSize > 0 && fileSize % format.recordSize != 0) {
+      throw new IllegalArgumentException("The size of a binary trace must be a multiple of " + format.recordSize);
+    }
+    map(0);
+  }
+
+  // fills the batch with the next keys, returns the number of keys or 0 at the end of the trace
+  int read(long[] batch) {
+    int count = 0;
+    while (count < batch.length) {
+      if (!chunk.hasRemaining()) {
+        if (chunkOffset + chunk.limit() >= fileSize) {
+          break;
+        }
+        map(chunkOffset + chunk.limit());
+      }
+      count = format == CacheSimulator.TraceFormat.TEXT ? readLines(batch, count) : readRecords(batch, count);
+    }
+    return count;
+  }
+
+  @Override
+  public void close() {
+    if (chunk != null) {
+      DirectMemory.release(chunk);
+      chunk = null;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private int readRecords(long[] batch, int count) {
+    while (count < batch.length && chunk.hasRemaining()) {
+      batch[count++] = format == CacheSimulator.TraceFormat.BINARY_LONG ? chunk.getLong() : chunk.getInt();
+    }
+    return count;
+  }
+
+  private int readLines(long[] batch, int count) {
+    final int limit = chunk.limit();
+    int position = chunk.position();
+    while (count < batch.length && position < limit) {
+      final int lineEnd = indexOf((byte) '\n', position, limit);
+      final boolean isLastLine = chunkOffset + limit == fileSize;
+      if (lineEnd == limit && !isLastLine) {
+        // the line continues in the next chunk, so the next chunk starts at this line
+        if (position == 0) {
+          throw new IllegalStateException("A line is longer than " + CHUNK_SIZE + " bytes");
+        }
+        chunk.position(position);
+        map(chunkOffset + position);
+        return count;
+      }
+      final int keyEnd = endOfKey(position, lineEnd);
+      if (keyEnd > position) {
+        batch[count++] = parseKey(position, keyEnd);
+      }
+      position = Math.min(lineEnd + 1, limit);
+    }
+    chunk.position(position);
+    return count;
+  }
+
+  private int indexOf(byte value, int from, int to) {
+    for (int index = from; index < to; index++) {
+      if (chunk.get(index) == value) {
+        return index;
+      }
+    }
+    return to;
+  }
+
+  // the key ends at the first whitespace (including '\r' of Windows line endings)
+  private int endOfKey(int from, int to) {
+    for (int index = from; index < to; index++) {
+      final byte value = chunk.get(index);
+      if (value == ' ' || value == '\t' || value == '\r' || value == ',') {
+        return index;
+      }
+    }
+    return to;
+  }
+
+  private long parseKey(int from, int to) {
+    final boolean isNegative = chunk.get(from) == '-';
+    final int firstDigit = isNegative ? from + 1 : from;
+    // 18 digits always fit into a long
+    if (firstDigit < to && to - firstDigit <= 18) {
+      long number = 0;
+      int index = firstDigit;
+      while (index < to) {
+        final int digit = chunk.get(index) - '0';
+        if (digit < 0 || digit > 9) {
+          break;
+        }
+        number = number * 10 + digit;
+        index++;
+      }
+      if (index == to) {
+        return isNegative ? -number : number;
+      }
+    }
+
+    long hash = FNV_OFFSET_BASIS;
+    for (int index = from; index < to; index++) {
+      hash ^= chunk.get(index) & 0xFF;
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+
+  private void map(long offset) {
+    final MappedByteBuffer previousChunk = chunk;
+    try {
+      chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(CHUNK_SIZE, fileSize - offset));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    chunkOffset = offset;
+    if (previousChunk != null) {
+      DirectMemory.release(previousChunk);
+    }
+  }
+}
@@ -4,7 +4,7 @@ import java.util.HashMap;
 import java.util.Objects;
 import java.util.TreeSet;
 
-public class TreeSetLRUCache<K, V> {
+public class TreeSetLRUCache<K, V> implements Cache<K, V> {
 
   private final HashMap<K, TimedValue> keyValueMap = new HashMap<>();
   private final TreeSet<TimedKey> timeKeySet = new TreeSet<>();
@@ -15,6 +15,7 @@ public class TreeSetLRUCache<K, V> {
   }
 
   // O(log n) time
+  @Override
   public V get(K key) {
     final TimedValue timedValue = keyValueMap.get(key);
     if (timedValue != null) {
@@ -46,6 +47,7 @@ public class TreeSetLRUCache<K, V> {
   }
 
   // O(log n) time
+  @Override
   public void add(K key, V value) {
     // remove if already exists
     remove(key);
@@ -63,6 +65,23 @@ public class TreeSetLRUCache<K, V> {
     timeKeySet.add(timedKey);
   }
 
+  // O(log n) time
+  @Override
+  public void invalidate(K key) {
+    remove(key);
+  }
+
+  // O(1) time if there is no collision
+  @Override
+  public boolean containsKey(K key) {
+    return keyValueMap.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return keyValueMap.size();
+  }
+
   // most likely O(n) but did not find any precision info about TreeSet#pollFirst
   private void removeLeastRecentlyUsed() {
     // tricky, ascending order
@@ -0,0 +1,14 @@
+package com.aokolnychyi.ds.cache;
+
+// computes how much space an entry takes, for instance, the number of bytes in its value
+// the weight is computed once when the entry is added, so it must not change afterwards
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+  int weigh(K key, V value);
+
+  // every entry weighs 1, so the max weight is the max number of entries
+  static <K, V> Weigher<K, V> singleton() {
+    return (key, value) -> 1;
+  }
+}
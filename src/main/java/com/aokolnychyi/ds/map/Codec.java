@@ -0,0 +1,64 @@
+package com.aokolnychyi.ds.map;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// converts keys and values into bytes for the maps that store them outside of the Java heap
+// equal objects must be encoded into equal bytes since stored keys are compared bytewise
+public interface Codec<T> {
+
+  byte[] encode(T value);
+
+  // reads the value from the buffer using absolute positions, the position of the buffer is not changed
+  T decode(ByteBuffer buffer, int offset, int length);
+
+  Codec<Long> LONG = new Codec<Long>() {
+    @Override
+    public byte[] encode(Long value) {
+      return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+
+    @Override
+    public Long decode(ByteBuffer buffer, int offset, int length) {
+      return readBigEndian(buffer, offset, length);
+    }
+  };
+
+  Codec<Integer> INTEGER = new Codec<Integer>() {
+    @Override
+    public byte[] encode(Integer value) {
+      return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+    }
+
+    @Override
+    public Integer decode(ByteBuffer buffer, int offset, int length) {
+      return (int) readBigEndian(buffer, offset, length);
+    }
+  };
+
+  Codec<String> STRING = new Codec<String>() {
+    @Override
+    public byte[] encode(String value) {
+      return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String decode(ByteBuffer buffer, int offset, int length) {
+      final byte[] bytes = new byte[length];
+      for (int index = 0; index < length; index++) {
+        bytes[index] = buffer.get(offset + index);
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  };
+
+  // the buffers might use the native byte order, so the bytes are combined explicitly
+  static long readBigEndian(ByteBuffer buffer, int offset, int length) {
+    long value = 0;
+    for (int index = 0; index < length; index++) {
+      value = (value << 8) | (buffer.get(offset + index) & 0xFF);
+    }
+    return value;
+  }
+
+}
@@ -0,0 +1,270 @@
+package com.aokolnychyi.ds.map;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// a lock-striped hash map similar to ConcurrentHashMap in Java 7
+// the map is split into stripes, each stripe is a small hash table guarded by its own lock
+// writers lock only one stripe, readers never lock and rely on volatile reads instead
+public class ConcurrentHashMap<K, V> {
+
+  private static final int DEFAULT_NUMBER_OF_STRIPES = 16;
+  private static final int DEFAULT_BUCKETS_PER_STRIPE = 16;
+  private static final float LOAD_FACTOR = 0.75f;
+  private static final int MAX_NUMBER_OF_STRIPES = 1 << 16;
+
+  private final Stripe<K, V>[] stripes;
+  // stripes are selected by the upper bits of the hash, buckets by the lower bits
+  private final int stripeShift;
+  private final int stripeMask;
+
+  public ConcurrentHashMap() {
+    this(DEFAULT_NUMBER_OF_STRIPES, DEFAULT_BUCKETS_PER_STRIPE);
+  }
+
+  public ConcurrentHashMap(int numberOfStripes, int bucketsPerStripe) {
+    if (numberOfStripes <= 0 || bucketsPerStripe <= 0) {
+      throw new IllegalArgumentException("Number of stripes and buckets must be positive");
+    }
+    final int stripeCount = roundUpToPowerOfTwo(Math.min(numberOfStripes, MAX_NUMBER_OF_STRIPES));
+    final int bucketCount = roundUpToPowerOfTwo(bucketsPerStripe);
+    this.stripes = (Stripe<K, V>[]) new Stripe[stripeCount];
+    for (int index = 0; index < stripeCount; index++) {
+      stripes[index] = new Stripe<>(bucketCount);
+    }
+    this.stripeShift = 32 - Integer.numberOfTrailingZeros(stripeCount);
+    this.stripeMask = stripeCount - 1;
+  }
+
+  // O(1) time on average, never blocks
+  public V get(K key) {
+    final int hash = spread(key.hashCode());
+    return stripeFor(hash).get(hash, key);
+  }
+
+  public boolean containsKey(K key) {
+    return get(key) != null;
+  }
+
+  // O(1) time on average, returns the previous value or null
+  public V put(K key, V value) {
+    checkNotNull(value);
+    final int hash = spread(key.hashCode());
+    return stripeFor(hash).put(hash, key, value, false);
+  }
+
+  // atomically puts the value if there is no mapping, returns the existing value or null
+  public V putIfAbsent(K key, V value) {
+    checkNotNull(value);
+    final int hash = spread(key.hashCode());
+    return stripeFor(hash).put(hash, key, value, true);
+  }
+
+  // O(1) time on average, returns the removed value or null
+  public V remove(K key) {
+    final int hash = spread(key.hashCode());
+    return stripeFor(hash).remove(hash, key);
+  }
+
+  // atomically computes a new value from the current one (null if absent)
+  // returning null from the function removes the mapping
+  // the function is called under the stripe lock, so it must be short and must not touch the map
+  public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    final int hash = spread(key.hashCode());
+    return stripeFor(hash).compute(hash, key, remappingFunction);
+  }
+
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    // skip locking if the value is already present
+    final V value = get(key);
+    if (value != null) return value;
+    return compute(key, (currentKey, currentValue) ->
+        currentValue != null ? currentValue : mappingFunction.apply(currentKey));
+  }
+
+  // atomically puts the value if absent or combines it with the current one
+  public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+    checkNotNull(value);
+    return compute(key, (currentKey, currentValue) ->
+        currentValue == null ? value : remappingFunction.apply(currentValue, value));
+  }
+
+  // the result might be stale if there are concurrent modifications
+  public int size() {
+    long size = 0;
+    for (Stripe<K, V> stripe : stripes) {
+      size += stripe.count;
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  private Stripe<K, V> stripeFor(int hash) {
+    return stripes[(hash >>> stripeShift) & stripeMask];
+  }
+
+  private static int spread(int hashCode) {
+    final int hash = hashCode * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int roundUpToPowerOfTwo(int value) {
+    return value == 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+
+  private static void checkNotNull(Object value) {
+    // null values are not supported since get() uses null to indicate that there is no mapping
+    if (value == null) {
+      throw new NullPointerException("Null values are not supported");
+    }
+  }
+
+  // extending ReentrantLock saves one object per stripe
+  private static class Stripe<K, V> extends ReentrantLock {
+    // readers see either the old or the new table, both are consistent
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+    private volatile int count;
+    private int threshold;
+
+    Stripe(int numberOfBuckets) {
+      this.table = new AtomicReferenceArray<>(numberOfBuckets);
+      this.threshold = (int) (numberOfBuckets * LOAD_FACTOR);
+    }
+
+    V get(int hash, K key) {
+      final AtomicReferenceArray<Node<K, V>> currentTable = table;
+      Node<K, V> node = currentTable.get(hash & (currentTable.length() - 1));
+      while (node != null) {
+        if (node.hash == hash && key.equals(node.key)) return node.value;
+        node = node.next;
+      }
+      return null;
+    }
+
+    V put(int hash, K key, V value, boolean onlyIfAbsent) {
+      lock();
+      try {
+        final AtomicReferenceArray<Node<K, V>> currentTable = table;
+        final int bucketIndex = hash & (currentTable.length() - 1);
+        final Node<K, V> firstNode = currentTable.get(bucketIndex);
+        for (Node<K, V> node = firstNode; node != null; node = node.next) {
+          if (node.hash == hash && key.equals(node.key)) {
+            final V previousValue = node.value;
+            if (!onlyIfAbsent) node.value = value;
+            return previousValue;
+          }
+        }
+        addFirst(currentTable, bucketIndex, new Node<>(hash, key, value, firstNode));
+        return null;
+      } finally {
+        unlock();
+      }
+    }
+
+    V remove(int hash, K key) {
+      lock();
+      try {
+        final AtomicReferenceArray<Node<K, V>> currentTable = table;
+        final int bucketIndex = hash & (currentTable.length() - 1);
+        Node<K, V> previousNode = null;
+        for (Node<K, V> node = currentTable.get(bucketIndex); node != null; node = node.next) {
+          if (node.hash == hash && key.equals(node.key)) {
+            unlink(currentTable, bucketIndex, previousNode, node);
+            return node.value;
+          }
+          previousNode = node;
+        }
+        return null;
+      } finally {
+        unlock();
+      }
+    }
+
+    V compute(int hash, K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+      lock();
+      try {
+        final AtomicReferenceArray<Node<K, V>> currentTable = table;
+        final int bucketIndex = hash & (currentTable.length() - 1);
+        final Node<K, V> firstNode = currentTable.get(bucketIndex);
+        Node<K, V> previousNode = null;
+        Node<K, V> node = firstNode;
+        while (node != null && !(node.hash == hash && key.equals(node.key))) {
+          previousNode = node;
+          node = node.next;
+        }
+
+        final V newValue = remappingFunction.apply(key, node != null ? node.value : null);
+        if (node == null) {
+          if (newValue != null) {
+            addFirst(currentTable, bucketIndex, new Node<>(hash, key, newValue, firstNode));
+          }
+        } else if (newValue != null) {
+          node.value = newValue;
+        } else {
+          unlink(currentTable, bucketIndex, previousNode, node);
+        }
+        return newValue;
+      } finally {
+        unlock();
+      }
+    }
+
+    // unlinking is safe for concurrent readers: they either see the node or skip it
+    private void unlink(
+        AtomicReferenceArray<Node<K, V>> currentTable,
+        int bucketIndex,
+        Node<K, V> previousNode,
+        Node<K, V> node) {
+
+      if (previousNode == null) {
+        currentTable.set(bucketIndex, node.next);
+      } else {
+        previousNode.next = node.next;
+      }
+      count--;
+    }
+
+    private void addFirst(AtomicReferenceArray<Node<K, V>> currentTable, int bucketIndex, Node<K, V> node) {
+      currentTable.set(bucketIndex, node);
+      if (++count > threshold) {
+        resize();
+      }
+    }
+
+    // called under the lock
+    // nodes are copied (not re-linked), so readers that still traverse the old table are not affected
+    private void resize() {
+      final AtomicReferenceArray<Node<K, V>> oldTable = table;
+      final int newLength = oldTable.length() * 2;
+      final AtomicReferenceArray<Node<K, V>> newTable = new AtomicReferenceArray<>(newLength);
+      for (int oldIndex = 0; oldIndex < oldTable.length(); oldIndex++) {
+        for (Node<K, V> node = oldTable.get(oldIndex); node != null; node = node.next) {
+          final int newIndex = node.hash & (newLength - 1);
+          newTable.set(newIndex, new Node<>(node.hash, node.key, node.value, newTable.get(newIndex)));
+        }
+      }
+      threshold = (int) (newLength * LOAD_FACTOR);
+      table = newTable;
+    }
+  }
+
+  private static class Node<K, V> {
+    private final int hash;
+    private final K key;
+    private volatile V value;
+    private volatile Node<K, V> next;
+
+    Node(int hash, K key, V value, Node<K, V> next) {
+      this.hash = hash;
+      this.key = key;
+      this.value = value;
+      this.next = next;
+    }
+  }
+
+}
@@ -0,0 +1,111 @@
+package com.aokolnychyi.ds.map;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrentHashMapExamples {
+
+  private static final int NUMBER_OF_KEYS = 100_000;
+  private static final int WRITE_PERCENTAGE = 10;
+  private static final long BENCHMARK_DURATION_MILLIS = 2_000;
+
+  public static void main(String[] args) throws InterruptedException {
+    final ConcurrentHashMap<String, Integer> map = new ConcurrentHashMap<>();
+    map.put("a", 1);
+    System.out.println("putIfAbsent a: " + map.putIfAbsent("a", 100));
+    System.out.println("putIfAbsent b: " + map.putIfAbsent("b", 2));
+    System.out.println("merge a: " + map.merge("a", 10, Integer::sum));
+    System.out.println("compute b: " + map.compute("b", (key, value) -> value == null ? 0 : value * 10));
+    System.out.println("compute c (removes nothing): " + map.compute("c", (key, value) -> null));
+    System.out.println("computeIfAbsent d: " + map.computeIfAbsent("d", String::length));
+    System.out.println("remove a: " + map.remove("a"));
+    System.out.println("get a: " + map.get("a") + ", get b: " + map.get("b") + ", size: " + map.size());
+
+    // concurrent increments must not be lost
+    final ConcurrentHashMap<Integer, Integer> counters = new ConcurrentHashMap<>();
+    final int numberOfThreads = Runtime.getRuntime().availableProcessors() * 2;
+    final Thread[] threads = new Thread[numberOfThreads];
+    for (int threadIndex = 0; threadIndex < numberOfThreads; threadIndex++) {
+      threads[threadIndex] = new Thread(() -> {
+        for (int iteration = 0; iteration < 100_000; iteration++) {
+          counters.merge(iteration % 100, 1, Integer::sum);
+        }
+      });
+      threads[threadIndex].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    System.out.println("Counter 0: " + counters.get(0) + " (expected " + numberOfThreads * 1000 + ")");
+
+    // throughput of the lock-striped map vs HashMap wrapped in a global lock
+    final ConcurrentHashMap<Integer, Integer> concurrentMap = new ConcurrentHashMap<>(64, 1024);
+    final HashMap<Integer, Integer> hashMap = new HashMap<>(NUMBER_OF_KEYS);
+    final Object globalLock = new Object();
+    for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+      concurrentMap.put(key, key);
+      hashMap.put(key, key);
+    }
+
+    for (int threadCount = 1; threadCount <= numberOfThreads; threadCount *= 2) {
+      final double synchronizedThroughput = benchmark(threadCount, (key, isWrite) -> {
+        synchronized (globalLock) {
+          if (isWrite) {
+            hashMap.put(key, key);
+          } else {
+            hashMap.get(key);
+          }
+        }
+      });
+      final double concurrentThroughput = benchmark(threadCount, (key, isWrite) -> {
+        if (isWrite) {
+          concurrentMap.put(key, key);
+        } else {
+          concurrentMap.get(key);
+        }
+      });
+      System.out.printf("%d threads: synchronized HashMap %.1f Mops/s, ConcurrentHashMap %.1f Mops/s%n",
+          threadCount, synchronizedThroughput, concurrentThroughput);
+    }
+  }
+
+  // returns millions of operations per second
+  private static double benchmark(int threadCount, Operation operation) throws InterruptedException {
+    final LongAdder operationCount = new LongAdder();
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final Thread[] threads = new Thread[threadCount];
+    final long deadline = System.currentTimeMillis() + BENCHMARK_DURATION_MILLIS;
+    for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+      threads[threadIndex] = new Thread(() -> {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+          startLatch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        long localCount = 0;
+        while (System.currentTimeMillis() < deadline) {
+          // check the deadline only once in a while
+          for (int iteration = 0; iteration < 1_000; iteration++) {
+            final int key = random.nextInt(NUMBER_OF_KEYS);
+            operation.apply(key, random.nextInt(100) < WRITE_PERCENTAGE);
+          }
+          localCount += 1_000;
+        }
+        operationCount.add(localCount);
+      });
+      threads[threadIndex].start();
+    }
+    startLatch.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return operationCount.sum() / (BENCHMARK_DURATION_MILLIS * 1_000.0);
+  }
+
+  private interface Operation {
+    void apply(int key, boolean isWrite);
+  }
+}
@@ -0,0 +1,349 @@
+package com.aokolnychyi.ds.map;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+// a concurrent bucketized cuckoo hash map (in the spirit of libcuckoo)
+// every key has two candidate buckets given by two hash functions, and every bucket has 4 slots
+// a lookup checks only these two buckets, so it is O(1) in the worst case, not only on average
+// the hashes of a bucket take 16 bytes, so the hashes of both buckets span at most two cache lines
+// (keys and values are dereferenced only for slots whose hash matches)
+//
+// readers never take locks: they read both buckets under optimistic stamps of the bucket stripes
+// and retry only if a writer modified one of the stripes in the meantime
+// writers are serialized by one lock (the map is meant for read-mostly workloads)
+// and lock the stripes of the buckets they modify
+// when both buckets are full, a breadth-first search finds a path of displacements that ends
+// in a free slot, then keys are moved along the path starting from its end
+// every move copies a key into a free slot before clearing the old one, so a key is never missing
+// if there is no short path, the table is copied into a table of twice the size
+// keys with equal hashes share both buckets in a table of any size, so at most 8 keys can have the same hash
+// (put fails fast with IllegalStateException for the 9th one, since growing the table would never make room)
+public class CuckooHashMap<K, V> {
+
+  private static final int SLOTS_PER_BUCKET = 4;
+  private static final int DEFAULT_EXPECTED_SIZE = 64;
+  private static final int MAX_NUMBER_OF_STRIPES = 2048;
+  // the number of buckets the search for a displacement path may visit
+  private static final int MAX_SEARCH_NODES = 2048;
+  private static final int MAX_NUMBER_OF_BUCKETS = 1 << 28;
+  // both buckets of a hash can be full of keys with this hash
+  private static final int MAX_KEYS_PER_HASH = 2 * SLOTS_PER_BUCKET;
+
+  private final ReentrantLock writerLock = new ReentrantLock();
+  // replaced as a whole on resize, readers of the old table see a consistent (frozen) state
+  private volatile Table table;
+  private volatile int size;
+
+  public CuckooHashMap() {
+    this(DEFAULT_EXPECTED_SIZE);
+  }
+
+  public CuckooHashMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Expected size must be non-negative: " + expectedSize);
+    }
+    final int requiredBuckets = Math.max(2, (expectedSize + SLOTS_PER_BUCKET - 1) / SLOTS_PER_BUCKET);
+    this.table = new Table(Integer.highestOneBit(Math.min(requiredBuckets, MAX_NUMBER_OF_BUCKETS) - 1) << 1);
+  }
+
+  // O(1) time in the worst case, never blocks
+  public V get(K key) {
+    final int hash = spread(key.hashCode());
+    final Table currentTable = table;
+    final int firstBucket = currentTable.firstBucket(hash);
+    final int secondBucket = currentTable.secondBucket(hash);
+    final StampedLock firstStripe = currentTable.stripeFor(firstBucket);
+    final StampedLock secondStripe = currentTable.stripeFor(secondBucket);
+    while (true) {
+      final long firstStamp = firstStripe.tryOptimisticRead();
+      final long secondStamp = secondStripe.tryOptimisticRead();
+      Object value = currentTable.findValue(firstBucket, hash, key);
+      if (value == null) {
+        value = currentTable.findValue(secondBucket, hash, key);
+      }
+      if (firstStripe.validate(firstStamp) && secondStripe.validate(secondStamp)) {
+        return (V) value;
+      }
+    }
+  }
+
+  public boolean containsKey(K key) {
+    return get(key) != null;
+  }
+
+  // O(1) amortized time, returns the previous value or null
+  public V put(K key, V value) {
+    if (value == null) {
+      throw new NullPointerException("Null values are not supported");
+    }
+    final int hash = spread(key.hashCode());
+    writerLock.lock();
+    try {
+      final Table currentTable = table;
+      final int slot = currentTable.findSlot(hash, key);
+      if (slot >= 0) {
+        final V previousValue = (V) currentTable.values[slot];
+        final StampedLock stripe = currentTable.stripeFor(slot / SLOTS_PER_BUCKET);
+        final long stamp = stripe.writeLock();
+        currentTable.values[slot] = value;
+        stripe.unlockWrite(stamp);
+        return previousValue;
+      }
+
+      if (currentTable.countKeysWithHash(hash) == MAX_KEYS_PER_HASH) {
+        throw new IllegalStateException(
+            "Cannot add " + key + ", there are already " + MAX_KEYS_PER_HASH + " keys with the same hash code");
+      }
+
+      while (!table.insert(hash, key, value)) {
+        table = table.resize();
+      }
+      size++;
+      return null;
+    } finally {
+      writerLock.unlock();
+    }
+  }
+
+  // O(1) time, returns the removed value or null
+  public V remove(K key) {
+    final int hash = spread(key.hashCode());
+    writerLock.lock();
+    try {
+      final Table currentTable = table;
+      final int slot = currentTable.findSlot(hash, key);
+      if (slot < 0) return null;
+
+      final V removedValue = (V) currentTable.values[slot];
+      final StampedLock stripe = currentTable.stripeFor(slot / SLOTS_PER_BUCKET);
+      final long stamp = stripe.writeLock();
+      currentTable.clearSlot(slot);
+      stripe.unlockWrite(stamp);
+      size--;
+      return removedValue;
+    } finally {
+      writerLock.unlock();
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  // the number of slots
+  public int capacity() {
+    return table.keys.length;
+  }
+
+  private static int spread(int hashCode) {
+    final int hash = hashCode * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static final class Table {
+
+    private final int[] hashes;
+    private final Object[] keys;
+    private final Object[] values;
+    private final StampedLock[] stripes;
+    private final int bucketMask;
+    private final int stripeMask;
+
+    private Table(int numberOfBuckets) {
+      this.hashes = new int[numberOfBuckets * SLOTS_PER_BUCKET];
+      this.keys = new Object[numberOfBuckets * SLOTS_PER_BUCKET];
+      this.values = new Object[numberOfBuckets * SLOTS_PER_BUCKET];
+      this.stripes = new StampedLock[Math.min(numberOfBuckets, MAX_NUMBER_OF_STRIPES)];
+      for (int index = 0; index < stripes.length; index++) {
+        stripes[index] = new StampedLock();
+      }
+      this.bucketMask = numberOfBuckets - 1;
+      this.stripeMask = stripes.length - 1;
+    }
+
+    // the two hash functions: the lower bits of the hash and the lower bits of its remix
+    private int firstBucket(int hash) {
+      return hash & bucketMask;
+    }
+
+    private int secondBucket(int hash) {
+      final int secondHash = Integer.rotateLeft(hash, 16) * 0x85EBCA6B;
+      final int bucket = (secondHash ^ (secondHash >>> 15)) & bucketMask;
+      // the buckets must differ, otherwise the key would have only one bucket
+      return bucket != firstBucket(hash) ? bucket : (bucket + 1) & bucketMask;
+    }
+
+    private int alternativeBucket(int bucket, int hash) {
+      final int firstBucket = firstBucket(hash);
+      return bucket == firstBucket ? secondBucket(hash) : firstBucket;
+    }
+
+    private StampedLock stripeFor(int bucket) {
+      return stripes[bucket & stripeMask];
+    }
+
+    // may observe a concurrent update, the caller must validate the stamps
+    private Object findValue(int bucket, int hash, Object key) {
+      final int firstSlot = bucket * SLOTS_PER_BUCKET;
+      for (int slot = firstSlot; slot < firstSlot + SLOTS_PER_BUCKET; slot++) {
+        if (hashes[slot] == hash) {
+          final Object slotKey = keys[slot];
+          if (slotKey != null && slotKey.equals(key)) {
+            return values[slot];
+          }
+        }
+      }
+      return null;
+    }
+
+    // must be called by the writer
+    private int findSlot(int hash, Object key) {
+      final int slot = findSlotInBucket(firstBucket(hash), hash, key);
+      return slot >= 0 ? slot : findSlotInBucket(secondBucket(hash), hash, key);
+    }
+
+    private int findSlotInBucket(int bucket, int hash, Object key) {
+      final int firstSlot = bucket * SLOTS_PER_BUCKET;
+      for (int slot = firstSlot; slot < firstSlot + SLOTS_PER_BUCKET; slot++) {
+        if (hashes[slot] == hash && keys[slot] != null && keys[slot].equals(key)) {
+          return slot;
+        }
+      }
+      return -1;
+    }
+
+    // must be called by the writer
+    private int countKeysWithHash(int hash) {
+      return countKeysWithHash(firstBucket(hash), hash) + countKeysWithHash(secondBucket(hash), hash);
+    }
+
+    private int countKeysWithHash(int bucket, int hash) {
+      final int firstSlot = bucket * SLOTS_PER_BUCKET;
+      int count = 0;
+      for (int slot = firstSlot; slot < firstSlot + SLOTS_PER_BUCKET; slot++) {
+        if (hashes[slot] == hash && keys[slot] != null) count++;
+      }
+      return count;
+    }
+
+    private int findFreeSlot(int bucket) {
+      final int firstSlot = bucket * SLOTS_PER_BUCKET;
+      for (int slot = firstSlot; slot < firstSlot + SLOTS_PER_BUCKET; slot++) {
+        if (keys[slot] == null) return slot;
+      }
+      return -1;
+    }
+
+    // returns false if there is no free slot reachable through a short displacement path
+    private boolean insert(int hash, Object key, Object value) {
+      final int firstBucket = firstBucket(hash);
+      final int secondBucket = secondBucket(hash);
+      int slot = findFreeSlot(firstBucket);
+      if (slot < 0) slot = findFreeSlot(secondBucket);
+      if (slot < 0) slot = makeFreeSlot(firstBucket, secondBucket);
+      if (slot < 0) return false;
+
+      final StampedLock stripe = stripeFor(slot / SLOTS_PER_BUCKET);
+      final long stamp = stripe.writeLock();
+      writeSlot(slot, hash, key, value);
+      stripe.unlockWrite(stamp);
+      return true;
+    }
+
+    // breadth-first search for a path of displacements from one of the buckets to a free slot
+    // returns the freed slot in one of the buckets or -1
+    private int makeFreeSlot(int firstBucket, int secondBucket) {
+      // every search node is a bucket, the slot in the parent bucket whose key moves to it, and the parent node
+      final int[] nodeBuckets = new int[MAX_SEARCH_NODES];
+      final int[] nodeParentSlots = new int[MAX_SEARCH_NODES];
+      final int[] nodeParents = new int[MAX_SEARCH_NODES];
+      nodeBuckets[0] = firstBucket;
+      nodeParents[0] = -1;
+      nodeBuckets[1] = secondBucket;
+      nodeParents[1] = -1;
+      int numberOfNodes = 2;
+
+      for (int node = 0; node < numberOfNodes; node++) {
+        final int firstSlot = nodeBuckets[node] * SLOTS_PER_BUCKET;
+        for (int slot = firstSlot; slot < firstSlot + SLOTS_PER_BUCKET; slot++) {
+          final int targetBucket = alternativeBucket(nodeBuckets[node], hashes[slot]);
+          final int freeSlot = findFreeSlot(targetBucket);
+          if (freeSlot >= 0) {
+            // move the keys starting from the end of the path, so every move has a free target
+            int targetSlot = freeSlot;
+            int sourceSlot = slot;
+            int currentNode = node;
+            while (true) {
+              moveSlot(sourceSlot, targetSlot);
+              if (nodeParents[currentNode] < 0) return sourceSlot;
+              targetSlot = sourceSlot;
+              sourceSlot = nodeParentSlots[currentNode];
+              currentNode = nodeParents[currentNode];
+            }
+          }
+          if (numberOfNodes < MAX_SEARCH_NODES) {
+            nodeBuckets[numberOfNodes] = targetBucket;
+            nodeParentSlots[numberOfNodes] = slot;
+            nodeParents[numberOfNodes] = node;
+            numberOfNodes++;
+          }
+        }
+      }
+      return -1;
+    }
+
+    // readers of either bucket retry, so they never miss the key that is being moved
+    private void moveSlot(int sourceSlot, int targetSlot) {
+      final StampedLock sourceStripe = stripeFor(sourceSlot / SLOTS_PER_BUCKET);
+      final StampedLock targetStripe = stripeFor(targetSlot / SLOTS_PER_BUCKET);
+      final long sourceStamp = sourceStripe.writeLock();
+      final long targetStamp = targetStripe == sourceStripe ? 0 : targetStripe.writeLock();
+      writeSlot(targetSlot, hashes[sourceSlot], keys[sourceSlot], values[sourceSlot]);
+      clearSlot(sourceSlot);
+      if (targetStripe != sourceStripe) targetStripe.unlockWrite(targetStamp);
+      sourceStripe.unlockWrite(sourceStamp);
+    }
+
+    private void writeSlot(int slot, int hash, Object key, Object value) {
+      hashes[slot] = hash;
+      keys[slot] = key;
+      values[slot] = value;
+    }
+
+    private void clearSlot(int slot) {
+      hashes[slot] = 0;
+      keys[slot] = null;
+      values[slot] = null;
+    }
+
+    // the new table is filled privately and published by the caller
+    private Table resize() {
+      int numberOfBuckets = bucketMask + 1;
+      while (true) {
+        if (numberOfBuckets >= MAX_NUMBER_OF_BUCKETS) {
+          throw new IllegalStateException("Cannot grow beyond " + MAX_NUMBER_OF_BUCKETS + " buckets");
+        }
+        numberOfBuckets *= 2;
+        final Table newTable = new Table(numberOfBuckets);
+        if (newTable.insertAll(this)) return newTable;
+      }
+    }
+
+    private boolean insertAll(Table oldTable) {
+      for (int slot = 0; slot < oldTable.keys.length; slot++) {
+        final Object key = oldTable.keys[slot];
+        if (key != null && !insert(oldTable.hashes[slot], key, oldTable.values[slot])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+}
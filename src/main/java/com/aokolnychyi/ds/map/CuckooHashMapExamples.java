@@ -0,0 +1,159 @@
+package com.aokolnychyi.ds.map;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public class CuckooHashMapExamples {
+
+  private static final int NUMBER_OF_KEYS = 1_000_000;
+  // about 100 reads per write
+  private static final int WRITES_PER_10_000 = 100;
+  private static final long BENCHMARK_DURATION_MILLIS = 2_000;
+
+  public static void main(String[] args) throws InterruptedException {
+    final CuckooHashMap<String, Integer> map = new CuckooHashMap<>(4);
+    map.put("one", 1);
+    map.put("two", 2);
+    map.put("three", 3);
+    System.out.println("Put two again: " + map.put("two", 22));
+    System.out.println("Get one: " + map.get("one"));
+    System.out.println("Get two: " + map.get("two"));
+    System.out.println("Get four: " + map.get("four"));
+    System.out.println("Remove three: " + map.remove("three"));
+    System.out.println("Contains three: " + map.containsKey("three"));
+    System.out.println("Size: " + map.size());
+
+    // keys with the same hash code have the same two buckets, so only 8 of them fit
+    final CuckooHashMap<SameHashKey, Integer> collidingMap = new CuckooHashMap<>();
+    try {
+      for (int value = 0; value < 9; value++) {
+        collidingMap.put(new SameHashKey(value), value);
+      }
+    } catch (IllegalStateException e) {
+      System.out.println("Colliding keys: " + collidingMap.size() + ", " + e.getMessage());
+    }
+
+    // cuckoo hashing with 4-way buckets works well at high load factors
+    final CuckooHashMap<Integer, Integer> largeMap = new CuckooHashMap<>(NUMBER_OF_KEYS);
+    for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+      largeMap.put(key, key);
+    }
+    System.out.printf("Load factor with %d keys: %.2f%n", largeMap.size(), (double) largeMap.size() / largeMap.capacity());
+
+    // readers must always see the keys that are being displaced by concurrent writers
+    final int numberOfReaders = Runtime.getRuntime().availableProcessors();
+    final CuckooHashMap<Integer, Integer> displacedMap = new CuckooHashMap<>();
+    for (int key = 0; key < 1_000; key++) {
+      displacedMap.put(key, key);
+    }
+    final Thread writer = new Thread(() -> {
+      for (int key = 1_000; key < 200_000; key++) {
+        displacedMap.put(key, key);
+      }
+    });
+    final LongAdder missingKeys = new LongAdder();
+    final Thread[] readers = new Thread[numberOfReaders];
+    for (int readerIndex = 0; readerIndex < numberOfReaders; readerIndex++) {
+      readers[readerIndex] = new Thread(() -> {
+        while (writer.isAlive()) {
+          final int key = ThreadLocalRandom.current().nextInt(1_000);
+          if (displacedMap.get(key) == null) missingKeys.increment();
+        }
+      });
+    }
+    writer.start();
+    for (Thread reader : readers) {
+      reader.start();
+    }
+    writer.join();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    System.out.println("Keys missed during displacements: " + missingKeys.sum());
+
+    // throughput of a read-mostly workload
+    final ConcurrentHashMap<Integer, Integer> stripedMap = new ConcurrentHashMap<>(64, 1 << 16);
+    final java.util.concurrent.ConcurrentHashMap<Integer, Integer> javaMap = new java.util.concurrent.ConcurrentHashMap<>();
+    for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+      stripedMap.put(key, key);
+      javaMap.put(key, key);
+    }
+    for (int threadCount = 1; threadCount <= numberOfReaders; threadCount *= 2) {
+      final double cuckooThroughput = benchmark(threadCount, (key, isWrite) -> {
+        if (isWrite) largeMap.put(key, key); else largeMap.get(key);
+      });
+      final double stripedThroughput = benchmark(threadCount, (key, isWrite) -> {
+        if (isWrite) stripedMap.put(key, key); else stripedMap.get(key);
+      });
+      final double javaThroughput = benchmark(threadCount, (key, isWrite) -> {
+        if (isWrite) javaMap.put(key, key); else javaMap.get(key);
+      });
+      System.out.printf("%d threads: CuckooHashMap %.1f Mops/s, ConcurrentHashMap %.1f Mops/s, "
+          + "java.util.concurrent.ConcurrentHashMap %.1f Mops/s%n",
+          threadCount, cuckooThroughput, stripedThroughput, javaThroughput);
+    }
+  }
+
+  // returns millions of operations per second
+  private static double benchmark(int threadCount, Operation operation) throws InterruptedException {
+    final LongAdder operationCount = new LongAdder();
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final Thread[] threads = new Thread[threadCount];
+    final long deadline = System.currentTimeMillis() + BENCHMARK_DURATION_MILLIS;
+    for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+      threads[threadIndex] = new Thread(() -> {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+          startLatch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        long localCount = 0;
+        while (System.currentTimeMillis() < deadline) {
+          for (int iteration = 0; iteration < 1_000; iteration++) {
+            final int key = random.nextInt(NUMBER_OF_KEYS);
+            operation.apply(key, random.nextInt(10_000) < WRITES_PER_10_000);
+          }
+          localCount += 1_000;
+        }
+        operationCount.add(localCount);
+      });
+      threads[threadIndex].start();
+    }
+    startLatch.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return operationCount.sum() / (BENCHMARK_DURATION_MILLIS * 1_000.0);
+  }
+
+  private interface Operation {
+    void apply(int key, boolean isWrite);
+  }
+
+  private static final class SameHashKey {
+    private final int value;
+
+    SameHashKey(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof SameHashKey && ((SameHashKey) other).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return 42;
+    }
+
+    @Override
+    public String toString() {
+      return "SameHashKey(" + value + ")";
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+package com.aokolnychyi.ds.map;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// utility methods to work with direct (off-heap) and memory-mapped buffers
+// public since the off-heap caches in com.aokolnychyi.ds.cache use it as well
+public final class DirectMemory {
+
+  // the largest power of two that fits into a single ByteBuffer
+  static final int MAX_BUFFER_SIZE = 1 << 30;
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      final Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+      unsafeField.setAccessible(true);
+      unsafe = unsafeField.get(null);
+      // available since Java 9
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Java 8 or a restricted environment, see release()
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private DirectMemory() {
+  }
+
+  public static ByteBuffer allocate(int size) {
+    return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+  }
+
+  // direct buffers are normally freed only when the GC collects the buffer objects
+  // this frees the memory right away, the buffer must not be accessed afterwards
+  public static void release(ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect()) return;
+    try {
+      if (INVOKE_CLEANER != null) {
+        INVOKE_CLEANER.invoke(UNSAFE, buffer);
+      } else {
+        final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        final Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // the memory will be released by the GC
+    }
+  }
+
+}
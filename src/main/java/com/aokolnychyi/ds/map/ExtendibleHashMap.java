@@ -0,0 +1,471 @@
+package com.aokolnychyi.ds.map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// a disk-based map that uses extendible hashing
+// entries are kept in fixed-size pages (buckets) of a memory-mapped file
+// the directory is an array of 2^globalDepth page ids that is indexed by the lowest bits of the hash
+// several directory slots can point to the same page: a page with local depth d is shared by
+// all slots that agree on the lowest d bits
+// a full page is split into two pages with local depth d + 1 (only its entries are moved),
+// and the directory is doubled only if d was equal to the global depth
+// the directory is small and lives in memory, so a lookup reads exactly one page
+// the directory is written to a separate file on flush() and close(), so the map survives restarts
+// pages are changed in place between flushes, so after a crash without a flush the pages on the disk might not match
+// the directory (or each other), and the lost changes cannot be recovered
+// instead, the directory file is marked as dirty before the first change after a flush,
+// and opening a map that was not flushed after its last change fails rather than returning wrong entries
+// entries whose hashes share the lowest MAX_GLOBAL_DEPTH bits can never be split apart, so they must fit into one page
+// an entry takes at most half of a page, so any two entries fit, and a put that needs more fails before touching the map
+// empty pages are not merged back, and the map is not thread-safe
+public class ExtendibleHashMap<K, V> implements AutoCloseable {
+
+  static final int PAGE_SIZE = 4096;
+  private static final String PAGES_FILE_NAME = "pages.bin";
+  private static final String DIRECTORY_FILE_NAME = "directory.bin";
+  private static final int DIRECTORY_MAGIC = 0xE47D1B0D;
+  private static final int STATE_OFFSET = 4;
+  private static final int CLEAN = 0;
+  private static final int DIRTY = 1;
+  private static final int PAGES_PER_CHUNK = 4096;
+  private static final long CHUNK_SIZE = (long) PAGES_PER_CHUNK * PAGE_SIZE;
+  // the directory of 2^24 slots takes 64 MB and addresses up to 64 GB of pages if hashes are spread evenly
+  // a few entries that share many low bits of their hashes double the directory just as well,
+  // so a small map with unlucky keys can have a large directory
+  private static final int MAX_GLOBAL_DEPTH = 24;
+  private static final int MAX_DEPTH_MASK = (1 << MAX_GLOBAL_DEPTH) - 1;
+
+  // page layout: local depth, number of entries, used bytes, entries
+  private static final int LOCAL_DEPTH_OFFSET = 0;
+  private static final int NUMBER_OF_ENTRIES_OFFSET = 4;
+  private static final int USED_BYTES_OFFSET = 8;
+  private static final int PAGE_HEADER_SIZE = 12;
+  // entry layout: hash, key length, value length, key bytes, value bytes
+  private static final int ENTRY_HEADER_SIZE = 12;
+  private static final int MAX_ENTRY_SIZE = (PAGE_SIZE - PAGE_HEADER_SIZE) / 2;
+
+  private final Path directoryFile;
+  private final Codec<K> keyCodec;
+  private final Codec<V> valueCodec;
+  private final FileChannel channel;
+  private MappedByteBuffer[] chunks;
+  private int[] directory;
+  private int globalDepth;
+  private int numberOfPages;
+  private int size;
+  // whether the directory file is marked as dirty
+  private boolean isDirty;
+
+  // opens the map stored in the given folder or creates a new one
+  public ExtendibleHashMap(Path folder, Codec<K> keyCodec, Codec<V> valueCodec) {
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.directoryFile = folder.resolve(DIRECTORY_FILE_NAME);
+    try {
+      Files.createDirectories(folder);
+      this.channel = FileChannel.open(
+          folder.resolve(PAGES_FILE_NAME),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      this.chunks = new MappedByteBuffer[0];
+      if (Files.exists(directoryFile)) {
+        try {
+          readDirectory();
+        } catch (IOException | RuntimeException e) {
+          channel.close();
+          throw e;
+        }
+      } else {
+        globalDepth = 0;
+        directory = new int[] {allocatePage(0)};
+        writeDirectory();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // reads one page
+  public V get(K key) {
+    checkOpen();
+    final byte[] keyBytes = keyCodec.encode(key);
+    final int hash = HashMaps.hash(keyBytes, 0);
+    final int pageId = directory[hash & directoryMask()];
+    final int entryOffset = findEntry(pageId, hash, keyBytes);
+    if (entryOffset < 0) return null;
+
+    final ByteBuffer chunk = chunk(pageId);
+    final int keyLength = chunk.getInt(entryOffset + 4);
+    final int valueLength = chunk.getInt(entryOffset + 8);
+    return valueCodec.decode(chunk, entryOffset + ENTRY_HEADER_SIZE + keyLength, valueLength);
+  }
+
+  public boolean containsKey(K key) {
+    checkOpen();
+    final byte[] keyBytes = keyCodec.encode(key);
+    final int hash = HashMaps.hash(keyBytes, 0);
+    return findEntry(directory[hash & directoryMask()], hash, keyBytes) >= 0;
+  }
+
+  // reads and writes one page unless the page has to be split
+  public void put(K key, V value) {
+    checkOpen();
+    final byte[] keyBytes = keyCodec.encode(key);
+    final byte[] valueBytes = valueCodec.encode(value);
+    final int entrySize = ENTRY_HEADER_SIZE + keyBytes.length + valueBytes.length;
+    if (entrySize > MAX_ENTRY_SIZE) {
+      throw new IllegalArgumentException("Entry takes more than half of a page: " + entrySize + " bytes");
+    }
+
+    markDirty();
+    final int hash = HashMaps.hash(keyBytes, 0);
+    int pageId = directory[hash & directoryMask()];
+    final int entryOffset = findEntry(pageId, hash, keyBytes);
+    int oldEntrySize = 0;
+    if (entryOffset >= 0) {
+      final ByteBuffer chunk = chunk(pageId);
+      final int oldValueLength = chunk.getInt(entryOffset + 8);
+      if (oldValueLength == valueBytes.length) {
+        // the value has the same length, so it is overwritten in place
+        writeBytes(chunk, entryOffset + ENTRY_HEADER_SIZE + keyBytes.length, valueBytes);
+        return;
+      }
+      oldEntrySize = ENTRY_HEADER_SIZE + keyBytes.length + oldValueLength;
+    }
+
+    // the page is split while the old entry is still there, so a failed split does not lose the old value
+    // the old entry has the same hash, so it stays in the page that gets the new entry
+    if (usedBytes(pageId) - oldEntrySize + entrySize > PAGE_SIZE
+        && inseparableBytes(pageId, hash) - oldEntrySize + entrySize > PAGE_SIZE - PAGE_HEADER_SIZE) {
+      throw new IllegalStateException("Entries whose hashes share the lowest " + MAX_GLOBAL_DEPTH + " bits do not fit into a page");
+    }
+    while (usedBytes(pageId) - oldEntrySize + entrySize > PAGE_SIZE) {
+      splitPage(pageId, hash);
+      pageId = directory[hash & directoryMask()];
+    }
+    if (entryOffset >= 0) {
+      removeEntry(pageId, findEntry(pageId, hash, keyBytes));
+      size--;
+    }
+    appendEntry(pageId, hash, keyBytes, valueBytes);
+    size++;
+  }
+
+  // returns the removed value or null
+  public V remove(K key) {
+    checkOpen();
+    final byte[] keyBytes = keyCodec.encode(key);
+    final int hash = HashMaps.hash(keyBytes, 0);
+    final int pageId = directory[hash & directoryMask()];
+    final int entryOffset = findEntry(pageId, hash, keyBytes);
+    if (entryOffset < 0) return null;
+
+    final ByteBuffer chunk = chunk(pageId);
+    final int keyLength = chunk.getInt(entryOffset + 4);
+    final int valueLength = chunk.getInt(entryOffset + 8);
+    final V removedValue = valueCodec.decode(chunk, entryOffset + ENTRY_HEADER_SIZE + keyLength, valueLength);
+    markDirty();
+    removeEntry(pageId, entryOffset);
+    size--;
+    return removedValue;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int globalDepth() {
+    return globalDepth;
+  }
+
+  public int numberOfPages() {
+    return numberOfPages;
+  }
+
+  // forces the pages to the disk and writes the directory, the map stays consistent on the disk until the next change
+  public void flush() {
+    checkOpen();
+    for (MappedByteBuffer chunk : chunks) {
+      chunk.force();
+    }
+    writeDirectory();
+  }
+
+  @Override
+  public void close() {
+    if (chunks == null) return;
+    try {
+      flush();
+    } finally {
+      for (MappedByteBuffer chunk : chunks) {
+        DirectMemory.release(chunk);
+      }
+      chunks = null;
+      try {
+        channel.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  // returns the absolute offset of the entry in the chunk of the page or -1
+  private int findEntry(int pageId, int hash, byte[] keyBytes) {
+    final ByteBuffer chunk = chunk(pageId);
+    final int pageOffset = pageOffset(pageId);
+    final int pageEnd = pageOffset + chunk.getInt(pageOffset + USED_BYTES_OFFSET);
+    int entryOffset = pageOffset + PAGE_HEADER_SIZE;
+    while (entryOffset < pageEnd) {
+      final int keyLength = chunk.getInt(entryOffset + 4);
+      final int valueLength = chunk.getInt(entryOffset + 8);
+      if (chunk.getInt(entryOffset) == hash && keyLength == keyBytes.length
+          && hasBytes(chunk, entryOffset + ENTRY_HEADER_SIZE, keyBytes)) {
+        return entryOffset;
+      }
+      entryOffset += ENTRY_HEADER_SIZE + keyLength + valueLength;
+    }
+    return -1;
+  }
+
+  // the size of the entries that have the same lowest MAX_GLOBAL_DEPTH bits of the hash
+  // all of them are in the same page since the local depth never exceeds MAX_GLOBAL_DEPTH
+  private int inseparableBytes(int pageId, int hash) {
+    final ByteBuffer chunk = chunk(pageId);
+    final int pageOffset = pageOffset(pageId);
+    final int pageEnd = pageOffset + chunk.getInt(pageOffset + USED_BYTES_OFFSET);
+    int inseparableBytes = 0;
+    int entryOffset = pageOffset + PAGE_HEADER_SIZE;
+    while (entryOffset < pageEnd) {
+      final int entrySize = ENTRY_HEADER_SIZE + chunk.getInt(entryOffset + 4) + chunk.getInt(entryOffset + 8);
+      if (((chunk.getInt(entryOffset) ^ hash) & MAX_DEPTH_MASK) == 0) {
+        inseparableBytes += entrySize;
+      }
+      entryOffset += entrySize;
+    }
+    return inseparableBytes;
+  }
+
+  private void appendEntry(int pageId, int hash, byte[] keyBytes, byte[] valueBytes) {
+    final ByteBuffer chunk = chunk(pageId);
+    final int pageOffset = pageOffset(pageId);
+    final int usedBytes = chunk.getInt(pageOffset + USED_BYTES_OFFSET);
+    final int entryOffset = pageOffset + usedBytes;
+    chunk.putInt(entryOffset, hash);
+    chunk.putInt(entryOffset + 4, keyBytes.length);
+    chunk.putInt(entryOffset + 8, valueBytes.length);
+    writeBytes(chunk, entryOffset + ENTRY_HEADER_SIZE, keyBytes);
+    writeBytes(chunk, entryOffset + ENTRY_HEADER_SIZE + keyBytes.length, valueBytes);
+    chunk.putInt(pageOffset + USED_BYTES_OFFSET, usedBytes + ENTRY_HEADER_SIZE + keyBytes.length + valueBytes.length);
+    chunk.putInt(pageOffset + NUMBER_OF_ENTRIES_OFFSET, chunk.getInt(pageOffset + NUMBER_OF_ENTRIES_OFFSET) + 1);
+  }
+
+  // shifts the following entries to the left, so the free space is always at the end of the page
+  private void removeEntry(int pageId, int entryOffset) {
+    final ByteBuffer chunk = chunk(pageId);
+    final int pageOffset = pageOffset(pageId);
+    final int pageEnd = pageOffset + chunk.getInt(pageOffset + USED_BYTES_OFFSET);
+    final int entrySize = ENTRY_HEADER_SIZE + chunk.getInt(entryOffset + 4) + chunk.getInt(entryOffset + 8);
+    final byte[] followingBytes = readBytes(chunk, entryOffset + entrySize, pageEnd - entryOffset - entrySize);
+    writeBytes(chunk, entryOffset, followingBytes);
+    chunk.putInt(pageOffset + USED_BYTES_OFFSET, pageEnd - pageOffset - entrySize);
+    chunk.putInt(pageOffset + NUMBER_OF_ENTRIES_OFFSET, chunk.getInt(pageOffset + NUMBER_OF_ENTRIES_OFFSET) - 1);
+  }
+
+  // moves the entries whose hash has the bit localDepth set into a new page
+  private void splitPage(int pageId, int hash) {
+    final ByteBuffer chunk = chunk(pageId);
+    final int pageOffset = pageOffset(pageId);
+    final int localDepth = chunk.getInt(pageOffset + LOCAL_DEPTH_OFFSET);
+    if (localDepth == globalDepth) {
+      doubleDirectory();
+    }
+
+    final int newPageId = allocatePage(localDepth + 1);
+    // the chunks array might have been extended, but the chunk of the old page is still valid
+    final byte[] pageBytes = readBytes(chunk, pageOffset, chunk.getInt(pageOffset + USED_BYTES_OFFSET));
+    chunk.putInt(pageOffset + LOCAL_DEPTH_OFFSET, localDepth + 1);
+    chunk.putInt(pageOffset + NUMBER_OF_ENTRIES_OFFSET, 0);
+    chunk.putInt(pageOffset + USED_BYTES_OFFSET, PAGE_HEADER_SIZE);
+
+    final ByteBuffer pageBuffer = ByteBuffer.wrap(pageBytes).order(chunk.order());
+    int entryOffset = PAGE_HEADER_SIZE;
+    while (entryOffset < pageBytes.length) {
+      final int entryHash = pageBuffer.getInt(entryOffset);
+      final int keyLength = pageBuffer.getInt(entryOffset + 4);
+      final int valueLength = pageBuffer.getInt(entryOffset + 8);
+      final byte[] keyBytes = Arrays.copyOfRange(
+          pageBytes,
+          entryOffset + ENTRY_HEADER_SIZE,
+          entryOffset + ENTRY_HEADER_SIZE + keyLength);
+      final byte[] valueBytes = Arrays.copyOfRange(
+          pageBytes,
+          entryOffset + ENTRY_HEADER_SIZE + keyLength,
+          entryOffset + ENTRY_HEADER_SIZE + keyLength + valueLength);
+      final int targetPageId = (entryHash & (1 << localDepth)) == 0 ? pageId : newPageId;
+      appendEntry(targetPageId, entryHash, keyBytes, valueBytes);
+      entryOffset += ENTRY_HEADER_SIZE + keyLength + valueLength;
+    }
+
+    // the directory slots of the old page that have the bit localDepth set now point to the new page
+    final int step = 1 << (localDepth + 1);
+    for (int slot = (hash & ((1 << localDepth) - 1)) | (1 << localDepth); slot < directory.length; slot += step) {
+      directory[slot] = newPageId;
+    }
+  }
+
+  // the new half of the directory mirrors the old one
+  private void doubleDirectory() {
+    if (globalDepth == MAX_GLOBAL_DEPTH) {
+      throw new IllegalStateException("Cannot grow the directory beyond 2^" + MAX_GLOBAL_DEPTH + " slots");
+    }
+    directory = Arrays.copyOf(directory, directory.length * 2);
+    System.arraycopy(directory, 0, directory, directory.length / 2, directory.length / 2);
+    globalDepth++;
+  }
+
+  private int allocatePage(int localDepth) {
+    final int pageId = numberOfPages;
+    ensureMapped(pageId);
+    final ByteBuffer chunk = chunk(pageId);
+    final int pageOffset = pageOffset(pageId);
+    chunk.putInt(pageOffset + LOCAL_DEPTH_OFFSET, localDepth);
+    chunk.putInt(pageOffset + NUMBER_OF_ENTRIES_OFFSET, 0);
+    chunk.putInt(pageOffset + USED_BYTES_OFFSET, PAGE_HEADER_SIZE);
+    numberOfPages++;
+    return pageId;
+  }
+
+  // maps the file chunk by chunk, mapping beyond the end of the file extends it
+  private void ensureMapped(int pageId) {
+    final int chunkIndex = pageId / PAGES_PER_CHUNK;
+    if (chunkIndex < chunks.length) return;
+
+    final MappedByteBuffer[] newChunks = Arrays.copyOf(chunks, chunkIndex + 1);
+    try {
+      for (int index = chunks.length; index <= chunkIndex; index++) {
+        newChunks[index] = channel.map(FileChannel.MapMode.READ_WRITE, index * CHUNK_SIZE, CHUNK_SIZE);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    chunks = newChunks;
+  }
+
+  private ByteBuffer chunk(int pageId) {
+    return chunks[pageId / PAGES_PER_CHUNK];
+  }
+
+  private int usedBytes(int pageId) {
+    return chunk(pageId).getInt(pageOffset(pageId) + USED_BYTES_OFFSET);
+  }
+
+  private int directoryMask() {
+    return (1 << globalDepth) - 1;
+  }
+
+  private void readDirectory() throws IOException {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(directoryFile)))) {
+      if (input.readInt() != DIRECTORY_MAGIC) {
+        throw new IllegalStateException("Not a directory file: " + directoryFile);
+      }
+      if (input.readInt() != CLEAN) {
+        throw new IllegalStateException("The map was changed after its last flush and might be corrupted: " + directoryFile);
+      }
+      globalDepth = input.readInt();
+      numberOfPages = input.readInt();
+      size = input.readInt();
+      directory = new int[1 << globalDepth];
+      for (int slot = 0; slot < directory.length; slot++) {
+        directory[slot] = input.readInt();
+      }
+    }
+    if (numberOfPages > 0) {
+      ensureMapped(numberOfPages - 1);
+    }
+  }
+
+  // the directory is written into a temporary file first and moved, so the directory file itself is never partial
+  // it matches the pages only if they were forced before
+  private void writeDirectory() {
+    final Path temporaryFile = directoryFile.resolveSibling(DIRECTORY_FILE_NAME + ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+        output.writeInt(DIRECTORY_MAGIC);
+        output.writeInt(CLEAN);
+        output.writeInt(globalDepth);
+        output.writeInt(numberOfPages);
+        output.writeInt(size);
+        for (int pageId : directory) {
+          output.writeInt(pageId);
+        }
+      }
+      Files.move(temporaryFile, directoryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    isDirty = false;
+  }
+
+  // the mark is forced to the disk before any page is changed, so it costs one sync per flush
+  private void markDirty() {
+    if (isDirty) return;
+    try (FileChannel directoryChannel = FileChannel.open(directoryFile, StandardOpenOption.WRITE)) {
+      final ByteBuffer state = ByteBuffer.allocate(4).putInt(0, DIRTY);
+      directoryChannel.write(state, STATE_OFFSET);
+      directoryChannel.force(false);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    isDirty = true;
+  }
+
+  private void checkOpen() {
+    if (chunks == null) {
+      throw new IllegalStateException("The map is closed");
+    }
+  }
+
+  private static int pageOffset(int pageId) {
+    return (pageId % PAGES_PER_CHUNK) * PAGE_SIZE;
+  }
+
+  private static boolean hasBytes(ByteBuffer buffer, int offset, byte[] bytes) {
+    for (int index = 0; index < bytes.length; index++) {
+      if (buffer.get(offset + index) != bytes[index]) return false;
+    }
+    return true;
+  }
+
+  private static byte[] readBytes(ByteBuffer buffer, int offset, int length) {
+    final byte[] bytes = new byte[length];
+    final ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.get(bytes);
+    return bytes;
+  }
+
+  private static void writeBytes(ByteBuffer buffer, int offset, byte[] bytes) {
+    final ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.put(bytes);
+  }
+
+}
@@ -0,0 +1,78 @@
+package com.aokolnychyi.ds.map;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class ExtendibleHashMapExamples {
+
+  private static final int NUMBER_OF_ENTRIES = 500_000;
+
+  public static void main(String[] args) throws IOException {
+    final Path folder = Files.createTempDirectory("extendible-hash-map");
+    try {
+      try (ExtendibleHashMap<String, String> map = new ExtendibleHashMap<>(folder.resolve("small"), Codec.STRING, Codec.STRING)) {
+        map.put("one", "1");
+        map.put("two", "2");
+        map.put("three", "3");
+        map.put("two", "22");
+        map.put("one", "updated-1");
+        System.out.println("Get one: " + map.get("one"));
+        System.out.println("Get two: " + map.get("two"));
+        System.out.println("Get four: " + map.get("four"));
+        System.out.println("Remove three: " + map.remove("three"));
+        System.out.println("Contains three: " + map.containsKey("three"));
+        System.out.println("Size: " + map.size());
+      }
+
+      final Path largeMapFolder = folder.resolve("large");
+      final long startTime = System.nanoTime();
+      try (ExtendibleHashMap<Long, String> map = new ExtendibleHashMap<>(largeMapFolder, Codec.LONG, Codec.STRING)) {
+        for (long key = 0; key < NUMBER_OF_ENTRIES; key++) {
+          map.put(key, "value-" + key);
+        }
+        for (long key = 0; key < NUMBER_OF_ENTRIES; key += 2) {
+          map.remove(key);
+        }
+        System.out.printf("Inserted %d entries in %d ms%n", NUMBER_OF_ENTRIES, (System.nanoTime() - startTime) / 1_000_000);
+        System.out.println("Global depth: " + map.globalDepth() + ", pages: " + map.numberOfPages());
+      }
+
+      // the entries survive reopening
+      try (ExtendibleHashMap<Long, String> map = new ExtendibleHashMap<>(largeMapFolder, Codec.LONG, Codec.STRING)) {
+        boolean allFound = true;
+        for (long key = 0; key < NUMBER_OF_ENTRIES; key++) {
+          final String expectedValue = key % 2 == 0 ? null : "value-" + key;
+          final String actualValue = map.get(key);
+          allFound &= expectedValue == null ? actualValue == null : expectedValue.equals(actualValue);
+        }
+        System.out.println("Size after reopening: " + map.size() + ", all entries found: " + allFound);
+        System.out.println("Pages file: " + Files.size(largeMapFolder.resolve("pages.bin")) / (1024 * 1024) + " MB");
+      }
+
+      // a map that is not flushed after a change cannot be opened, as its pages might not match the directory
+      // the map below is never closed, which is how it looks after a crash
+      final Path unflushedMapFolder = folder.resolve("unflushed");
+      final ExtendibleHashMap<Long, String> unflushedMap = new ExtendibleHashMap<>(unflushedMapFolder, Codec.LONG, Codec.STRING);
+      unflushedMap.put(1L, "1");
+      unflushedMap.flush();
+      unflushedMap.put(2L, "2");
+      try {
+        new ExtendibleHashMap<>(unflushedMapFolder, Codec.LONG, Codec.STRING);
+      } catch (IllegalStateException e) {
+        System.out.println("Opening the unflushed map failed: " + e.getMessage());
+      }
+      unflushedMap.flush();
+      try (ExtendibleHashMap<Long, String> map = new ExtendibleHashMap<>(unflushedMapFolder, Codec.LONG, Codec.STRING)) {
+        System.out.println("Get two after the flush: " + map.get(2L));
+      }
+      unflushedMap.close();
+    } finally {
+      try (Stream<Path> paths = Files.walk(folder)) {
+        paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+}
@@ -1,64 +1,508 @@
 package com.aokolnychyi.ds.map;
 
+import java.util.Arrays;
+
 public class HashMap<K, V> {
 
-  private TreeNode<K, V>[] buckets;
+  private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+  // how many old buckets are moved to the new table per operation during a resize
+  private static final int BUCKETS_TO_MOVE_PER_OPERATION = 2;
+  // an array bucket that grows beyond this size is converted into a tree bucket
+  private static final int TREEIFY_THRESHOLD = 8;
+  // a tree bucket that shrinks to this size is converted back into an array bucket
+  private static final int UNTREEIFY_THRESHOLD = 6;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private final float loadFactor;
+  private Bucket<K, V>[] buckets;
+  // the previous table while an incremental rehash is in progress, null otherwise
+  private Bucket<K, V>[] oldBuckets;
+  // all old buckets below this index have already been moved to the new table
+  private int rehashIndex;
+  private int size;
 
   public HashMap(int numberOfBuckets) {
-    this.buckets = (TreeNode<K, V>[]) new TreeNode[numberOfBuckets];
+    this(numberOfBuckets, DEFAULT_LOAD_FACTOR);
   }
 
-  // O(log n) time and O(log n) or  space in the worst case
-  public void put(K key, V value) {
-    int bucketIndex = getBucketIndex(key);
-    buckets[bucketIndex] = insert(buckets[bucketIndex], key, value);
+  public HashMap(int numberOfBuckets, float loadFactor) {
+    if (numberOfBuckets <= 0) {
+      throw new IllegalArgumentException("Number of buckets must be positive: " + numberOfBuckets);
+    }
+    if (loadFactor <= 0) {
+      throw new IllegalArgumentException("Load factor must be positive: " + loadFactor);
+    }
+    // the number of buckets is always a power of two, so the index is computed with a mask
+    final int capacity = Integer.highestOneBit(Math.min(numberOfBuckets, MAX_CAPACITY) - 1) << 1;
+    this.buckets = (Bucket<K, V>[]) new Bucket[Math.max(1, capacity)];
+    this.loadFactor = loadFactor;
   }
 
-  private TreeNode<K, V> insert(TreeNode<K, V> node, K key, V value) {
-    if (node == null) return new TreeNode<>(key.hashCode(), key, value);
+  // O(log n) time in the worst case
+  public void put(K key, V value) {
+    moveOldBuckets();
+    final int hash = spread(key.hashCode());
+    final Bucket<K, V>[] table = tableFor(hash);
+    putEntry(table, hash, key, value);
+    startRehashIfNeeded();
+  }
 
-    if (node.hash == key.hashCode() && node.key.equals(key)) {
-      node.value = value;
-    } else if (key.hashCode() <= node.hash) {
-      node.leftChild = insert(node.leftChild, key, value);
-    } else {
-      node.rightChild = insert(node.rightChild, key, value);
+  private void putEntry(Bucket<K, V>[] table, int hash, K key, V value) {
+    final int bucketIndex = getBucketIndex(hash, table.length);
+    Bucket<K, V> bucket = table[bucketIndex];
+    if (bucket == null) {
+      bucket = new ArrayBucket<>();
+      table[bucketIndex] = bucket;
     }
-    return node;
+    final int oldBucketSize = bucket.size();
+    table[bucketIndex] = bucket.put(hash, key, value);
+    size += table[bucketIndex].size() - oldBucketSize;
   }
 
-  // O(log n) time and O(log n) or O(n) space in the worst case
+  // O(log n) time in the worst case
   public V get(K key) {
-    int bucketIndex = getBucketIndex(key);
-    return get(buckets[bucketIndex], key);
+    moveOldBuckets();
+    final int hash = spread(key.hashCode());
+    final Bucket<K, V>[] table = tableFor(hash);
+    final Bucket<K, V> bucket = table[getBucketIndex(hash, table.length)];
+    return bucket == null ? null : bucket.get(hash, key);
+  }
+
+  // O(log n) time in the worst case
+  public V remove(K key) {
+    moveOldBuckets();
+    final int hash = spread(key.hashCode());
+    final Bucket<K, V>[] table = tableFor(hash);
+    final int bucketIndex = getBucketIndex(hash, table.length);
+    final Bucket<K, V> bucket = table[bucketIndex];
+    if (bucket == null) return null;
+
+    final int oldBucketSize = bucket.size();
+    final V removedValue = bucket.remove(hash, key);
+    final int newBucketSize = bucket.size();
+    size -= oldBucketSize - newBucketSize;
+    if (newBucketSize == 0) {
+      table[bucketIndex] = null;
+    } else if (newBucketSize <= UNTREEIFY_THRESHOLD && bucket instanceof TreeBucket) {
+      table[bucketIndex] = ((TreeBucket<K, V>) bucket).untreeify();
+    }
+    return removedValue;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  // the number of buckets in the current table (the new one if a rehash is in progress)
+  public int capacity() {
+    return buckets.length;
+  }
+
+  public boolean isRehashing() {
+    return oldBuckets != null;
+  }
+
+  // hashCode() of many classes varies only in the upper bits (e.g., Float keys) or uses
+  // only a few lower bits, so the upper half is folded into the lower half before masking
+  // this also makes the hash non-negative after masking, unlike the % operator
+  private static int spread(int hashCode) {
+    return hashCode ^ (hashCode >>> 16);
+  }
+
+  private static int getBucketIndex(int hash, int numberOfBuckets) {
+    return hash & (numberOfBuckets - 1);
+  }
+
+  // the table that currently holds the bucket for the hash
+  // if the corresponding old bucket has not been moved yet, the key still lives there
+  private Bucket<K, V>[] tableFor(int hash) {
+    if (oldBuckets != null && getBucketIndex(hash, oldBuckets.length) >= rehashIndex) {
+      return oldBuckets;
+    }
+    return buckets;
   }
 
-  private V get(TreeNode<K, V> node, K key) {
-    if (node == null) return null;
-    if (node.hash == key.hashCode() && node.key.equals(key)) {
-      return node.value;
-    } else if (key.hashCode() <= node.hash) {
-      return get(node.leftChild, key);
-    } else {
-      return get(node.rightChild, key);
+  private void startRehashIfNeeded() {
+    if (oldBuckets == null && size > buckets.length * loadFactor && buckets.length < MAX_CAPACITY) {
+      oldBuckets = buckets;
+      buckets = (Bucket<K, V>[]) new Bucket[buckets.length * 2];
+      rehashIndex = 0;
     }
   }
 
-  private int getBucketIndex(K key) {
-    return key.hashCode() % buckets.length;
+  // instead of rehashing the whole table at once (and causing a latency spike),
+  // each operation moves a few old buckets to the new table
+  private void moveOldBuckets() {
+    if (oldBuckets == null) return;
+
+    final int lastIndex = Math.min(rehashIndex + BUCKETS_TO_MOVE_PER_OPERATION, oldBuckets.length);
+    for (; rehashIndex < lastIndex; rehashIndex++) {
+      final Bucket<K, V> bucket = oldBuckets[rehashIndex];
+      oldBuckets[rehashIndex] = null;
+      if (bucket != null) {
+        size -= bucket.size();
+        bucket.transferTo(this);
+      }
+    }
+
+    if (rehashIndex == oldBuckets.length) {
+      oldBuckets = null;
+      rehashIndex = 0;
+    }
+  }
+
+  private abstract static class Bucket<K, V> {
+
+    abstract int size();
+
+    abstract V get(int hash, K key);
+
+    // returns the bucket that should replace this one (it changes when the bucket is converted)
+    abstract Bucket<K, V> put(int hash, K key, V value);
+
+    abstract V remove(int hash, K key);
+
+    abstract void transferTo(HashMap<K, V> map);
+  }
+
+  // a compact representation for tiny buckets: parallel arrays scanned linearly
+  // scanning a few adjacent slots is cheaper than following tree pointers
+  private static class ArrayBucket<K, V> extends Bucket<K, V> {
+    private int[] hashes = new int[2];
+    private Object[] keys = new Object[2];
+    private Object[] values = new Object[2];
+    private int size;
+
+    @Override
+    int size() {
+      return size;
+    }
+
+    @Override
+    V get(int hash, K key) {
+      final int index = indexOf(hash, key);
+      return index >= 0 ? (V) values[index] : null;
+    }
+
+    @Override
+    Bucket<K, V> put(int hash, K key, V value) {
+      final int index = indexOf(hash, key);
+      if (index >= 0) {
+        values[index] = value;
+        return this;
+      }
+
+      if (size == TREEIFY_THRESHOLD) {
+        final TreeBucket<K, V> treeBucket = new TreeBucket<>();
+        for (int entryIndex = 0; entryIndex < size; entryIndex++) {
+          treeBucket.put(hashes[entryIndex], (K) keys[entryIndex], (V) values[entryIndex]);
+        }
+        treeBucket.put(hash, key, value);
+        return treeBucket;
+      }
+
+      if (size == hashes.length) {
+        final int newLength = hashes.length * 2;
+        hashes = Arrays.copyOf(hashes, newLength);
+        keys = Arrays.copyOf(keys, newLength);
+        values = Arrays.copyOf(values, newLength);
+      }
+      hashes[size] = hash;
+      keys[size] = key;
+      values[size] = value;
+      size++;
+      return this;
+    }
+
+    @Override
+    V remove(int hash, K key) {
+      final int index = indexOf(hash, key);
+      if (index < 0) return null;
+
+      final V removedValue = (V) values[index];
+      // the order of entries does not matter, so the last entry fills the gap
+      final int lastIndex = size - 1;
+      hashes[index] = hashes[lastIndex];
+      keys[index] = keys[lastIndex];
+      values[index] = values[lastIndex];
+      keys[lastIndex] = null;
+      values[lastIndex] = null;
+      size--;
+      return removedValue;
+    }
+
+    @Override
+    void transferTo(HashMap<K, V> map) {
+      for (int index = 0; index < size; index++) {
+        map.putEntry(map.buckets, hashes[index], (K) keys[index], (V) values[index]);
+      }
+    }
+
+    private int indexOf(int hash, K key) {
+      for (int index = 0; index < size; index++) {
+        if (hashes[index] == hash && key.equals(keys[index])) return index;
+      }
+      return -1;
+    }
+  }
+
+  // a left-leaning red-black tree (see "Algorithms" by Robert Sedgewick and Kevin Wayne)
+  // nodes are ordered by hash, then by class name, then by compareTo() if keys are Comparable,
+  // and finally by the insertion sequence number, which makes the order total
+  // if keys are Comparable, colliding keys can be found in O(log n) time
+  private static class TreeBucket<K, V> extends Bucket<K, V> {
+    private static final boolean RED = true;
+    private static final boolean BLACK = false;
+
+    private TreeNode<K, V> root;
+    private int size;
+    private long nextSequenceNumber;
+
+    @Override
+    int size() {
+      return size;
+    }
+
+    @Override
+    V get(int hash, K key) {
+      final TreeNode<K, V> node = find(root, hash, key);
+      return node != null ? node.value : null;
+    }
+
+    @Override
+    Bucket<K, V> put(int hash, K key, V value) {
+      final TreeNode<K, V> existingNode = find(root, hash, key);
+      if (existingNode != null) {
+        existingNode.value = value;
+      } else {
+        root = insert(root, new TreeNode<>(hash, key, value, nextSequenceNumber++));
+        root.color = BLACK;
+        size++;
+      }
+      return this;
+    }
+
+    @Override
+    V remove(int hash, K key) {
+      final TreeNode<K, V> node = find(root, hash, key);
+      if (node == null) return null;
+
+      final V removedValue = node.value;
+      if (!isRed(root.leftChild) && !isRed(root.rightChild)) {
+        root.color = RED;
+      }
+      root = delete(root, node.hash, node.key, node.sequenceNumber);
+      if (root != null) {
+        root.color = BLACK;
+      }
+      size--;
+      return removedValue;
+    }
+
+    @Override
+    void transferTo(HashMap<K, V> map) {
+      transferTo(map, root);
+    }
+
+    private void transferTo(HashMap<K, V> map, TreeNode<K, V> node) {
+      if (node == null) return;
+      transferTo(map, node.leftChild);
+      map.putEntry(map.buckets, node.hash, node.key, node.value);
+      transferTo(map, node.rightChild);
+    }
+
+    ArrayBucket<K, V> untreeify() {
+      final ArrayBucket<K, V> arrayBucket = new ArrayBucket<>();
+      untreeify(arrayBucket, root);
+      return arrayBucket;
+    }
+
+    private void untreeify(ArrayBucket<K, V> arrayBucket, TreeNode<K, V> node) {
+      if (node == null) return;
+      untreeify(arrayBucket, node.leftChild);
+      arrayBucket.put(node.hash, node.key, node.value);
+      untreeify(arrayBucket, node.rightChild);
+    }
+
+    // O(log n) time if keys are Comparable or have distinct hashes
+    // if keys tie in the order (same hash and not Comparable), both subtrees are searched
+    private TreeNode<K, V> find(TreeNode<K, V> node, int hash, K key) {
+      while (node != null) {
+        if (hash < node.hash) {
+          node = node.leftChild;
+        } else if (hash > node.hash) {
+          node = node.rightChild;
+        } else if (key.equals(node.key)) {
+          return node;
+        } else {
+          final int comparison = compareKeys(key, node.key);
+          if (comparison < 0) {
+            node = node.leftChild;
+          } else if (comparison > 0) {
+            node = node.rightChild;
+          } else {
+            final TreeNode<K, V> nodeInRightSubtree = find(node.rightChild, hash, key);
+            if (nodeInRightSubtree != null) return nodeInRightSubtree;
+            node = node.leftChild;
+          }
+        }
+      }
+      return null;
+    }
+
+    private TreeNode<K, V> insert(TreeNode<K, V> node, TreeNode<K, V> newNode) {
+      if (node == null) return newNode;
+
+      if (compare(newNode.hash, newNode.key, newNode.sequenceNumber, node) < 0) {
+        node.leftChild = insert(node.leftChild, newNode);
+      } else {
+        node.rightChild = insert(node.rightChild, newNode);
+      }
+      return balance(node);
+    }
+
+    private TreeNode<K, V> delete(TreeNode<K, V> node, int hash, K key, long sequenceNumber) {
+      if (compare(hash, key, sequenceNumber, node) < 0) {
+        if (!isRed(node.leftChild) && !isRed(node.leftChild.leftChild)) {
+          node = moveRedLeft(node);
+        }
+        node.leftChild = delete(node.leftChild, hash, key, sequenceNumber);
+      } else {
+        if (isRed(node.leftChild)) {
+          node = rotateRight(node);
+        }
+        if (compare(hash, key, sequenceNumber, node) == 0 && node.rightChild == null) {
+          return null;
+        }
+        if (!isRed(node.rightChild) && !isRed(node.rightChild.leftChild)) {
+          node = moveRedRight(node);
+        }
+        if (compare(hash, key, sequenceNumber, node) == 0) {
+          // replace the node's entry with its successor and delete the successor instead
+          final TreeNode<K, V> successor = min(node.rightChild);
+          node.hash = successor.hash;
+          node.key = successor.key;
+          node.value = successor.value;
+          node.sequenceNumber = successor.sequenceNumber;
+          node.rightChild = deleteMin(node.rightChild);
+        } else {
+          node.rightChild = delete(node.rightChild, hash, key, sequenceNumber);
+        }
+      }
+      return balance(node);
+    }
+
+    private TreeNode<K, V> deleteMin(TreeNode<K, V> node) {
+      if (node.leftChild == null) return null;
+      if (!isRed(node.leftChild) && !isRed(node.leftChild.leftChild)) {
+        node = moveRedLeft(node);
+      }
+      node.leftChild = deleteMin(node.leftChild);
+      return balance(node);
+    }
+
+    private TreeNode<K, V> min(TreeNode<K, V> node) {
+      while (node.leftChild != null) {
+        node = node.leftChild;
+      }
+      return node;
+    }
+
+    private TreeNode<K, V> balance(TreeNode<K, V> node) {
+      if (isRed(node.rightChild) && !isRed(node.leftChild)) node = rotateLeft(node);
+      if (isRed(node.leftChild) && isRed(node.leftChild.leftChild)) node = rotateRight(node);
+      if (isRed(node.leftChild) && isRed(node.rightChild)) flipColors(node);
+      return node;
+    }
+
+    private TreeNode<K, V> moveRedLeft(TreeNode<K, V> node) {
+      flipColors(node);
+      if (isRed(node.rightChild.leftChild)) {
+        node.rightChild = rotateRight(node.rightChild);
+        node = rotateLeft(node);
+        flipColors(node);
+      }
+      return node;
+    }
+
+    private TreeNode<K, V> moveRedRight(TreeNode<K, V> node) {
+      flipColors(node);
+      if (isRed(node.leftChild.leftChild)) {
+        node = rotateRight(node);
+        flipColors(node);
+      }
+      return node;
+    }
+
+    private TreeNode<K, V> rotateLeft(TreeNode<K, V> node) {
+      final TreeNode<K, V> rightChild = node.rightChild;
+      node.rightChild = rightChild.leftChild;
+      rightChild.leftChild = node;
+      rightChild.color = node.color;
+      node.color = RED;
+      return rightChild;
+    }
+
+    private TreeNode<K, V> rotateRight(TreeNode<K, V> node) {
+      final TreeNode<K, V> leftChild = node.leftChild;
+      node.leftChild = leftChild.rightChild;
+      leftChild.rightChild = node;
+      leftChild.color = node.color;
+      node.color = RED;
+      return leftChild;
+    }
+
+    private void flipColors(TreeNode<K, V> node) {
+      node.color = !node.color;
+      node.leftChild.color = !node.leftChild.color;
+      node.rightChild.color = !node.rightChild.color;
+    }
+
+    private boolean isRed(TreeNode<K, V> node) {
+      return node != null && node.color == RED;
+    }
+
+    // the total order of nodes in the tree
+    private int compare(int hash, K key, long sequenceNumber, TreeNode<K, V> node) {
+      if (hash != node.hash) return hash < node.hash ? -1 : 1;
+      final int comparison = compareKeys(key, node.key);
+      if (comparison != 0) return comparison;
+      return Long.compare(sequenceNumber, node.sequenceNumber);
+    }
+
+    // compares class names first, so that keys of different classes never call compareTo()
+    private int compareKeys(K key, K otherKey) {
+      final Class<?> keyClass = key.getClass();
+      final Class<?> otherKeyClass = otherKey.getClass();
+      if (keyClass != otherKeyClass) {
+        return keyClass.getName().compareTo(otherKeyClass.getName());
+      }
+      if (key instanceof Comparable) {
+        return Integer.signum(((Comparable<Object>) key).compareTo(otherKey));
+      }
+      return 0;
+    }
   }
 
   private static class TreeNode<K, V> {
     private int hash;
     private K key;
     private V value;
+    private long sequenceNumber;
+    private boolean color;
     private TreeNode<K, V> leftChild;
     private TreeNode<K, V> rightChild;
 
-    public TreeNode(int hash, K key, V value) {
+    public TreeNode(int hash, K key, V value, long sequenceNumber) {
       this.hash = hash;
       this.key = key;
       this.value = value;
+      this.sequenceNumber = sequenceNumber;
+      this.color = TreeBucket.RED;
     }
   }
 
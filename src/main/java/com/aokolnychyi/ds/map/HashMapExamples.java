@@ -17,5 +17,97 @@ public class HashMapExamples {
     System.out.println(hashMap.get(5));
     System.out.println(hashMap.get(6));
     System.out.println(hashMap.get(7));
+
+    System.out.println("Size: " + hashMap.size());
+    System.out.println("Remove 4: " + hashMap.remove(4));
+    System.out.println("Remove 4 again: " + hashMap.remove(4));
+    System.out.println("Get 4: " + hashMap.get(4));
+    System.out.println("Size after removal: " + hashMap.size());
+
+    // the table grows incrementally, a few buckets are moved per operation
+    HashMap<Integer, Integer> growingMap = new HashMap<>(1);
+    for (int key = 0; key < 100_000; key++) {
+      growingMap.put(key, key);
+      if (Integer.bitCount(key + 1) == 1) {
+        System.out.println("Size: " + growingMap.size() + ", capacity: " + growingMap.capacity() +
+            ", rehashing: " + growingMap.isRehashing());
+      }
+    }
+    boolean allFound = true;
+    for (int key = 0; key < 100_000; key++) {
+      allFound &= growingMap.get(key) == key;
+    }
+    System.out.println("All keys found: " + allFound);
+    for (int key = 0; key < 100_000; key += 2) {
+      growingMap.remove(key);
+    }
+    System.out.println("Size after removing even keys: " + growingMap.size());
+    System.out.println("Get 2: " + growingMap.get(2) + ", get 3: " + growingMap.get(3));
+
+    // negative hash codes are fine since the bucket index is computed with a mask
+    HashMap<Integer, String> negativeKeyMap = new HashMap<>(4);
+    negativeKeyMap.put(-1, "-1");
+    negativeKeyMap.put(Integer.MIN_VALUE, "MIN_VALUE");
+    System.out.println("Get -1: " + negativeKeyMap.get(-1));
+    System.out.println("Get MIN_VALUE: " + negativeKeyMap.get(Integer.MIN_VALUE));
+
+    // all keys collide, the bucket becomes a red-black tree ordered by compareTo()
+    HashMap<ComparableCollidingKey, Integer> comparableKeyMap = new HashMap<>(16);
+    for (int value = 0; value < 10_000; value++) {
+      comparableKeyMap.put(new ComparableCollidingKey(value), value);
+    }
+    System.out.println("Get colliding comparable key 9999: " +
+        comparableKeyMap.get(new ComparableCollidingKey(9999)));
+    for (int value = 0; value < 10_000; value += 2) {
+      comparableKeyMap.remove(new ComparableCollidingKey(value));
+    }
+    System.out.println("Size after removing even colliding keys: " + comparableKeyMap.size());
+    System.out.println("Get colliding comparable key 9998: " +
+        comparableKeyMap.get(new ComparableCollidingKey(9998)));
+    System.out.println("Get colliding comparable key 9997: " +
+        comparableKeyMap.get(new ComparableCollidingKey(9997)));
+
+    // keys that are not Comparable still work, but lookups may need to visit the whole bucket
+    HashMap<CollidingKey, Integer> collidingKeyMap = new HashMap<>(16);
+    for (int value = 0; value < 100; value++) {
+      collidingKeyMap.put(new CollidingKey(value), value);
+    }
+    for (int value = 0; value < 95; value++) {
+      collidingKeyMap.remove(new CollidingKey(value));
+    }
+    System.out.println("Get colliding key 97: " + collidingKeyMap.get(new CollidingKey(97)));
+    System.out.println("Get colliding key 5: " + collidingKeyMap.get(new CollidingKey(5)));
+    System.out.println("Size: " + collidingKeyMap.size());
+  }
+
+  private static class CollidingKey {
+    protected final int value;
+
+    CollidingKey(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof CollidingKey && ((CollidingKey) other).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return 42;
+    }
+  }
+
+  private static class ComparableCollidingKey extends CollidingKey
+      implements Comparable<ComparableCollidingKey> {
+
+    ComparableCollidingKey(int value) {
+      super(value);
+    }
+
+    @Override
+    public int compareTo(ComparableCollidingKey other) {
+      return Integer.compare(value, other.value);
+    }
   }
 }
@@ -0,0 +1,88 @@
+package com.aokolnychyi.ds.map;
+
+// utility methods shared by the open-addressing maps in this package
+final class HashMaps {
+
+  private static final int INT_PHI = 0x9E3779B9;
+  private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private HashMaps() {
+  }
+
+  // multiply by the golden ratio and fold the high bits into the low ones
+  // primitive keys are often sequential, so they must be scrambled before masking
+  static int mix(int key) {
+    final int hash = key * INT_PHI;
+    return hash ^ (hash >>> 16);
+  }
+
+  static int mix(long key) {
+    final long hash = key * LONG_PHI;
+    final int foldedHash = (int) (hash ^ (hash >>> 32));
+    return foldedHash ^ (foldedHash >>> 16);
+  }
+
+  // MurmurHash3 (x86, 32-bit) of a byte array
+  // used by the maps that hash encoded keys, so that hashes stay the same across JVM restarts
+  static int hash(byte[] bytes, int seed) {
+    int hash = seed;
+    final int numberOfBlocks = bytes.length / 4;
+    for (int block = 0; block < numberOfBlocks; block++) {
+      final int offset = block * 4;
+      int word = (bytes[offset] & 0xFF)
+          | (bytes[offset + 1] & 0xFF) << 8
+          | (bytes[offset + 2] & 0xFF) << 16
+          | (bytes[offset + 3] & 0xFF) << 24;
+      word *= 0xCC9E2D51;
+      word = Integer.rotateLeft(word, 15);
+      word *= 0x1B873593;
+      hash ^= word;
+      hash = Integer.rotateLeft(hash, 13);
+      hash = hash * 5 + 0xE6546B64;
+    }
+
+    int tail = 0;
+    final int tailOffset = numberOfBlocks * 4;
+    switch (bytes.length & 3) {
+      case 3:
+        tail ^= (bytes[tailOffset + 2] & 0xFF) << 16;
+      case 2:
+        tail ^= (bytes[tailOffset + 1] & 0xFF) << 8;
+      case 1:
+        tail ^= bytes[tailOffset] & 0xFF;
+        tail *= 0xCC9E2D51;
+        tail = Integer.rotateLeft(tail, 15);
+        tail *= 0x1B873593;
+        hash ^= tail;
+    }
+
+    hash ^= bytes.length;
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    hash *= 0xC2B2AE35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+
+  // the smallest power of two that can hold the expected number of entries
+  static int tableSizeFor(int expectedSize, float loadFactor) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Expected size must be non-negative: " + expectedSize);
+    }
+    final long requiredCapacity = (long) Math.ceil(Math.max(expectedSize, 2) / loadFactor);
+    if (requiredCapacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("Expected size is too large: " + expectedSize);
+    }
+    return Math.max(2, Integer.highestOneBit((int) requiredCapacity - 1) << 1);
+  }
+
+  static int doubleCapacity(int capacity) {
+    if (capacity >= MAX_CAPACITY) {
+      throw new IllegalStateException("Cannot grow beyond " + MAX_CAPACITY + " slots");
+    }
+    return capacity << 1;
+  }
+
+}
@@ -0,0 +1,178 @@
+package com.aokolnychyi.ds.map;
+
+import java.util.Arrays;
+
+// an open-addressing map with linear probing that keeps keys and values in flat primitive arrays
+// there are no per-entry objects and no boxing, so put/get never allocate (apart from resizing)
+public class IntIntHashMap {
+
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+  // a key that marks empty slots in the keys array
+  private static final int FREE_KEY = 0;
+
+  private final float loadFactor;
+  // the value returned by get() if there is no mapping for a key
+  private final int missingValue;
+  private int[] keys;
+  private int[] values;
+  // the free key cannot be stored in the arrays, so it is kept separately
+  private boolean hasFreeKey;
+  private int freeKeyValue;
+  private int size;
+  private int threshold;
+
+  public IntIntHashMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, 0);
+  }
+
+  public IntIntHashMap(int expectedSize, float loadFactor, int missingValue) {
+    if (loadFactor <= 0 || loadFactor >= 1) {
+      throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+    }
+    this.loadFactor = loadFactor;
+    this.missingValue = missingValue;
+    allocate(HashMaps.tableSizeFor(expectedSize, loadFactor));
+  }
+
+  // O(1) time on average
+  public int get(int key) {
+    if (key == FREE_KEY) return hasFreeKey ? freeKeyValue : missingValue;
+
+    final int mask = keys.length - 1;
+    int index = HashMaps.mix(key) & mask;
+    int currentKey;
+    while ((currentKey = keys[index]) != FREE_KEY) {
+      if (currentKey == key) return values[index];
+      index = (index + 1) & mask;
+    }
+    return missingValue;
+  }
+
+  // O(1) time on average
+  public boolean containsKey(int key) {
+    if (key == FREE_KEY) return hasFreeKey;
+    return indexOf(key) >= 0;
+  }
+
+  // O(1) amortized time, returns the previous value or the missing value
+  public int put(int key, int value) {
+    if (key == FREE_KEY) {
+      final int previousValue = hasFreeKey ? freeKeyValue : missingValue;
+      if (!hasFreeKey) size++;
+      hasFreeKey = true;
+      freeKeyValue = value;
+      return previousValue;
+    }
+
+    final int mask = keys.length - 1;
+    int index = HashMaps.mix(key) & mask;
+    int currentKey;
+    while ((currentKey = keys[index]) != FREE_KEY) {
+      if (currentKey == key) {
+        final int previousValue = values[index];
+        values[index] = value;
+        return previousValue;
+      }
+      index = (index + 1) & mask;
+    }
+
+    keys[index] = key;
+    values[index] = value;
+    if (++size > threshold) {
+      rehash(HashMaps.doubleCapacity(keys.length));
+    }
+    return missingValue;
+  }
+
+  // O(1) time on average, returns the removed value or the missing value
+  public int remove(int key) {
+    if (key == FREE_KEY) {
+      if (!hasFreeKey) return missingValue;
+      hasFreeKey = false;
+      size--;
+      return freeKeyValue;
+    }
+
+    final int index = indexOf(key);
+    if (index < 0) return missingValue;
+
+    final int removedValue = values[index];
+    shiftKeys(index);
+    size--;
+    return removedValue;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, FREE_KEY);
+    hasFreeKey = false;
+    size = 0;
+  }
+
+  private int indexOf(int key) {
+    final int mask = keys.length - 1;
+    int index = HashMaps.mix(key) & mask;
+    int currentKey;
+    while ((currentKey = keys[index]) != FREE_KEY) {
+      if (currentKey == key) return index;
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  // backward shift deletion: instead of leaving tombstones, move subsequent entries of the
+  // same probe chain into the hole so that lookups can still stop at the first free slot
+  private void shiftKeys(int hole) {
+    final int mask = keys.length - 1;
+    int index = hole;
+    while (true) {
+      index = (index + 1) & mask;
+      final int currentKey = keys[index];
+      if (currentKey == FREE_KEY) {
+        keys[hole] = FREE_KEY;
+        return;
+      }
+      final int idealIndex = HashMaps.mix(currentKey) & mask;
+      // the entry can be moved only if the hole lies between its ideal slot and its current slot
+      if (((index - idealIndex) & mask) >= ((index - hole) & mask)) {
+        keys[hole] = currentKey;
+        values[hole] = values[index];
+        hole = index;
+      }
+    }
+  }
+
+  private void rehash(int newCapacity) {
+    final int[] oldKeys = keys;
+    final int[] oldValues = values;
+    allocate(newCapacity);
+
+    final int mask = newCapacity - 1;
+    for (int oldIndex = 0; oldIndex < oldKeys.length; oldIndex++) {
+      final int key = oldKeys[oldIndex];
+      if (key != FREE_KEY) {
+        int index = HashMaps.mix(key) & mask;
+        while (keys[index] != FREE_KEY) {
+          index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = oldValues[oldIndex];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new int[capacity];
+    threshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+  }
+
+}
@@ -0,0 +1,180 @@
+package com.aokolnychyi.ds.map;
+
+import java.util.Arrays;
+
+// an open-addressing map with linear probing from primitive long keys to objects
+// keys are stored in a flat long[] (no boxing), values in a parallel Object[]
+public class LongObjectHashMap<V> {
+
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+  // a key that marks empty slots in the keys array
+  private static final long FREE_KEY = 0L;
+
+  private final float loadFactor;
+  private long[] keys;
+  private V[] values;
+  // the free key cannot be stored in the arrays, so it is kept separately
+  private boolean hasFreeKey;
+  private V freeKeyValue;
+  private int size;
+  private int threshold;
+
+  public LongObjectHashMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  public LongObjectHashMap(int expectedSize, float loadFactor) {
+    if (loadFactor <= 0 || loadFactor >= 1) {
+      throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+    }
+    this.loadFactor = loadFactor;
+    allocate(HashMaps.tableSizeFor(expectedSize, loadFactor));
+  }
+
+  // O(1) time on average
+  public V get(long key) {
+    if (key == FREE_KEY) return hasFreeKey ? freeKeyValue : null;
+
+    final int mask = keys.length - 1;
+    int index = HashMaps.mix(key) & mask;
+    long currentKey;
+    while ((currentKey = keys[index]) != FREE_KEY) {
+      if (currentKey == key) return values[index];
+      index = (index + 1) & mask;
+    }
+    return null;
+  }
+
+  // O(1) time on average
+  public boolean containsKey(long key) {
+    if (key == FREE_KEY) return hasFreeKey;
+    return indexOf(key) >= 0;
+  }
+
+  // O(1) amortized time, returns the previous value or null
+  public V put(long key, V value) {
+    if (key == FREE_KEY) {
+      final V previousValue = freeKeyValue;
+      if (!hasFreeKey) size++;
+      hasFreeKey = true;
+      freeKeyValue = value;
+      return previousValue;
+    }
+
+    final int mask = keys.length - 1;
+    int index = HashMaps.mix(key) & mask;
+    long currentKey;
+    while ((currentKey = keys[index]) != FREE_KEY) {
+      if (currentKey == key) {
+        final V previousValue = values[index];
+        values[index] = value;
+        return previousValue;
+      }
+      index = (index + 1) & mask;
+    }
+
+    keys[index] = key;
+    values[index] = value;
+    if (++size > threshold) {
+      rehash(HashMaps.doubleCapacity(keys.length));
+    }
+    return null;
+  }
+
+  // O(1) time on average, returns the removed value or null
+  public V remove(long key) {
+    if (key == FREE_KEY) {
+      if (!hasFreeKey) return null;
+      final V removedValue = freeKeyValue;
+      hasFreeKey = false;
+      freeKeyValue = null;
+      size--;
+      return removedValue;
+    }
+
+    final int index = indexOf(key);
+    if (index < 0) return null;
+
+    final V removedValue = values[index];
+    shiftKeys(index);
+    size--;
+    return removedValue;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, FREE_KEY);
+    // do not keep references to values, otherwise they cannot be garbage collected
+    Arrays.fill(values, null);
+    hasFreeKey = false;
+    freeKeyValue = null;
+    size = 0;
+  }
+
+  private int indexOf(long key) {
+    final int mask = keys.length - 1;
+    int index = HashMaps.mix(key) & mask;
+    long currentKey;
+    while ((currentKey = keys[index]) != FREE_KEY) {
+      if (currentKey == key) return index;
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  // backward shift deletion (see IntIntHashMap#shiftKeys)
+  private void shiftKeys(int hole) {
+    final int mask = keys.length - 1;
+    int index = hole;
+    while (true) {
+      index = (index + 1) & mask;
+      final long currentKey = keys[index];
+      if (currentKey == FREE_KEY) {
+        keys[hole] = FREE_KEY;
+        values[hole] = null;
+        return;
+      }
+      final int idealIndex = HashMaps.mix(currentKey) & mask;
+      if (((index - idealIndex) & mask) >= ((index - hole) & mask)) {
+        keys[hole] = currentKey;
+        values[hole] = values[index];
+        hole = index;
+      }
+    }
+  }
+
+  private void rehash(int newCapacity) {
+    final long[] oldKeys = keys;
+    final V[] oldValues = values;
+    allocate(newCapacity);
+
+    final int mask = newCapacity - 1;
+    for (int oldIndex = 0; oldIndex < oldKeys.length; oldIndex++) {
+      final long key = oldKeys[oldIndex];
+      if (key != FREE_KEY) {
+        int index = HashMaps.mix(key) & mask;
+        while (keys[index] != FREE_KEY) {
+          index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = oldValues[oldIndex];
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = (V[]) new Object[capacity];
+    threshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+  }
+
+}
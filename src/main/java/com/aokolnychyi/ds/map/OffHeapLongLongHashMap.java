@@ -0,0 +1,254 @@
+package com.aokolnychyi.ds.map;
+
+import java.nio.ByteBuffer;
+
+// an open-addressing map with linear probing, whose slots live outside of the Java heap
+// the GC sees only a few ByteBuffer objects, no matter how many entries there are
+// slots are spread across several direct buffers, so the table can grow beyond 2 GB
+// the map is not thread-safe and must be closed to release the memory
+public class OffHeapLongLongHashMap implements AutoCloseable {
+
+  // each slot holds a key and a value
+  private static final int SLOT_SIZE = 16;
+  private static final int VALUE_OFFSET = 8;
+  private static final int SLOTS_PER_CHUNK_SHIFT = Integer.numberOfTrailingZeros(DirectMemory.MAX_BUFFER_SIZE / SLOT_SIZE);
+  private static final long SLOTS_PER_CHUNK_MASK = (1L << SLOTS_PER_CHUNK_SHIFT) - 1;
+  private static final long DEFAULT_CAPACITY = 1024;
+  private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+  private static final long FREE_KEY = 0L;
+
+  private final float loadFactor;
+  private final long missingValue;
+  private ByteBuffer[] chunks;
+  private long capacity;
+  private long threshold;
+  private long size;
+  // the free key cannot be stored in the slots, so it is kept separately
+  private boolean hasFreeKey;
+  private long freeKeyValue;
+
+  public OffHeapLongLongHashMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, 0L);
+  }
+
+  public OffHeapLongLongHashMap(long expectedSize, float loadFactor, long missingValue) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Expected size must be non-negative: " + expectedSize);
+    }
+    if (loadFactor <= 0 || loadFactor >= 1) {
+      throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+    }
+    this.loadFactor = loadFactor;
+    this.missingValue = missingValue;
+    final long requiredCapacity = (long) Math.ceil(Math.max(expectedSize, 2) / (double) loadFactor);
+    allocate(Long.highestOneBit(requiredCapacity - 1) << 1);
+  }
+
+  // O(1) time on average
+  public long get(long key) {
+    checkOpen();
+    if (key == FREE_KEY) return hasFreeKey ? freeKeyValue : missingValue;
+
+    final long slot = findSlot(key);
+    return readKey(slot) == key ? readValue(slot) : missingValue;
+  }
+
+  public boolean containsKey(long key) {
+    checkOpen();
+    if (key == FREE_KEY) return hasFreeKey;
+    return readKey(findSlot(key)) == key;
+  }
+
+  // O(1) amortized time, returns the previous value or the missing value
+  public long put(long key, long value) {
+    checkOpen();
+    if (key == FREE_KEY) {
+      final long previousValue = hasFreeKey ? freeKeyValue : missingValue;
+      if (!hasFreeKey) size++;
+      hasFreeKey = true;
+      freeKeyValue = value;
+      return previousValue;
+    }
+
+    final long slot = findSlot(key);
+    if (readKey(slot) == key) {
+      final long previousValue = readValue(slot);
+      writeValue(slot, value);
+      return previousValue;
+    }
+
+    write(slot, key, value);
+    if (++size > threshold) {
+      grow();
+    }
+    return missingValue;
+  }
+
+  // O(1) time on average, returns the removed value or the missing value
+  public long remove(long key) {
+    checkOpen();
+    if (key == FREE_KEY) {
+      if (!hasFreeKey) return missingValue;
+      hasFreeKey = false;
+      size--;
+      return freeKeyValue;
+    }
+
+    final long slot = findSlot(key);
+    if (readKey(slot) != key) return missingValue;
+
+    final long removedValue = readValue(slot);
+    shiftKeys(slot);
+    size--;
+    return removedValue;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  // the number of slots
+  public long capacity() {
+    return capacity;
+  }
+
+  // the number of off-heap bytes occupied by the slots
+  public long allocatedBytes() {
+    return capacity * SLOT_SIZE;
+  }
+
+  @Override
+  public void close() {
+    if (chunks != null) {
+      release(chunks);
+      chunks = null;
+    }
+  }
+
+  // returns either the slot with the key or the first free slot in its probe sequence
+  private long findSlot(long key) {
+    final long mask = capacity - 1;
+    long slot = index(key) & mask;
+    long currentKey;
+    while ((currentKey = readKey(slot)) != FREE_KEY && currentKey != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  // backward shift deletion (see IntIntHashMap#shiftKeys)
+  private void shiftKeys(long hole) {
+    final long mask = capacity - 1;
+    long slot = hole;
+    while (true) {
+      slot = (slot + 1) & mask;
+      final long currentKey = readKey(slot);
+      if (currentKey == FREE_KEY) {
+        writeKey(hole, FREE_KEY);
+        return;
+      }
+      final long idealSlot = index(currentKey) & mask;
+      if (((slot - idealSlot) & mask) >= ((slot - hole) & mask)) {
+        write(hole, currentKey, readValue(slot));
+        hole = slot;
+      }
+    }
+  }
+
+  // doubles the number of slots, the old chunks are released right after the rehash
+  private void grow() {
+    final ByteBuffer[] oldChunks = chunks;
+    final long oldCapacity = capacity;
+    allocate(capacity * 2);
+
+    final long mask = capacity - 1;
+    for (long oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+      final ByteBuffer oldChunk = oldChunks[chunkIndex(oldSlot)];
+      final int oldOffset = offset(oldSlot);
+      final long key = oldChunk.getLong(oldOffset);
+      if (key != FREE_KEY) {
+        long slot = index(key) & mask;
+        while (readKey(slot) != FREE_KEY) {
+          slot = (slot + 1) & mask;
+        }
+        write(slot, key, oldChunk.getLong(oldOffset + VALUE_OFFSET));
+      }
+    }
+    release(oldChunks);
+  }
+
+  // direct buffers are zeroed on allocation, so all slots are free
+  private void allocate(long newCapacity) {
+    final long slotsPerChunk = Math.min(newCapacity, 1L << SLOTS_PER_CHUNK_SHIFT);
+    final long numberOfChunks = newCapacity / slotsPerChunk;
+    if (numberOfChunks > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Cannot allocate " + newCapacity + " slots");
+    }
+    final ByteBuffer[] newChunks = new ByteBuffer[(int) numberOfChunks];
+    try {
+      for (int chunkIndex = 0; chunkIndex < numberOfChunks; chunkIndex++) {
+        newChunks[chunkIndex] = DirectMemory.allocate((int) (slotsPerChunk * SLOT_SIZE));
+      }
+    } catch (OutOfMemoryError e) {
+      release(newChunks);
+      throw e;
+    }
+    chunks = newChunks;
+    capacity = newCapacity;
+    threshold = Math.min(newCapacity - 1, (long) (newCapacity * (double) loadFactor));
+  }
+
+  private long readKey(long slot) {
+    return chunks[chunkIndex(slot)].getLong(offset(slot));
+  }
+
+  private long readValue(long slot) {
+    return chunks[chunkIndex(slot)].getLong(offset(slot) + VALUE_OFFSET);
+  }
+
+  private void writeKey(long slot, long key) {
+    chunks[chunkIndex(slot)].putLong(offset(slot), key);
+  }
+
+  private void writeValue(long slot, long value) {
+    chunks[chunkIndex(slot)].putLong(offset(slot) + VALUE_OFFSET, value);
+  }
+
+  private void write(long slot, long key, long value) {
+    final ByteBuffer chunk = chunks[chunkIndex(slot)];
+    final int offset = offset(slot);
+    chunk.putLong(offset, key);
+    chunk.putLong(offset + VALUE_OFFSET, value);
+  }
+
+  private void checkOpen() {
+    if (chunks == null) {
+      throw new IllegalStateException("The map is closed");
+    }
+  }
+
+  private static int chunkIndex(long slot) {
+    return (int) (slot >>> SLOTS_PER_CHUNK_SHIFT);
+  }
+
+  private static int offset(long slot) {
+    return (int) (slot & SLOTS_PER_CHUNK_MASK) * SLOT_SIZE;
+  }
+
+  // a 64-bit variant of HashMaps#mix, the table can have more than 2^31 slots
+  private static long index(long key) {
+    final long hash = key * 0x9E3779B97F4A7C15L;
+    return hash ^ (hash >>> 32);
+  }
+
+  private static void release(ByteBuffer[] chunksToRelease) {
+    for (ByteBuffer chunk : chunksToRelease) {
+      DirectMemory.release(chunk);
+    }
+  }
+
+}
@@ -0,0 +1,43 @@
+package com.aokolnychyi.ds.map;
+
+public class OffHeapLongLongHashMapExamples {
+
+  public static void main(String[] args) {
+    try (OffHeapLongLongHashMap map = new OffHeapLongLongHashMap(4, 0.5f, -1L)) {
+      map.put(0L, 100L);
+      map.put(1L, 1L);
+      map.put(-1L, -10L);
+      map.put(1L, 11L);
+      System.out.println("Get 0: " + map.get(0L));
+      System.out.println("Get 1: " + map.get(1L));
+      System.out.println("Get -1: " + map.get(-1L));
+      System.out.println("Get 2 (missing): " + map.get(2L));
+      System.out.println("Remove -1: " + map.remove(-1L));
+      System.out.println("Contains -1: " + map.containsKey(-1L));
+      System.out.println("Size: " + map.size());
+    }
+
+    final Runtime runtime = Runtime.getRuntime();
+    final long usedHeapBefore = runtime.totalMemory() - runtime.freeMemory();
+    try (OffHeapLongLongHashMap map = new OffHeapLongLongHashMap()) {
+      final long numberOfEntries = 2_000_000;
+      for (long key = 1; key <= numberOfEntries; key++) {
+        map.put(key * 31, key);
+      }
+      boolean allFound = true;
+      for (long key = 1; key <= numberOfEntries; key++) {
+        allFound &= map.get(key * 31) == key;
+      }
+      for (long key = 1; key <= numberOfEntries; key += 2) {
+        map.remove(key * 31);
+      }
+      final long usedHeapAfter = runtime.totalMemory() - runtime.freeMemory();
+      System.out.println("All keys found: " + allFound);
+      System.out.println("Size after removing odd keys: " + map.size());
+      System.out.println("Get 2 * 31: " + map.get(2 * 31) + ", get 3 * 31: " + map.get(3 * 31));
+      System.out.println("Capacity: " + map.capacity() + " slots");
+      System.out.println("Off-heap memory: " + map.allocatedBytes() / (1024 * 1024) + " MB");
+      System.out.println("Heap growth (approximate): " + (usedHeapAfter - usedHeapBefore) / (1024 * 1024) + " MB");
+    }
+  }
+}
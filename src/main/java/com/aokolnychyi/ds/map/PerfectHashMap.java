@@ -0,0 +1,328 @@
+package com.aokolnychyi.ds.map;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// an immutable map built on top of a minimal perfect hash function (BBHash)
+// a minimal perfect hash function maps n known keys to n distinct slots without collisions,
+// so get() checks exactly one slot
+//
+// BBHash places the keys level by level: level i is a bit array of gamma * (keys left) bits,
+// every remaining key is hashed into it with a level-specific hash,
+// keys that landed on a position alone are placed (the bit stays set), the others go to the next level
+// the slot of a key is the number of set bits before its position (rank) in all levels together
+// with gamma = 1, about 1/e of the keys are left after every level, which gives about 3 bits per key
+//
+// the map lives in a single ByteBuffer with the layout below, so it can be written to a file
+// and memory-mapped back without any parsing:
+// magic, size, number of levels, level offsets (in words), bit words, ranks, slot offsets, slot data
+// every slot holds the length of the key, the key bytes and the value bytes
+// keys are stored in slots, so keys that were not in the map are detected by comparing bytes
+public class PerfectHashMap<K, V> {
+
+  private static final int MAGIC = 0xBB4A5401;
+  private static final double DEFAULT_GAMMA = 1.0;
+  private static final int MAX_LEVELS = 64;
+  // ranks are precomputed for every block of 8 words (512 bits)
+  private static final int WORDS_PER_RANK_BLOCK = 8;
+  private static final int HEADER_SIZE = 12;
+  private static final long LEVEL_SEED = 0x9E3779B97F4A7C15L;
+
+  private final ByteBuffer buffer;
+  private final Codec<K> keyCodec;
+  private final Codec<V> valueCodec;
+  private final int size;
+  private final int numberOfLevels;
+  private final int levelOffsetsStart;
+  private final int wordsStart;
+  private final int ranksStart;
+  private final int slotOffsetsStart;
+  private final int dataStart;
+
+  private PerfectHashMap(ByteBuffer buffer, Codec<K> keyCodec, Codec<V> valueCodec) {
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("Not a perfect hash map");
+    }
+    this.buffer = buffer;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.size = buffer.getInt(4);
+    this.numberOfLevels = buffer.getInt(8);
+    this.levelOffsetsStart = HEADER_SIZE;
+    this.wordsStart = levelOffsetsStart + (numberOfLevels + 1) * Integer.BYTES;
+    final int numberOfWords = levelOffset(numberOfLevels);
+    this.ranksStart = wordsStart + numberOfWords * Long.BYTES;
+    this.slotOffsetsStart = ranksStart + numberOfRankBlocks(numberOfWords) * Integer.BYTES;
+    this.dataStart = slotOffsetsStart + (size + 1) * Integer.BYTES;
+  }
+
+  public static <K, V> PerfectHashMap<K, V> build(Map<K, V> entries, Codec<K> keyCodec, Codec<V> valueCodec) {
+    return build(entries, keyCodec, valueCodec, DEFAULT_GAMMA);
+  }
+
+  // a larger gamma makes the construction and lookups faster at the cost of more bits per key
+  public static <K, V> PerfectHashMap<K, V> build(
+      Map<K, V> entries,
+      Codec<K> keyCodec,
+      Codec<V> valueCodec,
+      double gamma) {
+
+    if (gamma < 1.0) {
+      throw new IllegalArgumentException("Gamma must be at least 1: " + gamma);
+    }
+
+    final int size = entries.size();
+    final byte[][] keys = new byte[size][];
+    final byte[][] values = new byte[size][];
+    final long[] keyHashes = new long[size];
+    int index = 0;
+    for (Map.Entry<K, V> entry : entries.entrySet()) {
+      keys[index] = keyCodec.encode(entry.getKey());
+      values[index] = valueCodec.encode(entry.getValue());
+      keyHashes[index] = hash(keys[index]);
+      index++;
+    }
+
+    // place the keys level by level
+    final List<long[]> levels = new ArrayList<>();
+    final int[] keyLevels = new int[size];
+    final int[] keyPositions = new int[size];
+    int[] remainingKeys = new int[size];
+    for (int key = 0; key < size; key++) {
+      remainingKeys[key] = key;
+    }
+    int numberOfRemainingKeys = size;
+    while (numberOfRemainingKeys > 0) {
+      final int level = levels.size();
+      if (level == MAX_LEVELS) {
+        throw new IllegalStateException("Could not place " + numberOfRemainingKeys + " keys, duplicate encoded keys?");
+      }
+      final int numberOfWords = (int) Math.max(1, Math.ceil(gamma * numberOfRemainingKeys / Long.SIZE));
+      final long[] words = new long[numberOfWords];
+      final long[] collisions = new long[numberOfWords];
+      for (int remainingIndex = 0; remainingIndex < numberOfRemainingKeys; remainingIndex++) {
+        final int position = position(keyHashes[remainingKeys[remainingIndex]], level, numberOfWords);
+        final long mask = 1L << position;
+        if ((words[position >>> 6] & mask) != 0) {
+          collisions[position >>> 6] |= mask;
+        } else {
+          words[position >>> 6] |= mask;
+        }
+      }
+      for (int word = 0; word < numberOfWords; word++) {
+        words[word] &= ~collisions[word];
+      }
+
+      int numberOfNextKeys = 0;
+      for (int remainingIndex = 0; remainingIndex < numberOfRemainingKeys; remainingIndex++) {
+        final int key = remainingKeys[remainingIndex];
+        final int position = position(keyHashes[key], level, numberOfWords);
+        if ((words[position >>> 6] & (1L << position)) != 0) {
+          keyLevels[key] = level;
+          keyPositions[key] = position;
+        } else {
+          remainingKeys[numberOfNextKeys++] = key;
+        }
+      }
+      levels.add(words);
+      numberOfRemainingKeys = numberOfNextKeys;
+    }
+
+    // compute the layout
+    final int numberOfLevels = levels.size();
+    final int[] levelOffsets = new int[numberOfLevels + 1];
+    for (int level = 0; level < numberOfLevels; level++) {
+      levelOffsets[level + 1] = levelOffsets[level] + levels.get(level).length;
+    }
+    final int numberOfWords = levelOffsets[numberOfLevels];
+    long dataSize = 0;
+    for (int key = 0; key < size; key++) {
+      dataSize += Integer.BYTES + keys[key].length + values[key].length;
+    }
+    final long totalSize = HEADER_SIZE
+        + (long) (numberOfLevels + 1) * Integer.BYTES
+        + (long) numberOfWords * Long.BYTES
+        + (long) numberOfRankBlocks(numberOfWords) * Integer.BYTES
+        + (long) (size + 1) * Integer.BYTES
+        + dataSize;
+    if (totalSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The map does not fit into a single buffer: " + totalSize + " bytes");
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocate((int) totalSize);
+    buffer.putInt(MAGIC).putInt(size).putInt(numberOfLevels);
+    for (int levelOffset : levelOffsets) {
+      buffer.putInt(levelOffset);
+    }
+    for (long[] words : levels) {
+      for (long word : words) {
+        buffer.putLong(word);
+      }
+    }
+    // levels are concatenated, so a rank block can span several levels
+    int rank = 0;
+    int wordIndex = 0;
+    for (long[] words : levels) {
+      for (long word : words) {
+        if (wordIndex % WORDS_PER_RANK_BLOCK == 0) {
+          buffer.putInt(rank);
+        }
+        rank += Long.bitCount(word);
+        wordIndex++;
+      }
+    }
+
+    final PerfectHashMap<K, V> map = new PerfectHashMap<>(buffer, keyCodec, valueCodec);
+    // slot offsets are relative to the start of the data, slot i occupies [offset(i), offset(i + 1))
+    final int[] slotKeys = new int[size];
+    for (int key = 0; key < size; key++) {
+      final int bit = levelOffsets[keyLevels[key]] * Long.SIZE + keyPositions[key];
+      slotKeys[map.rank(bit)] = key;
+    }
+    int slotOffset = 0;
+    buffer.position(map.slotOffsetsStart);
+    for (int slot = 0; slot < size; slot++) {
+      buffer.putInt(slotOffset);
+      final int key = slotKeys[slot];
+      slotOffset += Integer.BYTES + keys[key].length + values[key].length;
+    }
+    buffer.putInt(slotOffset);
+    for (int slot = 0; slot < size; slot++) {
+      final int key = slotKeys[slot];
+      buffer.putInt(keys[key].length).put(keys[key]).put(values[key]);
+    }
+    buffer.clear();
+    return map;
+  }
+
+  // maps the file into memory, the structures are used as is without reading them into the heap
+  public static <K, V> PerfectHashMap<K, V> open(Path file, Codec<K> keyCodec, Codec<V> valueCodec) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("The file is too large: " + file);
+      }
+      return new PerfectHashMap<>(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), keyCodec, valueCodec);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void writeTo(Path file) {
+    try (FileChannel channel = FileChannel.open(
+        file,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+
+      final ByteBuffer source = buffer.duplicate();
+      source.clear();
+      while (source.hasRemaining()) {
+        channel.write(source);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // O(1) time, checks exactly one slot
+  public V get(K key) {
+    final byte[] keyBytes = keyCodec.encode(key);
+    final int slot = slotOf(keyBytes);
+    if (slot < 0) return null;
+
+    final int slotStart = dataStart + buffer.getInt(slotOffsetsStart + slot * Integer.BYTES);
+    final int slotEnd = dataStart + buffer.getInt(slotOffsetsStart + (slot + 1) * Integer.BYTES);
+    final int keyLength = buffer.getInt(slotStart);
+    if (!hasKey(slotStart, keyLength, keyBytes)) return null;
+
+    final int valueStart = slotStart + Integer.BYTES + keyLength;
+    return valueCodec.decode(buffer, valueStart, slotEnd - valueStart);
+  }
+
+  public boolean containsKey(K key) {
+    final byte[] keyBytes = keyCodec.encode(key);
+    final int slot = slotOf(keyBytes);
+    if (slot < 0) return false;
+
+    final int slotStart = dataStart + buffer.getInt(slotOffsetsStart + slot * Integer.BYTES);
+    return hasKey(slotStart, buffer.getInt(slotStart), keyBytes);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  // the size of the hash function (level bits and ranks) per key
+  public double bitsPerKey() {
+    return size == 0 ? 0 : (slotOffsetsStart - wordsStart) * 8.0 / size;
+  }
+
+  // the slot for the key or -1 if no level has the key alone at its position
+  private int slotOf(byte[] keyBytes) {
+    final long keyHash = hash(keyBytes);
+    for (int level = 0; level < numberOfLevels; level++) {
+      final int levelOffset = levelOffset(level);
+      final int position = position(keyHash, level, levelOffset(level + 1) - levelOffset);
+      final int bit = levelOffset * Long.SIZE + position;
+      if ((word(bit >>> 6) & (1L << bit)) != 0) {
+        return rank(bit);
+      }
+    }
+    return -1;
+  }
+
+  // the number of set bits before the given bit
+  private int rank(int bit) {
+    final int wordIndex = bit >>> 6;
+    final int rankBlock = wordIndex / WORDS_PER_RANK_BLOCK;
+    int rank = buffer.getInt(ranksStart + rankBlock * Integer.BYTES);
+    for (int index = rankBlock * WORDS_PER_RANK_BLOCK; index < wordIndex; index++) {
+      rank += Long.bitCount(word(index));
+    }
+    return rank + Long.bitCount(word(wordIndex) & ((1L << bit) - 1));
+  }
+
+  private boolean hasKey(int slotStart, int keyLength, byte[] keyBytes) {
+    if (keyLength != keyBytes.length) return false;
+    final int keyStart = slotStart + Integer.BYTES;
+    for (int index = 0; index < keyLength; index++) {
+      if (buffer.get(keyStart + index) != keyBytes[index]) return false;
+    }
+    return true;
+  }
+
+  private long word(int wordIndex) {
+    return buffer.getLong(wordsStart + wordIndex * Long.BYTES);
+  }
+
+  private int levelOffset(int level) {
+    return buffer.getInt(levelOffsetsStart + level * Integer.BYTES);
+  }
+
+  // a 64-bit hash, so that keys that collide at one level are unlikely to collide at the next one
+  private static long hash(byte[] keyBytes) {
+    return (long) HashMaps.hash(keyBytes, 0) << 32 | (HashMaps.hash(keyBytes, 0x5BD1E995) & 0xFFFFFFFFL);
+  }
+
+  // maps the level-specific hash into [0, 64 * numberOfWords) without a division
+  // the level hash is the SplitMix64 finalizer, so positions of two keys at different levels are independent
+  private static int position(long keyHash, int level, int numberOfWords) {
+    long levelHash = keyHash + level * LEVEL_SEED;
+    levelHash = (levelHash ^ (levelHash >>> 30)) * 0xBF58476D1CE4E5B9L;
+    levelHash = (levelHash ^ (levelHash >>> 27)) * 0x94D049BB133111EBL;
+    levelHash ^= levelHash >>> 31;
+    return (int) (((levelHash >>> 32) * ((long) numberOfWords * Long.SIZE)) >>> 32);
+  }
+
+  private static int numberOfRankBlocks(int numberOfWords) {
+    return (numberOfWords + WORDS_PER_RANK_BLOCK - 1) / WORDS_PER_RANK_BLOCK;
+  }
+
+}
@@ -0,0 +1,60 @@
+package com.aokolnychyi.ds.map;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class PerfectHashMapExamples {
+
+  private static final int NUMBER_OF_KEYS = 1_000_000;
+  private static final int NUMBER_OF_LOOKUPS = 10_000_000;
+
+  public static void main(String[] args) throws IOException {
+    final java.util.HashMap<String, String> capitals = new java.util.HashMap<>();
+    capitals.put("Ukraine", "Kyiv");
+    capitals.put("Poland", "Warsaw");
+    capitals.put("Germany", "Berlin");
+    capitals.put("France", "Paris");
+    final PerfectHashMap<String, String> capitalMap = PerfectHashMap.build(capitals, Codec.STRING, Codec.STRING);
+    System.out.println("Get Ukraine: " + capitalMap.get("Ukraine"));
+    System.out.println("Get France: " + capitalMap.get("France"));
+    System.out.println("Get Spain: " + capitalMap.get("Spain"));
+    System.out.println("Size: " + capitalMap.size());
+
+    final java.util.HashMap<Long, Long> entries = new java.util.HashMap<>();
+    for (long key = 0; key < NUMBER_OF_KEYS; key++) {
+      entries.put(key * 7919, key);
+    }
+    final long buildStartTime = System.nanoTime();
+    final PerfectHashMap<Long, Long> map = PerfectHashMap.build(entries, Codec.LONG, Codec.LONG);
+    System.out.printf("Built a map with %d keys in %d ms, %.2f bits per key%n",
+        map.size(), (System.nanoTime() - buildStartTime) / 1_000_000, map.bitsPerKey());
+
+    final Path file = Files.createTempFile("perfect-hash-map", ".bin");
+    try {
+      map.writeTo(file);
+      final long openStartTime = System.nanoTime();
+      final PerfectHashMap<Long, Long> mappedMap = PerfectHashMap.open(file, Codec.LONG, Codec.LONG);
+      System.out.printf("Opened the memory-mapped map in %d us%n", (System.nanoTime() - openStartTime) / 1_000);
+
+      boolean allFound = true;
+      for (long key = 0; key < NUMBER_OF_KEYS; key++) {
+        allFound &= mappedMap.get(key * 7919) == key;
+      }
+      System.out.println("All keys found: " + allFound);
+      System.out.println("Get a missing key: " + mappedMap.get(7920L));
+
+      for (int round = 1; round <= 3; round++) {
+        final long lookupStartTime = System.nanoTime();
+        long sum = 0;
+        for (int lookup = 0; lookup < NUMBER_OF_LOOKUPS; lookup++) {
+          sum += mappedMap.get((lookup % NUMBER_OF_KEYS) * 7919L);
+        }
+        final double nanosPerLookup = (double) (System.nanoTime() - lookupStartTime) / NUMBER_OF_LOOKUPS;
+        System.out.printf("Round %d: %.1f ns/lookup (%d)%n", round, nanosPerLookup, sum);
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.aokolnychyi.ds.map;
+
+import java.util.Random;
+
+public class PrimitiveHashMapExamples {
+
+  public static void main(String[] args) {
+    final IntIntHashMap intIntMap = new IntIntHashMap(4, 0.5f, -1);
+    intIntMap.put(0, 0);
+    intIntMap.put(1, 10);
+    intIntMap.put(-1, -10);
+    intIntMap.put(17, 170);
+    intIntMap.put(1, 11);
+    System.out.println("Get 0: " + intIntMap.get(0));
+    System.out.println("Get 1: " + intIntMap.get(1));
+    System.out.println("Get -1: " + intIntMap.get(-1));
+    System.out.println("Get 17: " + intIntMap.get(17));
+    System.out.println("Get 2 (missing): " + intIntMap.get(2));
+    System.out.println("Remove 1: " + intIntMap.remove(1));
+    System.out.println("Get 1 after removal: " + intIntMap.get(1));
+    System.out.println("Size: " + intIntMap.size());
+
+    final LongLongHashMap longLongMap = new LongLongHashMap();
+    longLongMap.put(Long.MAX_VALUE, 1L);
+    longLongMap.put(Long.MIN_VALUE, 2L);
+    System.out.println("Get Long.MAX_VALUE: " + longLongMap.get(Long.MAX_VALUE));
+    System.out.println("Get Long.MIN_VALUE: " + longLongMap.get(Long.MIN_VALUE));
+
+    final LongObjectHashMap<String> longObjectMap = new LongObjectHashMap<>();
+    longObjectMap.put(0L, "zero");
+    longObjectMap.put(42L, "42");
+    System.out.println("Get 0L: " + longObjectMap.get(0L));
+    System.out.println("Get 42L: " + longObjectMap.get(42L));
+    System.out.println("Get 43L: " + longObjectMap.get(43L));
+
+    // compare against java.util.HashMap after random puts and removals
+    final java.util.HashMap<Integer, Integer> expectedMap = new java.util.HashMap<>();
+    final IntIntHashMap actualMap = new IntIntHashMap();
+    final Random random = new Random(42);
+    for (int iteration = 0; iteration < 1_000_000; iteration++) {
+      final int key = random.nextInt(10_000) - 5_000;
+      if (random.nextBoolean()) {
+        expectedMap.put(key, iteration);
+        actualMap.put(key, iteration);
+      } else {
+        expectedMap.remove(key);
+        actualMap.remove(key);
+      }
+    }
+    boolean isConsistent = expectedMap.size() == actualMap.size();
+    for (int key = -5_000; key < 5_000; key++) {
+      final Integer expectedValue = expectedMap.get(key);
+      isConsistent &= expectedValue == null ? !actualMap.containsKey(key) : expectedValue == actualMap.get(key);
+    }
+    System.out.println("Consistent with java.util.HashMap: " + isConsistent);
+  }
+}
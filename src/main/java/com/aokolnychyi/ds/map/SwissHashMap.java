@@ -0,0 +1,249 @@
+package com.aokolnychyi.ds.map;
+
+import java.util.Arrays;
+
+// an open-addressing map in the style of Swiss Tables (absl::flat_hash_map)
+// every slot has a control byte: EMPTY, DELETED or FULL with 7 bits of the key hash (H2)
+// slots are split into groups of 8, so the control bytes of a group fit into one long
+// a lookup compares H2 against all 8 control bytes of a group at once using SWAR tricks
+// (SIMD within a register), so keys are compared only for slots whose H2 matches
+// a lookup for a missing key usually ends after reading a single long
+public class SwissHashMap<K, V> {
+
+  private static final int GROUP_SIZE = 8;
+  private static final byte EMPTY = (byte) 0x80;
+  private static final byte DELETED = (byte) 0xFE;
+  private static final long EMPTY_GROUP = 0x8080808080808080L;
+  private static final long LOWEST_BITS = 0x0101010101010101L;
+  private static final long HIGHEST_BITS = 0x8080808080808080L;
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  // one long holds the control bytes of one group, byte i describes slot i in the group
+  private long[] controlWords;
+  private Object[] keys;
+  private Object[] values;
+  private int size;
+  private int tombstones;
+  // how many EMPTY slots can still be used before the table is rehashed (max load is 7/8)
+  private int growthLeft;
+
+  public SwissHashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public SwissHashMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Expected size must be non-negative: " + expectedSize);
+    }
+    allocate(capacityFor(expectedSize));
+  }
+
+  // O(1) time on average
+  public V get(K key) {
+    final int index = indexOf(key);
+    return index >= 0 ? (V) values[index] : null;
+  }
+
+  public boolean containsKey(K key) {
+    return indexOf(key) >= 0;
+  }
+
+  // O(1) amortized time, returns the previous value or null
+  public V put(K key, V value) {
+    final int index = indexOf(key);
+    if (index >= 0) {
+      final V previousValue = (V) values[index];
+      values[index] = value;
+      return previousValue;
+    }
+
+    final int hash = hash(key);
+    int slot = findInsertionSlot(hash);
+    if (controlByte(slot) == EMPTY && growthLeft == 0) {
+      rehash();
+      slot = findInsertionSlot(hash);
+    }
+    insert(slot, hash, key, value);
+    return null;
+  }
+
+  // O(1) time on average, returns the removed value or null
+  public V remove(K key) {
+    final int index = indexOf(key);
+    if (index < 0) return null;
+
+    final V removedValue = (V) values[index];
+    keys[index] = null;
+    values[index] = null;
+    size--;
+    // if the group has an EMPTY slot, no probe sequence ever continued past this group
+    // (insertions fill the first available slot), so the slot can become EMPTY again
+    // otherwise, a tombstone is required to keep probe sequences that pass this group intact
+    if (matchEmpty(controlWords[index / GROUP_SIZE]) != 0) {
+      setControlByte(index, EMPTY);
+      growthLeft++;
+    } else {
+      setControlByte(index, DELETED);
+      tombstones++;
+    }
+    return removedValue;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int capacity() {
+    return keys.length;
+  }
+
+  public void clear() {
+    Arrays.fill(controlWords, EMPTY_GROUP);
+    Arrays.fill(keys, null);
+    Arrays.fill(values, null);
+    size = 0;
+    tombstones = 0;
+    growthLeft = maxLoad(keys.length);
+  }
+
+  private int indexOf(K key) {
+    final int hash = hash(key);
+    final long h2 = hash & 0x7F;
+    final int groupMask = controlWords.length - 1;
+    int group = (hash >>> 7) & groupMask;
+    int probeStep = 0;
+    while (true) {
+      final long controlWord = controlWords[group];
+      long matches = match(controlWord, h2);
+      while (matches != 0) {
+        final int index = group * GROUP_SIZE + (Long.numberOfTrailingZeros(matches) >>> 3);
+        if (key.equals(keys[index])) return index;
+        matches &= matches - 1;
+      }
+      // an EMPTY slot means the key would have been inserted into this group
+      if (matchEmpty(controlWord) != 0) return -1;
+      // triangular probing visits every group when the number of groups is a power of two
+      probeStep++;
+      group = (group + probeStep) & groupMask;
+    }
+  }
+
+  private int findInsertionSlot(int hash) {
+    final int groupMask = controlWords.length - 1;
+    int group = (hash >>> 7) & groupMask;
+    int probeStep = 0;
+    while (true) {
+      final long availableSlots = matchEmptyOrDeleted(controlWords[group]);
+      if (availableSlots != 0) {
+        return group * GROUP_SIZE + (Long.numberOfTrailingZeros(availableSlots) >>> 3);
+      }
+      probeStep++;
+      group = (group + probeStep) & groupMask;
+    }
+  }
+
+  private void insert(int slot, int hash, K key, V value) {
+    if (controlByte(slot) == EMPTY) {
+      growthLeft--;
+    } else {
+      tombstones--;
+    }
+    setControlByte(slot, (byte) (hash & 0x7F));
+    keys[slot] = key;
+    values[slot] = value;
+    size++;
+  }
+
+  // if at least a half of the used slots are tombstones, it is enough to rehash in place
+  // otherwise, the capacity is doubled
+  private void rehash() {
+    final long[] oldControlWords = controlWords;
+    final Object[] oldKeys = keys;
+    final Object[] oldValues = values;
+    final int newCapacity;
+    if (tombstones >= size) {
+      newCapacity = keys.length;
+    } else if (keys.length < MAX_CAPACITY) {
+      newCapacity = keys.length * 2;
+    } else {
+      throw new IllegalStateException("Cannot grow beyond " + MAX_CAPACITY + " slots");
+    }
+    allocate(newCapacity);
+
+    for (int group = 0; group < oldControlWords.length; group++) {
+      // FULL control bytes have the highest bit unset
+      long fullSlots = ~oldControlWords[group] & HIGHEST_BITS;
+      while (fullSlots != 0) {
+        final int oldIndex = group * GROUP_SIZE + (Long.numberOfTrailingZeros(fullSlots) >>> 3);
+        final K key = (K) oldKeys[oldIndex];
+        final int hash = hash(key);
+        insert(findInsertionSlot(hash), hash, key, (V) oldValues[oldIndex]);
+        fullSlots &= fullSlots - 1;
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    controlWords = new long[capacity / GROUP_SIZE];
+    Arrays.fill(controlWords, EMPTY_GROUP);
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    size = 0;
+    tombstones = 0;
+    growthLeft = maxLoad(capacity);
+  }
+
+  private byte controlByte(int slot) {
+    return (byte) (controlWords[slot / GROUP_SIZE] >>> ((slot % GROUP_SIZE) * 8));
+  }
+
+  private void setControlByte(int slot, byte controlByte) {
+    final int group = slot / GROUP_SIZE;
+    final int shift = (slot % GROUP_SIZE) * 8;
+    controlWords[group] = (controlWords[group] & ~(0xFFL << shift)) | ((controlByte & 0xFFL) << shift);
+  }
+
+  // sets the highest bit in every byte of the word that is equal to h2
+  // there might be false positives in the byte after a real match (due to the borrow),
+  // which is fine since keys are compared anyway
+  private static long match(long controlWord, long h2) {
+    final long comparison = controlWord ^ (LOWEST_BITS * h2);
+    return (comparison - LOWEST_BITS) & ~comparison & HIGHEST_BITS;
+  }
+
+  // EMPTY is 1000_0000, DELETED is 1111_1110, FULL is 0xxx_xxxx
+  // only EMPTY has the highest bit set and the second lowest bit unset
+  private static long matchEmpty(long controlWord) {
+    return controlWord & ~(controlWord << 6) & HIGHEST_BITS;
+  }
+
+  // only EMPTY and DELETED have the highest bit set and the lowest bit unset
+  private static long matchEmptyOrDeleted(long controlWord) {
+    return controlWord & ~(controlWord << 7) & HIGHEST_BITS;
+  }
+
+  // the lowest 7 bits are used as H2, the rest as H1 (the group index)
+  // the hash is mixed so that both parts depend on all bits of the hash code
+  private static int hash(Object key) {
+    final int hash = key.hashCode() * 0x9E3779B9;
+    return hash ^ (hash >>> 15);
+  }
+
+  private static int maxLoad(int capacity) {
+    return capacity - capacity / 8;
+  }
+
+  private static int capacityFor(int expectedSize) {
+    final long requiredCapacity = Math.max(GROUP_SIZE, (long) Math.ceil(expectedSize * 8.0 / 7.0));
+    if (requiredCapacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("Expected size is too large: " + expectedSize);
+    }
+    return Integer.highestOneBit((int) requiredCapacity - 1) << 1;
+  }
+
+}
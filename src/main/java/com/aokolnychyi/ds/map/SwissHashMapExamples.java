@@ -0,0 +1,85 @@
+package com.aokolnychyi.ds.map;
+
+import java.util.Random;
+import java.util.function.Function;
+
+public class SwissHashMapExamples {
+
+  private static final int NUMBER_OF_KEYS = 1_000_000;
+  private static final int NUMBER_OF_LOOKUPS = 10_000_000;
+  private static final int NUMBER_OF_ROUNDS = 5;
+
+  public static void main(String[] args) {
+    final SwissHashMap<String, Integer> map = new SwissHashMap<>();
+    map.put("one", 1);
+    map.put("two", 2);
+    map.put("three", 3);
+    map.put("two", 22);
+    System.out.println("Get one: " + map.get("one"));
+    System.out.println("Get two: " + map.get("two"));
+    System.out.println("Get four: " + map.get("four"));
+    System.out.println("Remove three: " + map.remove("three"));
+    System.out.println("Get three: " + map.get("three"));
+    System.out.println("Size: " + map.size());
+
+    // random puts and removals leave tombstones, the result must match java.util.HashMap
+    final java.util.HashMap<Integer, Integer> expectedMap = new java.util.HashMap<>();
+    final SwissHashMap<Integer, Integer> actualMap = new SwissHashMap<>();
+    final Random random = new Random(42);
+    for (int iteration = 0; iteration < 1_000_000; iteration++) {
+      final int key = random.nextInt(20_000);
+      if (random.nextInt(3) == 0) {
+        expectedMap.remove(key);
+        actualMap.remove(key);
+      } else {
+        expectedMap.put(key, iteration);
+        actualMap.put(key, iteration);
+      }
+    }
+    boolean isConsistent = expectedMap.size() == actualMap.size();
+    for (int key = 0; key < 20_000; key++) {
+      final Integer expectedValue = expectedMap.get(key);
+      isConsistent &= expectedValue == null ? !actualMap.containsKey(key) : expectedValue.equals(actualMap.get(key));
+    }
+    System.out.println("Consistent with java.util.HashMap: " + isConsistent);
+
+    // miss-heavy lookups: 90% of the looked up keys are absent
+    final Integer[] presentKeys = new Integer[NUMBER_OF_KEYS];
+    final Integer[] lookupKeys = new Integer[NUMBER_OF_LOOKUPS];
+    for (int index = 0; index < NUMBER_OF_KEYS; index++) {
+      presentKeys[index] = random.nextInt();
+    }
+    for (int index = 0; index < NUMBER_OF_LOOKUPS; index++) {
+      lookupKeys[index] = random.nextInt(10) == 0 ? presentKeys[random.nextInt(NUMBER_OF_KEYS)] : random.nextInt();
+    }
+
+    final SwissHashMap<Integer, Integer> swissMap = new SwissHashMap<>();
+    final HashMap<Integer, Integer> treeBucketMap = new HashMap<>(16);
+    final java.util.HashMap<Integer, Integer> javaMap = new java.util.HashMap<>();
+    for (Integer key : presentKeys) {
+      swissMap.put(key, key);
+      treeBucketMap.put(key, key);
+      javaMap.put(key, key);
+    }
+
+    for (int round = 1; round <= NUMBER_OF_ROUNDS; round++) {
+      System.out.printf("Round %d: SwissHashMap %.1f ns/op, HashMap %.1f ns/op, java.util.HashMap %.1f ns/op%n",
+          round,
+          measureLookups(lookupKeys, swissMap::get),
+          measureLookups(lookupKeys, treeBucketMap::get),
+          measureLookups(lookupKeys, javaMap::get));
+    }
+  }
+
+  private static double measureLookups(Integer[] lookupKeys, Function<Integer, Integer> lookup) {
+    final long startTime = System.nanoTime();
+    int numberOfHits = 0;
+    for (Integer key : lookupKeys) {
+      if (lookup.apply(key) != null) numberOfHits++;
+    }
+    final long elapsedTime = System.nanoTime() - startTime;
+    // use the result so that the JIT cannot eliminate the loop
+    if (numberOfHits < 0) System.out.println(numberOfHits);
+    return (double) elapsedTime / lookupKeys.length;
+  }
+}
@@ -0,0 +1,100 @@
+package com.aokolnychyi.ds.map
+
+object ChampHashMapExamples {
+
+  case class CollidingKey(value: Int) {
+    // introduce some collisions
+    override def hashCode(): Int = if (value % 2 == 0) value else 31
+  }
+
+  def main(args: Array[String]): Unit = {
+    var map = ChampHashMap[Int, String]()
+    println(map.get(1))
+    println(map.put(1, "1").get(1))
+
+    for (value <- 0 to 100000) {
+      map = map + (value -> value.toString)
+    }
+    println(map.size)
+    println(map.get(100))
+    println(map.get(99999))
+    println(map.get(100001))
+
+    for (value <- 0 to 100000 if value % 10 != 0) {
+      map = map - value
+    }
+    println(map.size)
+    println(map.get(100))
+    println(map.get(101))
+    println(map.iterator.size)
+
+    // collisions
+    var collidingMap = ChampHashMap[CollidingKey, Int]()
+    for (value <- 0 to 500) {
+      collidingMap = collidingMap.put(CollidingKey(value), value)
+    }
+    println(collidingMap.get(CollidingKey(35)))
+    println(collidingMap.get(CollidingKey(36)))
+    println(collidingMap.get(CollidingKey(501)))
+    for (value <- 0 to 500 if value != 35 && value != 37) {
+      collidingMap = collidingMap - CollidingKey(value)
+    }
+    println(collidingMap)
+
+    // the encoding is canonical, so maps with the same entries are equal
+    // no matter in which order the entries were added
+    val ascendingMap = (0 until 1000).foldLeft(ChampHashMap[Int, Int]())((result, value) => result + (value -> value))
+    val descendingMap = (0 until 2000).reverse.foldLeft(ChampHashMap[Int, Int]())((result, value) => result + (value -> value))
+    val trimmedMap = (1000 until 2000).foldLeft(descendingMap)(_ - _)
+    println(ascendingMap == trimmedMap)
+    println(ascendingMap.hashCode == trimmedMap.hashCode)
+    println(ascendingMap == trimmedMap.put(5, 6))
+
+    // removals keep the encoding canonical for colliding keys as well ("Aa", "BB" and "C#" have the same hash)
+    val collisionMap = ChampHashMap("Aa" -> 1, "BB" -> 2)
+    println(collisionMap == (collisionMap + ("x" -> 3) - "x"))
+    println(collisionMap == ChampHashMap("Aa" -> 1, "BB" -> 2, "C#" -> 3) - "C#")
+    println(collisionMap == ChampHashMap("x" -> 3, "BB" -> 2, "Aa" -> 1) - "x")
+
+    // compare the memory footprint and iteration speed with ScalaHashMap
+    val numberOfElements = 1000000
+    val runtime = Runtime.getRuntime
+
+    val hashTrieMemoryBefore = usedMemory(runtime)
+    var hashTrieMap = ScalaHashMap[Int, Int]()
+    for (value <- 0 until numberOfElements) {
+      hashTrieMap = hashTrieMap.put(value, value)
+    }
+    val hashTrieMemory = usedMemory(runtime) - hashTrieMemoryBefore
+
+    val champMemoryBefore = usedMemory(runtime)
+    var champMap = ChampHashMap[Int, Int]()
+    for (value <- 0 until numberOfElements) {
+      champMap = champMap.put(value, value)
+    }
+    val champMemory = usedMemory(runtime) - champMemoryBefore
+
+    println(s"ScalaHashMap: ${hashTrieMemory / (1024 * 1024)} MB, ChampHashMap: ${champMemory / (1024 * 1024)} MB")
+
+    for (round <- 1 to 3) {
+      val hashTrieStartTime = System.nanoTime()
+      var hashTrieSum = 0L
+      hashTrieMap.foreach { case (_, value) => hashTrieSum += value }
+      val hashTrieTime = (System.nanoTime() - hashTrieStartTime) / 1000000
+
+      val champStartTime = System.nanoTime()
+      var champSum = 0L
+      champMap.foreachEntry((_, value) => champSum += value)
+      val champTime = (System.nanoTime() - champStartTime) / 1000000
+
+      println(s"Round $round: iterating ScalaHashMap took $hashTrieTime ms ($hashTrieSum), " +
+        s"ChampHashMap took $champTime ms ($champSum)")
+    }
+  }
+
+  private def usedMemory(runtime: Runtime): Long = {
+    System.gc()
+    runtime.totalMemory() - runtime.freeMemory()
+  }
+
+}
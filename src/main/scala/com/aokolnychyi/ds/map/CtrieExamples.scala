@@ -0,0 +1,87 @@
+package com.aokolnychyi.ds.map
+
+import java.util.concurrent.{CountDownLatch, Executors, TimeUnit}
+
+object CtrieExamples {
+
+  case class CollidingKey(value: Int) {
+    // introduce some collisions
+    override def hashCode(): Int = if (value % 2 == 0) value else 31
+  }
+
+  def main(args: Array[String]): Unit = {
+    val ctrie = Ctrie[Int, String]()
+    println(ctrie.get(1))
+    println(ctrie.put(1, "1"))
+    println(ctrie.put(1, "one"))
+    println(ctrie.putIfAbsent(1, "uno"))
+    println(ctrie.get(1))
+    println(ctrie.remove(1))
+    println(ctrie.isEmpty)
+
+    // collisions
+    val collidingCtrie = Ctrie[CollidingKey, Int]()
+    for (value <- 0 to 500) {
+      collidingCtrie.put(CollidingKey(value), value)
+    }
+    println(collidingCtrie.get(CollidingKey(35)))
+    println(collidingCtrie.get(CollidingKey(36)))
+    for (value <- 0 to 500 if value != 35) {
+      collidingCtrie.remove(CollidingKey(value))
+    }
+    println(collidingCtrie.iterator.toList)
+
+    // snapshots are independent of the original Ctrie
+    for (value <- 0 until 1000) {
+      ctrie.put(value, value.toString)
+    }
+    val snapshot = ctrie.snapshot()
+    val readOnlySnapshot = ctrie.readOnlySnapshot()
+    ctrie.remove(5)
+    snapshot.put(5, "five")
+    println(ctrie.get(5))
+    println(snapshot.get(5))
+    println(readOnlySnapshot.get(5))
+    println(s"${ctrie.size}, ${snapshot.size}, ${readOnlySnapshot.size}")
+
+    // writers keep going while readers iterate frozen views
+    // every writer moves a token between keys, so each snapshot must contain exactly one token per writer
+    val numberOfWriters = 4
+    val numberOfMoves = 200000
+    val tokens = Ctrie[Int, Int]()
+    for (writer <- 0 until numberOfWriters) {
+      tokens.put(writer * numberOfMoves, writer)
+    }
+
+    val executor = Executors.newFixedThreadPool(numberOfWriters)
+    val writersDone = new CountDownLatch(numberOfWriters)
+    for (writer <- 0 until numberOfWriters) {
+      executor.submit(new Runnable {
+        override def run(): Unit = {
+          for (move <- 1 until numberOfMoves) {
+            val oldKey = writer * numberOfMoves + move - 1
+            val newKey = oldKey + 1
+            // the new key is added before the old one is removed, so a snapshot may see both
+            tokens.put(newKey, writer)
+            tokens.remove(oldKey)
+          }
+          writersDone.countDown()
+        }
+      })
+    }
+
+    var numberOfSnapshots = 0
+    var isConsistent = true
+    while (writersDone.getCount > 0) {
+      val tokensPerWriter = tokens.iterator.toList.groupBy(_._2).mapValues(_.size)
+      isConsistent &&= tokensPerWriter.size == numberOfWriters && tokensPerWriter.values.forall(count => count == 1 || count == 2)
+      numberOfSnapshots += 1
+    }
+    executor.shutdown()
+    executor.awaitTermination(1, TimeUnit.MINUTES)
+
+    println(s"Iterated $numberOfSnapshots snapshots while writing, consistent: $isConsistent")
+    println(tokens.iterator.toList.sorted)
+  }
+
+}
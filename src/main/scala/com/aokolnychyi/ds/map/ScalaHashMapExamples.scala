@@ -45,6 +45,136 @@ object ScalaHashMapExamples {
     println(customIntMap.get(37))
     println(customIntMap.get(38))
     println(customIntMap.get(39))
+
+    // bulk loading with a builder mutates freshly created nodes in place
+    val builder = ScalaHashMap.newBuilder[Int, String]
+    for (value <- 0 to 100000) {
+      builder += (value -> value.toString)
+    }
+    val builtMap = builder.result()
+    println(builtMap.get(100))
+    println(builtMap.get(99999))
+    println(builtMap.get(100001))
+
+    // the built map is not affected by the builder afterwards
+    builder += (100 -> "updated-100")
+    println(builtMap.get(100))
+    println(builder.result().get(100))
+
+    // a builder created from an existing map copies the shared nodes once
+    val extendedMap = builtMap.toBuilder.put(100001, "100001").result()
+    println(builtMap.get(100001))
+    println(extendedMap.get(100001))
+
+    val numberOfElements = 1000000
+    for (round <- 1 to 3) {
+      val persistentStartTime = System.nanoTime()
+      var persistentMap = ScalaHashMap[Int, Int]()
+      for (value <- 0 until numberOfElements) {
+        persistentMap = persistentMap.put(value, value)
+      }
+      val persistentTime = (System.nanoTime() - persistentStartTime) / 1000000
+
+      val builderStartTime = System.nanoTime()
+      val mapBuilder = ScalaHashMap.newBuilder[Int, Int]
+      for (value <- 0 until numberOfElements) {
+        mapBuilder.put(value, value)
+      }
+      mapBuilder.result()
+      val builderTime = (System.nanoTime() - builderStartTime) / 1000000
+
+      println(s"Round $round: put took $persistentTime ms, builder took $builderTime ms")
+    }
+
+    // removal collapses nodes that are left with a single leaf
+    var smallMap = ScalaHashMap[CustomInt, String]()
+    for (value <- 1 to 6) {
+      smallMap = smallMap + (CustomInt(value) -> value.toString)
+    }
+    smallMap = smallMap - CustomInt(2) - CustomInt(4) - CustomInt(6)
+    println(smallMap.getClass.getSimpleName)
+    println(smallMap.iterator.map(_._2).toList.sorted)
+    smallMap = smallMap - CustomInt(1) - CustomInt(3)
+    println(smallMap.getClass.getSimpleName)
+    println(smallMap.iterator.toList)
+    println(smallMap.remove(CustomInt(5)).isEmpty)
+
+    var removalMap = map
+    for (value <- 0 to 100000 if value % 10 != 0) {
+      removalMap = removalMap - value
+    }
+    println(removalMap.iterator.size)
+    println(removalMap.get(100))
+    println(removalMap.get(101))
+    println(map.iterator.size)
+
+    // union shares the subtrees that are present only in one of the maps
+    var evenMap = ScalaHashMap[Int, String]()
+    var oddMap = ScalaHashMap[Int, String]()
+    for (value <- 0 to 1000) {
+      if (value % 2 == 0) evenMap = evenMap + (value -> "even") else oddMap = oddMap + (value -> "odd")
+    }
+    val unionMap = evenMap.union(oddMap)
+    println(unionMap.iterator.size)
+    println(unionMap.get(10))
+    println(unionMap.get(11))
+    println(evenMap.union(evenMap) eq evenMap)
+
+    val counts = ScalaHashMap[String, Int]() + ("a" -> 1) + ("b" -> 2)
+    val otherCounts = ScalaHashMap[String, Int]() + ("b" -> 3) + ("c" -> 4)
+    println(counts.merge(otherCounts)(_ + _).iterator.toList.sorted)
+
+    // merging a large snapshot with a few updates touches only the changed paths
+    val snapshot = builtMap
+    val updates = ScalaHashMap[Int, String]() + (1 -> "updated-1") + (50000 -> "updated-50000")
+    for (round <- 1 to 3) {
+      val mergeStartTime = System.nanoTime()
+      val mergedSnapshot = snapshot.union(updates)
+      val mergeTime = (System.nanoTime() - mergeStartTime) / 1000
+
+      val reinsertStartTime = System.nanoTime()
+      var reinsertedSnapshot = updates
+      for ((key, value) <- snapshot.iterator if reinsertedSnapshot.get(key).isEmpty) {
+        reinsertedSnapshot = reinsertedSnapshot.put(key, value)
+      }
+      val reinsertTime = (System.nanoTime() - reinsertStartTime) / 1000
+
+      println(s"Round $round: union took $mergeTime us (${mergedSnapshot.get(1)}), " +
+        s"reinsertion took $reinsertTime us (${reinsertedSnapshot.get(1)})")
+    }
+
+    // bulk operations split the work across the subtrees of the root
+    val prefixedMap = builtMap.mapValues(value => "value-" + value)
+    println(prefixedMap.get(12))
+    val filteredMap = builtMap.filter { case (key, _) => key % 1000 == 0 }
+    println(filteredMap.iterator.size)
+    println(filteredMap.get(5000))
+    println(filteredMap.get(5001))
+    println(builtMap.aggregate(0L)((sum, entry) => sum + entry._1, _ + _))
+    println(builtMap.foldLeft(0L)((sum, entry) => sum + entry._1))
+
+    // unchanged subtrees are shared with the original map
+    println(builtMap.filter(_ => true) eq builtMap)
+    println(builtMap.mapValues(identity) eq builtMap)
+
+    val largeMapBuilder = ScalaHashMap.newBuilder[Int, Int] ++= (0 until numberOfElements).map(value => value -> value)
+    val largeBuiltMap = largeMapBuilder.result()
+    for (round <- 1 to 3) {
+      val aggregateStartTime = System.nanoTime()
+      val aggregatedSum = largeBuiltMap.aggregate(0L)((sum, entry) => sum + entry._2, _ + _)
+      val aggregateTime = (System.nanoTime() - aggregateStartTime) / 1000000
+
+      val foldStartTime = System.nanoTime()
+      val foldedSum = largeBuiltMap.foldLeft(0L)((sum, entry) => sum + entry._2)
+      val foldTime = (System.nanoTime() - foldStartTime) / 1000000
+
+      val filterStartTime = System.nanoTime()
+      val evenValuesMap = largeBuiltMap.filter(_._2 % 2 == 0)
+      val filterTime = (System.nanoTime() - filterStartTime) / 1000000
+
+      println(s"Round $round: aggregate took $aggregateTime ms ($aggregatedSum), " +
+        s"foldLeft took $foldTime ms ($foldedSum), filter took $filterTime ms (${evenValuesMap.get(2)})")
+    }
   }
 
 }
@@ -0,0 +1,509 @@
+package com.aokolnychyi.ds.map
+
+// CHAMP (Compressed Hash-Array Mapped Prefix-tree) is a more compact encoding of the hash trie
+// that is used in ScalaHashMap
+// HashTrieMap keeps one Array[ScalaHashMap] with leaves and subtries mixed together,
+// and every entry is wrapped into a separate SingleEntryHashMap object
+// a CHAMP node has two bitmaps instead: dataMap tells which positions hold entries inline,
+// nodeMap tells which positions point to subnodes
+// keys and values are stored directly in the node array, so there are no wrapper objects per entry
+// and iteration reads entries that are located next to each other
+// the encoding is canonical (the same entries always give the same trie), which makes equality cheap
+final class ChampHashMap[K, V] private (private val root: ChampNode[K, V], val size: Int) {
+
+  // O(log32(n)) time
+  def get(key: K): Option[V] = root.getValue(key, key.##, 0)
+
+  def contains(key: K): Boolean = get(key).isDefined
+
+  // O(log32(n)) time, copies only the path from the root to the updated node
+  def put(key: K, value: V): ChampHashMap[K, V] = {
+    val change = new ChampChange
+    val newRoot = root.updated(key, value, key.##, 0, change)
+    if (newRoot eq root) this
+    else new ChampHashMap(newRoot, if (change.isNewKey) size + 1 else size)
+  }
+
+  def +(element: (K, V)): ChampHashMap[K, V] = put(element._1, element._2)
+
+  // O(log32(n)) time
+  def remove(key: K): ChampHashMap[K, V] = {
+    val newRoot = root.removed(key, key.##, 0)
+    if (newRoot eq root) this else new ChampHashMap(newRoot, size - 1)
+  }
+
+  def -(key: K): ChampHashMap[K, V] = remove(key)
+
+  def isEmpty: Boolean = size == 0
+
+  def iterator: Iterator[(K, V)] = new ChampIterator(root)
+
+  // visits the entries without creating tuples
+  def foreachEntry[U](function: (K, V) => U): Unit = root.foreachEntry(function)
+
+  def foreach[U](function: ((K, V)) => U): Unit = iterator.foreach(function)
+
+  // there is exactly one trie for a given set of entries, so the tries can be compared node by node
+  override def equals(other: Any): Boolean = other match {
+    case that: ChampHashMap[K, V] @unchecked =>
+      (this eq that) || (size == that.size && root.isEquivalent(that.root))
+    case _ => false
+  }
+
+  override def hashCode(): Int = {
+    var hash = 0
+    foreachEntry((key, value) => hash += key.## ^ value.##)
+    hash
+  }
+
+  override def toString: String = iterator.mkString("ChampHashMap(", ", ", ")")
+
+}
+
+object ChampHashMap {
+
+  private val EmptyMap = new ChampHashMap[Any, Any](ChampNode.EmptyNode, 0)
+
+  def apply[K, V](): ChampHashMap[K, V] = EmptyMap.asInstanceOf[ChampHashMap[K, V]]
+
+  def apply[K, V](elements: (K, V)*): ChampHashMap[K, V] = elements.foldLeft(ChampHashMap[K, V]())(_ + _)
+
+}
+
+// tells whether an update added a new key (as opposed to replacing the value of an existing one)
+private[map] final class ChampChange {
+  var isNewKey: Boolean = false
+}
+
+private[map] abstract class ChampNode[K, V] {
+
+  def getValue(key: K, hash: Int, shift: Int): Option[V]
+
+  def updated(key: K, value: V, hash: Int, shift: Int, change: ChampChange): ChampNode[K, V]
+
+  def removed(key: K, hash: Int, shift: Int): ChampNode[K, V]
+
+  // the number of entries stored inline
+  def payloadArity: Int
+
+  // the number of subnodes
+  def nodeArity: Int
+
+  def key(index: Int): K
+
+  def value(index: Int): V
+
+  def node(index: Int): ChampNode[K, V]
+
+  def isEquivalent(that: ChampNode[K, V]): Boolean
+
+  def foreachEntry[U](function: (K, V) => U): Unit = {
+    var index = 0
+    while (index < payloadArity) {
+      function(key(index), value(index))
+      index += 1
+    }
+    index = 0
+    while (index < nodeArity) {
+      node(index).foreachEntry(function)
+      index += 1
+    }
+  }
+
+}
+
+private[map] object ChampNode {
+
+  val BitsPerLevel = 5
+  // 7 levels consume all 32 bits of the hash, a collision node might be below them
+  val MaxDepth = 8
+
+  val EmptyNode = new BitmapIndexedNode[Any, Any](0, 0, Array.empty[Any])
+
+  def empty[K, V]: ChampNode[K, V] = EmptyNode.asInstanceOf[ChampNode[K, V]]
+
+  // the same 5-bit indexing as in HashTrieMap
+  def bitPosition(hash: Int, shift: Int): Int = 1 << ((hash >>> shift) & 0x1f)
+
+  // the number of set bits below the given position is the index in the compressed array
+  def index(bitmap: Int, bitPosition: Int): Int = Integer.bitCount(bitmap & (bitPosition - 1))
+
+  // builds a node for two entries whose hashes are equal up to the given shift
+  def mergeEntries[K, V](
+      firstKey: K,
+      firstValue: V,
+      firstHash: Int,
+      secondKey: K,
+      secondValue: V,
+      secondHash: Int,
+      shift: Int): ChampNode[K, V] = {
+
+    if (firstHash == secondHash) {
+      new HashCollisionNode(firstHash, Array[Any](firstKey, secondKey), Array[Any](firstValue, secondValue))
+    } else {
+      val firstBitPosition = bitPosition(firstHash, shift)
+      val secondBitPosition = bitPosition(secondHash, shift)
+      if (firstBitPosition != secondBitPosition) {
+        val dataMap = firstBitPosition | secondBitPosition
+        if (Integer.compareUnsigned(firstBitPosition, secondBitPosition) < 0) {
+          new BitmapIndexedNode(dataMap, 0, Array[Any](firstKey, firstValue, secondKey, secondValue))
+        } else {
+          new BitmapIndexedNode(dataMap, 0, Array[Any](secondKey, secondValue, firstKey, firstValue))
+        }
+      } else {
+        val subNode = mergeEntries(
+          firstKey, firstValue, firstHash,
+          secondKey, secondValue, secondHash,
+          shift + BitsPerLevel)
+        new BitmapIndexedNode(0, firstBitPosition, Array[Any](subNode))
+      }
+    }
+  }
+
+  // builds a node for a collision node and an entry with a different hash
+  def mergeCollisionNodeAndEntry[K, V](
+      collisionNode: HashCollisionNode[K, V],
+      key: K,
+      value: V,
+      hash: Int,
+      shift: Int): ChampNode[K, V] = {
+
+    val nodeBitPosition = bitPosition(collisionNode.hash, shift)
+    val entryBitPosition = bitPosition(hash, shift)
+    if (nodeBitPosition != entryBitPosition) {
+      new BitmapIndexedNode(entryBitPosition, nodeBitPosition, Array[Any](key, value, collisionNode))
+    } else {
+      val subNode = mergeCollisionNodeAndEntry(collisionNode, key, value, hash, shift + BitsPerLevel)
+      new BitmapIndexedNode(0, nodeBitPosition, Array[Any](subNode))
+    }
+  }
+
+}
+
+// the content array holds the inline entries as key, value pairs in the order of their positions
+// followed by the subnodes in the reverse order, for instance, dataMap 00101, nodeMap 10000
+// and Array(key0, value0, key2, value2, node4)
+private[map] final class BitmapIndexedNode[K, V](
+    val dataMap: Int,
+    val nodeMap: Int,
+    val content: Array[Any]) extends ChampNode[K, V] {
+
+  import ChampNode._
+
+  override def payloadArity: Int = Integer.bitCount(dataMap)
+
+  override def nodeArity: Int = Integer.bitCount(nodeMap)
+
+  override def key(index: Int): K = content(2 * index).asInstanceOf[K]
+
+  override def value(index: Int): V = content(2 * index + 1).asInstanceOf[V]
+
+  override def node(index: Int): ChampNode[K, V] = content(content.length - 1 - index).asInstanceOf[ChampNode[K, V]]
+
+  override def getValue(key: K, hash: Int, shift: Int): Option[V] = {
+    val position = bitPosition(hash, shift)
+    if ((dataMap & position) != 0) {
+      val dataIndex = index(dataMap, position)
+      if (this.key(dataIndex) == key) Some(value(dataIndex)) else None
+    } else if ((nodeMap & position) != 0) {
+      node(index(nodeMap, position)).getValue(key, hash, shift + BitsPerLevel)
+    } else {
+      None
+    }
+  }
+
+  override def updated(key: K, value: V, hash: Int, shift: Int, change: ChampChange): ChampNode[K, V] = {
+    val position = bitPosition(hash, shift)
+    if ((dataMap & position) != 0) {
+      val dataIndex = index(dataMap, position)
+      val currentKey = this.key(dataIndex)
+      if (currentKey == key) {
+        val currentValue = this.value(dataIndex)
+        if (currentValue.asInstanceOf[AnyRef] eq value.asInstanceOf[AnyRef]) this
+        else copyAndSetValue(dataIndex, value)
+      } else {
+        // two different keys compete for the same position, so both go into a new subnode
+        change.isNewKey = true
+        val subNode = mergeEntries(
+          currentKey, this.value(dataIndex), currentKey.##,
+          key, value, hash,
+          shift + BitsPerLevel)
+        copyAndMigrateFromInlineToNode(position, dataIndex, subNode)
+      }
+    } else if ((nodeMap & position) != 0) {
+      val nodeIndex = index(nodeMap, position)
+      val subNode = node(nodeIndex)
+      val updatedSubNode = subNode.updated(key, value, hash, shift + BitsPerLevel, change)
+      if (updatedSubNode eq subNode) this else copyAndSetNode(nodeIndex, updatedSubNode)
+    } else {
+      change.isNewKey = true
+      copyAndInsertValue(position, key, value)
+    }
+  }
+
+  // keeps the trie canonical: subnodes with a single entry are inlined into their parents
+  // and collision nodes are moved up as long as they are the only element of their parent
+  // the root is never replaced by a collision node, since insertions always keep a collision node
+  // below a BitmapIndexedNode root, so promoting it further would give a different trie for the same entries
+  override def removed(key: K, hash: Int, shift: Int): ChampNode[K, V] = {
+    val position = bitPosition(hash, shift)
+    if ((dataMap & position) != 0) {
+      val dataIndex = index(dataMap, position)
+      if (this.key(dataIndex) != key) {
+        this
+      } else if (shift > 0 && payloadArity == 1 && nodeArity == 1 && node(0).isInstanceOf[HashCollisionNode[K, V]]) {
+        node(0)
+      } else {
+        copyAndRemoveValue(position, dataIndex)
+      }
+    } else if ((nodeMap & position) != 0) {
+      val nodeIndex = index(nodeMap, position)
+      val subNode = node(nodeIndex)
+      val updatedSubNode = subNode.removed(key, hash, shift + BitsPerLevel)
+      if (updatedSubNode eq subNode) {
+        this
+      } else if (updatedSubNode.payloadArity == 1 && updatedSubNode.nodeArity == 0) {
+        copyAndMigrateFromNodeToInline(position, nodeIndex, updatedSubNode.key(0), updatedSubNode.value(0))
+      } else if (shift > 0 && dataMap == 0 && nodeArity == 1 && updatedSubNode.isInstanceOf[HashCollisionNode[K, V]]) {
+        updatedSubNode
+      } else {
+        copyAndSetNode(nodeIndex, updatedSubNode)
+      }
+    } else {
+      this
+    }
+  }
+
+  override def isEquivalent(that: ChampNode[K, V]): Boolean = that match {
+    case thatNode: BitmapIndexedNode[K, V] =>
+      if (this eq thatNode) return true
+      if (dataMap != thatNode.dataMap || nodeMap != thatNode.nodeMap) return false
+
+      val dataLength = 2 * payloadArity
+      var contentIndex = 0
+      while (contentIndex < dataLength) {
+        if (content(contentIndex) != thatNode.content(contentIndex)) return false
+        contentIndex += 1
+      }
+      var nodeIndex = 0
+      while (nodeIndex < nodeArity) {
+        if (!node(nodeIndex).isEquivalent(thatNode.node(nodeIndex))) return false
+        nodeIndex += 1
+      }
+      true
+    case _ =>
+      false
+  }
+
+  private def copyAndSetValue(dataIndex: Int, value: V): BitmapIndexedNode[K, V] = {
+    val newContent = content.clone()
+    newContent(2 * dataIndex + 1) = value
+    new BitmapIndexedNode(dataMap, nodeMap, newContent)
+  }
+
+  private def copyAndSetNode(nodeIndex: Int, node: ChampNode[K, V]): BitmapIndexedNode[K, V] = {
+    val newContent = content.clone()
+    newContent(content.length - 1 - nodeIndex) = node
+    new BitmapIndexedNode(dataMap, nodeMap, newContent)
+  }
+
+  private def copyAndInsertValue(position: Int, key: K, value: V): BitmapIndexedNode[K, V] = {
+    val contentIndex = 2 * index(dataMap, position)
+    val newContent = new Array[Any](content.length + 2)
+    Array.copy(content, 0, newContent, 0, contentIndex)
+    newContent(contentIndex) = key
+    newContent(contentIndex + 1) = value
+    Array.copy(content, contentIndex, newContent, contentIndex + 2, content.length - contentIndex)
+    new BitmapIndexedNode(dataMap | position, nodeMap, newContent)
+  }
+
+  private def copyAndRemoveValue(position: Int, dataIndex: Int): BitmapIndexedNode[K, V] = {
+    val contentIndex = 2 * dataIndex
+    val newContent = new Array[Any](content.length - 2)
+    Array.copy(content, 0, newContent, 0, contentIndex)
+    Array.copy(content, contentIndex + 2, newContent, contentIndex, content.length - contentIndex - 2)
+    new BitmapIndexedNode(dataMap ^ position, nodeMap, newContent)
+  }
+
+  // replaces the entry at the position with the subnode
+  private def copyAndMigrateFromInlineToNode(
+      position: Int,
+      dataIndex: Int,
+      node: ChampNode[K, V]): BitmapIndexedNode[K, V] = {
+
+    val oldContentIndex = 2 * dataIndex
+    val newNodeMap = nodeMap | position
+    val newContent = new Array[Any](content.length - 1)
+    val newContentIndex = newContent.length - 1 - index(newNodeMap, position)
+    Array.copy(content, 0, newContent, 0, oldContentIndex)
+    Array.copy(content, oldContentIndex + 2, newContent, oldContentIndex, newContentIndex - oldContentIndex)
+    newContent(newContentIndex) = node
+    Array.copy(content, newContentIndex + 2, newContent, newContentIndex + 1, content.length - newContentIndex - 2)
+    new BitmapIndexedNode(dataMap ^ position, newNodeMap, newContent)
+  }
+
+  // replaces the subnode at the position with its only entry
+  private def copyAndMigrateFromNodeToInline(
+      position: Int,
+      nodeIndex: Int,
+      key: K,
+      value: V): BitmapIndexedNode[K, V] = {
+
+    val oldContentIndex = content.length - 1 - nodeIndex
+    val newContentIndex = 2 * index(dataMap, position)
+    val newContent = new Array[Any](content.length + 1)
+    Array.copy(content, 0, newContent, 0, newContentIndex)
+    newContent(newContentIndex) = key
+    newContent(newContentIndex + 1) = value
+    Array.copy(content, newContentIndex, newContent, newContentIndex + 2, oldContentIndex - newContentIndex)
+    Array.copy(content, oldContentIndex + 1, newContent, oldContentIndex + 2, content.length - oldContentIndex - 1)
+    new BitmapIndexedNode(dataMap | position, nodeMap ^ position, newContent)
+  }
+
+}
+
+// holds entries whose hashes are completely equal
+// a collision node always has at least two entries
+private[map] final class HashCollisionNode[K, V](
+    val hash: Int,
+    val keys: Array[Any],
+    val values: Array[Any]) extends ChampNode[K, V] {
+
+  import ChampNode._
+
+  override def payloadArity: Int = keys.length
+
+  override def nodeArity: Int = 0
+
+  override def key(index: Int): K = keys(index).asInstanceOf[K]
+
+  override def value(index: Int): V = values(index).asInstanceOf[V]
+
+  override def node(index: Int): ChampNode[K, V] =
+    throw new IndexOutOfBoundsException("Collision nodes do not have subnodes")
+
+  override def getValue(key: K, hash: Int, shift: Int): Option[V] = {
+    val index = if (hash == this.hash) indexOf(key) else -1
+    if (index >= 0) Some(value(index)) else None
+  }
+
+  override def updated(key: K, value: V, hash: Int, shift: Int, change: ChampChange): ChampNode[K, V] = {
+    if (hash != this.hash) {
+      change.isNewKey = true
+      mergeCollisionNodeAndEntry(this, key, value, hash, shift)
+    } else {
+      val index = indexOf(key)
+      if (index >= 0) {
+        if (values(index).asInstanceOf[AnyRef] eq value.asInstanceOf[AnyRef]) {
+          this
+        } else {
+          val newValues = values.clone()
+          newValues(index) = value
+          new HashCollisionNode(hash, keys, newValues)
+        }
+      } else {
+        change.isNewKey = true
+        val newKeys = new Array[Any](keys.length + 1)
+        val newValues = new Array[Any](values.length + 1)
+        Array.copy(keys, 0, newKeys, 0, keys.length)
+        Array.copy(values, 0, newValues, 0, values.length)
+        newKeys(keys.length) = key
+        newValues(values.length) = value
+        new HashCollisionNode(hash, newKeys, newValues)
+      }
+    }
+  }
+
+  override def removed(key: K, hash: Int, shift: Int): ChampNode[K, V] = {
+    val index = if (hash == this.hash) indexOf(key) else -1
+    if (index < 0) {
+      this
+    } else if (keys.length == 2) {
+      // the remaining entry is returned as a single-entry node, so that the parent can inline it
+      val remainingIndex = 1 - index
+      new BitmapIndexedNode(bitPosition(hash, shift), 0, Array[Any](keys(remainingIndex), values(remainingIndex)))
+    } else {
+      val newKeys = new Array[Any](keys.length - 1)
+      val newValues = new Array[Any](values.length - 1)
+      Array.copy(keys, 0, newKeys, 0, index)
+      Array.copy(keys, index + 1, newKeys, index, keys.length - index - 1)
+      Array.copy(values, 0, newValues, 0, index)
+      Array.copy(values, index + 1, newValues, index, values.length - index - 1)
+      new HashCollisionNode(hash, newKeys, newValues)
+    }
+  }
+
+  // the order of entries depends on the order of insertions, so they are compared as sets
+  override def isEquivalent(that: ChampNode[K, V]): Boolean = that match {
+    case thatNode: HashCollisionNode[K, V] =>
+      if (hash != thatNode.hash || keys.length != thatNode.keys.length) return false
+      var index = 0
+      while (index < keys.length) {
+        val thatIndex = thatNode.indexOf(key(index))
+        if (thatIndex < 0 || values(index) != thatNode.values(thatIndex)) return false
+        index += 1
+      }
+      true
+    case _ =>
+      false
+  }
+
+  private def indexOf(key: K): Int = {
+    var index = 0
+    while (index < keys.length) {
+      if (keys(index) == key) return index
+      index += 1
+    }
+    -1
+  }
+
+}
+
+// iterates through the inline entries of a node before descending into its subnodes
+private[map] final class ChampIterator[K, V](root: ChampNode[K, V]) extends Iterator[(K, V)] {
+
+  private val nodeStack = new Array[ChampNode[K, V]](ChampNode.MaxDepth)
+  private val nodeCursorStack = new Array[Int](ChampNode.MaxDepth)
+  private var depth = 0
+  private var currentNode = root
+  private var payloadCursor = 0
+
+  nodeStack(0) = root
+
+  override def hasNext: Boolean = payloadCursor < currentNode.payloadArity || findNextPayload()
+
+  override def next(): (K, V) = {
+    if (!hasNext) throw new NoSuchElementException("No more entries in the map")
+
+    val entry = currentNode.key(payloadCursor) -> currentNode.value(payloadCursor)
+    payloadCursor += 1
+    entry
+  }
+
+  // moves to the next node with inline entries, returns false if there are no more entries
+  private def findNextPayload(): Boolean = {
+    while (depth >= 0) {
+      val node = nodeStack(depth)
+      val nodeCursor = nodeCursorStack(depth)
+      if (nodeCursor < node.nodeArity) {
+        nodeCursorStack(depth) = nodeCursor + 1
+        val subNode = node.node(nodeCursor)
+        if (subNode.nodeArity > 0) {
+          depth += 1
+          nodeStack(depth) = subNode
+          nodeCursorStack(depth) = 0
+        }
+        if (subNode.payloadArity > 0) {
+          currentNode = subNode
+          payloadCursor = 0
+          return true
+        }
+      } else {
+        nodeStack(depth) = null
+        depth -= 1
+      }
+    }
+    false
+  }
+
+}
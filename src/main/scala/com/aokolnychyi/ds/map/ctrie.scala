@@ -0,0 +1,600 @@
+package com.aokolnychyi.ds.map
+
+import java.util.concurrent.atomic.AtomicReference
+
+import scala.annotation.tailrec
+import scala.collection.immutable.ListMap
+
+// a lock-free concurrent hash trie (Ctrie) by Prokopec, Bronson, Bagwell and Odersky
+// the layout is the same as in HashTrieMap (a bitmap and a compressed array per level, 5 bits per level)
+// but every array is wrapped into an indirection node (INode), which is updated with a CAS
+// updates copy only one array (CNode) and swap it in the INode, so writers never block each other
+//
+// every INode belongs to a generation, snapshots are taken in O(1) time by replacing the root
+// with an INode of a new generation (RDCSS, a double-compare single-swap on the root)
+// INodes of older generations are copied lazily when writers walk through them,
+// so the nodes of a snapshot are never modified
+// updates of main nodes are done with GCAS, a CAS that is rolled back if the generation of the root
+// changed in the meantime, which guarantees that a write either happens before the snapshot or after it
+final class Ctrie[K, V] private (initialRoot: AnyRef, val isReadOnly: Boolean) {
+
+  private val rootReference = new AtomicReference[AnyRef](initialRoot)
+
+  def this() = this(INode.newRoot[K, V], false)
+
+  @tailrec
+  def get(key: K): Option[V] = {
+    val root = readRoot()
+    val result = root.lookup(key, key.##, 0, null, root.gen, this)
+    if (result eq null) get(key) else result
+  }
+
+  def contains(key: K): Boolean = get(key).isDefined
+
+  // returns the previous value
+  def put(key: K, value: V): Option[V] = {
+    checkWritable()
+    insert(key, value, onlyIfAbsent = false)
+  }
+
+  def +=(element: (K, V)): this.type = {
+    put(element._1, element._2)
+    this
+  }
+
+  // returns the current value if the key is present, otherwise inserts the value and returns None
+  def putIfAbsent(key: K, value: V): Option[V] = {
+    checkWritable()
+    insert(key, value, onlyIfAbsent = true)
+  }
+
+  // returns the removed value
+  def remove(key: K): Option[V] = {
+    checkWritable()
+    delete(key)
+  }
+
+  // O(1) time, the returned Ctrie can be modified independently of this one
+  @tailrec
+  def snapshot(): Ctrie[K, V] = {
+    val root = readRoot()
+    val expectedMain = root.gcasRead(this)
+    if (rdcssRoot(root, expectedMain, root.copyToGen(new Gen, this))) {
+      new Ctrie(root.copyToGen(new Gen, this), isReadOnly = false)
+    } else {
+      snapshot()
+    }
+  }
+
+  // O(1) time, the old root is kept as is since nobody can modify it anymore
+  @tailrec
+  def readOnlySnapshot(): Ctrie[K, V] = {
+    if (isReadOnly) return this
+
+    val root = readRoot()
+    val expectedMain = root.gcasRead(this)
+    if (rdcssRoot(root, expectedMain, root.copyToGen(new Gen, this))) {
+      new Ctrie(root, isReadOnly = true)
+    } else {
+      readOnlySnapshot()
+    }
+  }
+
+  // iterates through a read-only snapshot, so it never blocks writers and never sees their updates
+  def iterator: Iterator[(K, V)] = {
+    val readOnlyCtrie = readOnlySnapshot()
+    new CtrieIterator(readOnlyCtrie, readOnlyCtrie.readRoot())
+  }
+
+  def foreach[U](function: ((K, V)) => U): Unit = iterator.foreach(function)
+
+  // O(n) time since it counts the entries of a snapshot
+  def size: Int = iterator.size
+
+  def isEmpty: Boolean = !iterator.hasNext
+
+  private[map] def readRoot(abort: Boolean = false): INode[K, V] = rootReference.get match {
+    case root: INode[K, V] @unchecked => root
+    case _ => rdcssComplete(abort)
+  }
+
+  @tailrec
+  private def insert(key: K, value: V, onlyIfAbsent: Boolean): Option[V] = {
+    val root = readRoot()
+    val result = root.insert(key, value, key.##, 0, null, root.gen, this, onlyIfAbsent)
+    if (result eq null) insert(key, value, onlyIfAbsent) else result
+  }
+
+  @tailrec
+  private def delete(key: K): Option[V] = {
+    val root = readRoot()
+    val result = root.remove(key, key.##, 0, null, root.gen, this)
+    if (result eq null) delete(key) else result
+  }
+
+  // replaces the root only if its main node is still the expected one
+  private def rdcssRoot(oldRoot: INode[K, V], expectedMain: MainNode[K, V], newRoot: INode[K, V]): Boolean = {
+    val descriptor = new RDCSSDescriptor(oldRoot, expectedMain, newRoot)
+    if (rootReference.compareAndSet(oldRoot, descriptor)) {
+      rdcssComplete(abort = false)
+      descriptor.isCommitted
+    } else {
+      false
+    }
+  }
+
+  @tailrec
+  private def rdcssComplete(abort: Boolean): INode[K, V] = rootReference.get match {
+    case root: INode[K, V] @unchecked =>
+      root
+    case descriptor: RDCSSDescriptor[K, V] @unchecked =>
+      if (abort) {
+        if (rootReference.compareAndSet(descriptor, descriptor.oldRoot)) descriptor.oldRoot
+        else rdcssComplete(abort)
+      } else if (descriptor.oldRoot.gcasRead(this) eq descriptor.expectedMain) {
+        if (rootReference.compareAndSet(descriptor, descriptor.newRoot)) {
+          descriptor.isCommitted = true
+          descriptor.newRoot
+        } else {
+          rdcssComplete(abort)
+        }
+      } else {
+        if (rootReference.compareAndSet(descriptor, descriptor.oldRoot)) descriptor.oldRoot
+        else rdcssComplete(abort)
+      }
+  }
+
+  private def checkWritable(): Unit = {
+    if (isReadOnly) throw new UnsupportedOperationException("Trying to modify a read-only snapshot!")
+  }
+
+}
+
+object Ctrie {
+  def apply[K, V](): Ctrie[K, V] = new Ctrie()
+}
+
+// generations are compared by identity
+private[map] final class Gen
+
+private[map] final class RDCSSDescriptor[K, V](
+    val oldRoot: INode[K, V],
+    val expectedMain: MainNode[K, V],
+    val newRoot: INode[K, V]) {
+
+  @volatile var isCommitted: Boolean = false
+}
+
+// nodes that can be stored in the array of a CNode
+private[map] abstract class BasicNode[K, V]
+
+// nodes that can be referenced by an INode
+private[map] abstract class MainNode[K, V] {
+  // the previous main node while a GCAS is in progress, null once it is committed
+  val prev = new AtomicReference[MainNode[K, V]]()
+}
+
+// an indirection node, the only mutable node in the trie
+private[map] final class INode[K, V](initialMain: MainNode[K, V], val gen: Gen) extends BasicNode[K, V] {
+
+  private val main = new AtomicReference[MainNode[K, V]](initialMain)
+
+  def gcasRead(ctrie: Ctrie[K, V]): MainNode[K, V] = {
+    val currentMain = main.get
+    if (currentMain.prev.get == null) currentMain else gcasComplete(currentMain, ctrie)
+  }
+
+  // the new main node is committed only if the root still belongs to the generation of this INode
+  def gcas(oldMain: MainNode[K, V], newMain: MainNode[K, V], ctrie: Ctrie[K, V]): Boolean = {
+    newMain.prev.set(oldMain)
+    if (main.compareAndSet(oldMain, newMain)) {
+      gcasComplete(newMain, ctrie)
+      newMain.prev.get == null
+    } else {
+      false
+    }
+  }
+
+  def copyToGen(newGen: Gen, ctrie: Ctrie[K, V]): INode[K, V] = new INode(gcasRead(ctrie), newGen)
+
+  // returns null if the operation must be restarted from the root
+  def lookup(
+      key: K,
+      hash: Int,
+      level: Int,
+      parent: INode[K, V],
+      startGen: Gen,
+      ctrie: Ctrie[K, V]): Option[V] = gcasRead(ctrie) match {
+
+    case cNode: CNode[K, V] =>
+      // the same indexing as in HashTrieMap#getValue
+      val mask = 1 << ((hash >>> level) & 0x1f)
+      if ((cNode.bitmap & mask) == 0) {
+        None
+      } else {
+        val offset = Integer.bitCount(cNode.bitmap & (mask - 1))
+        cNode.array(offset) match {
+          case iNode: INode[K, V] =>
+            if (ctrie.isReadOnly || (startGen eq iNode.gen)) {
+              iNode.lookup(key, hash, level + 5, this, startGen, ctrie)
+            } else if (gcas(cNode, cNode.renewed(startGen, ctrie), ctrie)) {
+              lookup(key, hash, level, parent, startGen, ctrie)
+            } else {
+              null
+            }
+          case sNode: SNode[K, V] =>
+            if (sNode.hash == hash && sNode.key == key) Some(sNode.value) else None
+        }
+      }
+    case tNode: TNode[K, V] =>
+      if (ctrie.isReadOnly) {
+        if (tNode.hash == hash && tNode.key == key) Some(tNode.value) else None
+      } else {
+        clean(parent, level - 5, ctrie)
+        null
+      }
+    case lNode: LNode[K, V] =>
+      lNode.entries.get(key)
+  }
+
+  // returns the previous value or null if the operation must be restarted from the root
+  def insert(
+      key: K,
+      value: V,
+      hash: Int,
+      level: Int,
+      parent: INode[K, V],
+      startGen: Gen,
+      ctrie: Ctrie[K, V],
+      onlyIfAbsent: Boolean): Option[V] = gcasRead(ctrie) match {
+
+    case cNode: CNode[K, V] =>
+      val mask = 1 << ((hash >>> level) & 0x1f)
+      val offset = Integer.bitCount(cNode.bitmap & (mask - 1))
+      if ((cNode.bitmap & mask) == 0) {
+        val renewedCNode = if (cNode.gen eq gen) cNode else cNode.renewed(gen, ctrie)
+        val newCNode = renewedCNode.insertedAt(offset, mask, new SNode(key, value, hash), gen)
+        if (gcas(cNode, newCNode, ctrie)) None else null
+      } else {
+        cNode.array(offset) match {
+          case iNode: INode[K, V] =>
+            if (startGen eq iNode.gen) {
+              iNode.insert(key, value, hash, level + 5, this, startGen, ctrie, onlyIfAbsent)
+            } else if (gcas(cNode, cNode.renewed(startGen, ctrie), ctrie)) {
+              insert(key, value, hash, level, parent, startGen, ctrie, onlyIfAbsent)
+            } else {
+              null
+            }
+          case sNode: SNode[K, V] if sNode.hash == hash && sNode.key == key =>
+            if (onlyIfAbsent) {
+              Some(sNode.value)
+            } else if (gcas(cNode, cNode.updatedAt(offset, new SNode(key, value, hash), gen), ctrie)) {
+              Some(sNode.value)
+            } else {
+              null
+            }
+          case sNode: SNode[K, V] =>
+            // two different keys compete for the same position, so both go one level down
+            val renewedCNode = if (cNode.gen eq gen) cNode else cNode.renewed(gen, ctrie)
+            val subMain = CNode.dual(sNode, new SNode(key, value, hash), level + 5, gen)
+            val newCNode = renewedCNode.updatedAt(offset, new INode(subMain, gen), gen)
+            if (gcas(cNode, newCNode, ctrie)) None else null
+        }
+      }
+    case _: TNode[K, V] =>
+      clean(parent, level - 5, ctrie)
+      null
+    case lNode: LNode[K, V] =>
+      val currentValue = lNode.entries.get(key)
+      if (onlyIfAbsent && currentValue.isDefined) {
+        currentValue
+      } else if (gcas(lNode, new LNode(lNode.entries + (key -> value)), ctrie)) {
+        currentValue
+      } else {
+        null
+      }
+  }
+
+  // returns the removed value or null if the operation must be restarted from the root
+  def remove(
+      key: K,
+      hash: Int,
+      level: Int,
+      parent: INode[K, V],
+      startGen: Gen,
+      ctrie: Ctrie[K, V]): Option[V] = gcasRead(ctrie) match {
+
+    case cNode: CNode[K, V] =>
+      val mask = 1 << ((hash >>> level) & 0x1f)
+      if ((cNode.bitmap & mask) == 0) {
+        None
+      } else {
+        val offset = Integer.bitCount(cNode.bitmap & (mask - 1))
+        val result = cNode.array(offset) match {
+          case iNode: INode[K, V] =>
+            if (startGen eq iNode.gen) {
+              iNode.remove(key, hash, level + 5, this, startGen, ctrie)
+            } else if (gcas(cNode, cNode.renewed(startGen, ctrie), ctrie)) {
+              remove(key, hash, level, parent, startGen, ctrie)
+            } else {
+              null
+            }
+          case sNode: SNode[K, V] =>
+            if (sNode.hash == hash && sNode.key == key) {
+              val newMain = cNode.removedAt(offset, mask, gen).toContracted(level)
+              if (gcas(cNode, newMain, ctrie)) Some(sNode.value) else null
+            } else {
+              None
+            }
+        }
+
+        // the root is never entombed
+        if (result != null && result.isDefined && parent != null) {
+          gcasRead(ctrie) match {
+            case tNode: TNode[K, V] => cleanParent(tNode, key, hash, level, parent, startGen, ctrie)
+            case _ =>
+          }
+        }
+        result
+      }
+    case _: TNode[K, V] =>
+      clean(parent, level - 5, ctrie)
+      null
+    case lNode: LNode[K, V] =>
+      val currentValue = lNode.entries.get(key)
+      if (currentValue.isEmpty) {
+        None
+      } else if (gcas(lNode, lNode.removed(key), ctrie)) {
+        currentValue
+      } else {
+        null
+      }
+  }
+
+  // replaces this entombed INode in the parent with the single entry it holds
+  @tailrec
+  private def cleanParent(
+      tNode: TNode[K, V],
+      key: K,
+      hash: Int,
+      level: Int,
+      parent: INode[K, V],
+      startGen: Gen,
+      ctrie: Ctrie[K, V]): Unit = parent.gcasRead(ctrie) match {
+
+    case parentCNode: CNode[K, V] =>
+      val mask = 1 << ((hash >>> (level - 5)) & 0x1f)
+      if ((parentCNode.bitmap & mask) != 0) {
+        val offset = Integer.bitCount(parentCNode.bitmap & (mask - 1))
+        if (parentCNode.array(offset) eq this) {
+          val newMain = parentCNode.updatedAt(offset, tNode.untombed, gen).toContracted(level - 5)
+          if (!parent.gcas(parentCNode, newMain, ctrie) && (ctrie.readRoot().gen eq startGen)) {
+            cleanParent(tNode, key, hash, level, parent, startGen, ctrie)
+          }
+        }
+      }
+    case _ =>
+  }
+
+  // resurrects entombed children of the given INode
+  private def clean(iNode: INode[K, V], level: Int, ctrie: Ctrie[K, V]): Unit = iNode.gcasRead(ctrie) match {
+    case cNode: CNode[K, V] => iNode.gcas(cNode, cNode.toCompressed(level, iNode.gen, ctrie), ctrie)
+    case _ =>
+  }
+
+  @tailrec
+  private def gcasComplete(currentMain: MainNode[K, V], ctrie: Ctrie[K, V]): MainNode[K, V] = {
+    val previousMain = currentMain.prev.get
+    val root = ctrie.readRoot(abort = true)
+    previousMain match {
+      case null =>
+        currentMain
+      case failedNode: FailedNode[K, V] =>
+        // the update failed, so the previous main node is restored
+        if (main.compareAndSet(currentMain, failedNode.previous)) failedNode.previous
+        else gcasComplete(main.get, ctrie)
+      case _ =>
+        if ((root.gen eq gen) && !ctrie.isReadOnly) {
+          // commit
+          if (currentMain.prev.compareAndSet(previousMain, null)) currentMain
+          else gcasComplete(currentMain, ctrie)
+        } else {
+          // a snapshot was taken in the meantime, so the update is rolled back
+          currentMain.prev.compareAndSet(previousMain, new FailedNode(previousMain))
+          gcasComplete(main.get, ctrie)
+        }
+    }
+  }
+
+}
+
+private[map] object INode {
+  def newRoot[K, V]: INode[K, V] = {
+    val gen = new Gen
+    new INode(new CNode[K, V](0, Array.empty[BasicNode[K, V]], gen), gen)
+  }
+}
+
+// a single entry
+private[map] final class SNode[K, V](val key: K, val value: V, val hash: Int) extends BasicNode[K, V] {
+  def tombed: TNode[K, V] = new TNode(key, value, hash)
+}
+
+// a tomb node marks an INode with a single entry that must be inlined into its parent
+private[map] final class TNode[K, V](val key: K, val value: V, val hash: Int) extends MainNode[K, V] {
+  def untombed: SNode[K, V] = new SNode(key, value, hash)
+}
+
+// a list of entries whose hashes are completely equal
+private[map] final class LNode[K, V](val entries: ListMap[K, V]) extends MainNode[K, V] {
+
+  def removed(key: K): MainNode[K, V] = {
+    val remainingEntries = entries - key
+    if (remainingEntries.size > 1) {
+      new LNode(remainingEntries)
+    } else {
+      val (remainingKey, remainingValue) = remainingEntries.head
+      new TNode(remainingKey, remainingValue, remainingKey.##)
+    }
+  }
+}
+
+// marks a GCAS that must be rolled back
+private[map] final class FailedNode[K, V](val previous: MainNode[K, V]) extends MainNode[K, V]
+
+// an immutable node with a bitmap and a compressed array like in HashTrieMap
+private[map] final class CNode[K, V](
+    val bitmap: Int,
+    val array: Array[BasicNode[K, V]],
+    val gen: Gen) extends MainNode[K, V] {
+
+  def updatedAt(offset: Int, node: BasicNode[K, V], newGen: Gen): CNode[K, V] = {
+    val newArray = array.clone()
+    newArray(offset) = node
+    new CNode(bitmap, newArray, newGen)
+  }
+
+  def insertedAt(offset: Int, mask: Int, node: BasicNode[K, V], newGen: Gen): CNode[K, V] = {
+    val newArray = new Array[BasicNode[K, V]](array.length + 1)
+    Array.copy(array, 0, newArray, 0, offset)
+    newArray(offset) = node
+    Array.copy(array, offset, newArray, offset + 1, array.length - offset)
+    new CNode(bitmap | mask, newArray, newGen)
+  }
+
+  def removedAt(offset: Int, mask: Int, newGen: Gen): CNode[K, V] = {
+    val newArray = new Array[BasicNode[K, V]](array.length - 1)
+    Array.copy(array, 0, newArray, 0, offset)
+    Array.copy(array, offset + 1, newArray, offset, array.length - offset - 1)
+    new CNode(bitmap ^ mask, newArray, newGen)
+  }
+
+  // copies the child INodes into the new generation
+  def renewed(newGen: Gen, ctrie: Ctrie[K, V]): CNode[K, V] = {
+    val newArray = new Array[BasicNode[K, V]](array.length)
+    for (offset <- array.indices) {
+      newArray(offset) = array(offset) match {
+        case iNode: INode[K, V] => iNode.copyToGen(newGen, ctrie)
+        case node => node
+      }
+    }
+    new CNode(bitmap, newArray, newGen)
+  }
+
+  // a CNode with a single entry below the root is replaced with a tomb
+  def toContracted(level: Int): MainNode[K, V] = {
+    if (array.length == 1 && level > 0) {
+      array(0) match {
+        case sNode: SNode[K, V] => sNode.tombed
+        case _ => this
+      }
+    } else {
+      this
+    }
+  }
+
+  // replaces the entombed children with their entries
+  def toCompressed(level: Int, newGen: Gen, ctrie: Ctrie[K, V]): MainNode[K, V] = {
+    val newArray = new Array[BasicNode[K, V]](array.length)
+    for (offset <- array.indices) {
+      newArray(offset) = array(offset) match {
+        case iNode: INode[K, V] =>
+          iNode.gcasRead(ctrie) match {
+            case tNode: TNode[K, V] => tNode.untombed
+            case _ => iNode
+          }
+        case node => node
+      }
+    }
+    new CNode(bitmap, newArray, newGen).toContracted(level)
+  }
+
+}
+
+private[map] object CNode {
+
+  // builds a main node for two entries whose hashes are equal up to the given level
+  def dual[K, V](first: SNode[K, V], second: SNode[K, V], level: Int, gen: Gen): MainNode[K, V] = {
+    if (level < 35) {
+      val firstIndex = (first.hash >>> level) & 0x1f
+      val secondIndex = (second.hash >>> level) & 0x1f
+      val bitmap = (1 << firstIndex) | (1 << secondIndex)
+      if (firstIndex == secondIndex) {
+        val subINode = new INode(dual(first, second, level + 5, gen), gen)
+        new CNode(bitmap, Array[BasicNode[K, V]](subINode), gen)
+      } else if (firstIndex < secondIndex) {
+        new CNode(bitmap, Array[BasicNode[K, V]](first, second), gen)
+      } else {
+        new CNode(bitmap, Array[BasicNode[K, V]](second, first), gen)
+      }
+    } else {
+      // all 32 bits of the hashes are equal
+      new LNode(ListMap(first.key -> first.value, second.key -> second.value))
+    }
+  }
+
+}
+
+// iterates through a read-only Ctrie in the depth-first order
+private[map] final class CtrieIterator[K, V](ctrie: Ctrie[K, V], root: INode[K, V]) extends Iterator[(K, V)] {
+
+  // 7 levels of CNodes consume all 32 bits of the hash
+  private val arrayStack = new Array[Array[BasicNode[K, V]]](8)
+  private val offsetStack = new Array[Int](8)
+  private var depth = -1
+  private var nextEntry: (K, V) = _
+  private var listIterator: Iterator[(K, V)] = Iterator.empty
+
+  visit(root)
+
+  override def hasNext: Boolean = nextEntry != null || listIterator.hasNext || advance()
+
+  override def next(): (K, V) = {
+    if (!hasNext) throw new NoSuchElementException("No more entries in the map")
+
+    if (nextEntry != null) {
+      val entry = nextEntry
+      nextEntry = null
+      entry
+    } else {
+      listIterator.next()
+    }
+  }
+
+  private def advance(): Boolean = {
+    while (depth >= 0) {
+      val array = arrayStack(depth)
+      val offset = offsetStack(depth)
+      if (offset == array.length) {
+        arrayStack(depth) = null
+        depth -= 1
+      } else {
+        offsetStack(depth) = offset + 1
+        if (visit(array(offset))) return true
+      }
+    }
+    false
+  }
+
+  // returns true if the node has entries to return right away
+  private def visit(node: BasicNode[K, V]): Boolean = node match {
+    case sNode: SNode[K, V] =>
+      nextEntry = sNode.key -> sNode.value
+      true
+    case iNode: INode[K, V] =>
+      iNode.gcasRead(ctrie) match {
+        case cNode: CNode[K, V] =>
+          depth += 1
+          arrayStack(depth) = cNode.array
+          offsetStack(depth) = 0
+          false
+        case tNode: TNode[K, V] =>
+          nextEntry = tNode.key -> tNode.value
+          true
+        case lNode: LNode[K, V] =>
+          listIterator = lNode.entries.iterator
+          listIterator.hasNext
+      }
+  }
+
+}
@@ -1,41 +1,192 @@
 package com.aokolnychyi.ds.map.mutable
 
-class ScalaHashMap[K, V](val capacity: Int = 4) {
+// a hash table with separate chaining
+// entries are mutable and updated in place, so updating an existing key allocates nothing
+// and inserting a new key allocates only its entry
+// Int and Long keys are specialized, so they are stored, hashed and compared without boxing
+// (key.## boxes primitive keys even in specialized code, so the hash comes from KeyHash)
+class ScalaHashMap[@specialized(Int, Long) K, V](
+    initialCapacity: Int = 16,
+    loadFactor: Double = 0.75)(implicit keyHash: KeyHash[K]) {
 
-  private val elements = Array.fill[Option[Entry]](capacity)(None)
+  if (initialCapacity <= 0) throw new IllegalArgumentException("Invalid initial capacity: " + initialCapacity)
+  if (loadFactor <= 0) throw new IllegalArgumentException("Invalid load factor: " + loadFactor)
 
-  def +=(key: K, value: V): Unit = {
+  // the capacity is always a power of two, so the bucket index is computed with a mask
+  private var buckets: Array[HashEntry[K, V]] = new Array[HashEntry[K, V]](ScalaHashMap.tableSizeFor(initialCapacity))
+  private var threshold: Int = (buckets.length * loadFactor).toInt
+  private var numberOfEntries: Int = 0
 
-    def insert(bucket: Option[Entry]): Option[Entry] = bucket match {
-      case None => Some(Entry(key, value, None, None))
-      case Some(entry) if entry.key == key && entry.key.## == key.## =>
-        Some(entry.copy(value = value))
-      case Some(entry) if key.## < entry.key.## =>
-        Some(entry.copy(leftChild = insert(entry.leftChild)))
-      case Some(entry) =>
-        Some(entry.copy(rightChild = insert(entry.rightChild)))
+  // O(1) amortized time
+  def +=(key: K, value: V): Unit = put(key, value)
+
+  // O(1) amortized time, returns true if the key was not present before
+  def put(key: K, value: V): Boolean = {
+    val hash = ScalaHashMap.spread(keyHash.hash(key))
+    val index = hash & (buckets.length - 1)
+    var entry = buckets(index)
+    while (entry != null) {
+      if (entry.hash == hash && entry.key == key) {
+        entry.value = value
+        return false
+      }
+      entry = entry.next
     }
 
-    elements(bucketIndex(key)) = insert(elements(bucketIndex(key)))
+    buckets(index) = new HashEntry(key, hash, value, buckets(index))
+    numberOfEntries += 1
+    if (numberOfEntries > threshold) resize()
+    true
   }
 
+  // O(1) time on average
   def get(key: K): Option[V] = {
+    val entry = findEntry(key)
+    if (entry == null) None else Some(entry.value)
+  }
+
+  // the same as get but without wrapping the value into an Option
+  def getOrElse(key: K, default: V): V = {
+    val entry = findEntry(key)
+    if (entry == null) default else entry.value
+  }
+
+  def contains(key: K): Boolean = findEntry(key) != null
+
+  // O(1) time on average, returns the removed value
+  def remove(key: K): Option[V] = {
+    val hash = ScalaHashMap.spread(keyHash.hash(key))
+    val index = hash & (buckets.length - 1)
+    var previousEntry: HashEntry[K, V] = null
+    var entry = buckets(index)
+    while (entry != null) {
+      if (entry.hash == hash && entry.key == key) {
+        if (previousEntry == null) buckets(index) = entry.next else previousEntry.next = entry.next
+        numberOfEntries -= 1
+        return Some(entry.value)
+      }
+      previousEntry = entry
+      entry = entry.next
+    }
+    None
+  }
+
+  def size: Int = numberOfEntries
+
+  def isEmpty: Boolean = numberOfEntries == 0
+
+  def capacity: Int = buckets.length
+
+  def clear(): Unit = {
+    java.util.Arrays.fill(buckets.asInstanceOf[Array[AnyRef]], null)
+    numberOfEntries = 0
+  }
+
+  def foreach[U](function: (K, V) => U): Unit = {
+    var index = 0
+    while (index < buckets.length) {
+      var entry = buckets(index)
+      while (entry != null) {
+        function(entry.key, entry.value)
+        entry = entry.next
+      }
+      index += 1
+    }
+  }
+
+  private def findEntry(key: K): HashEntry[K, V] = {
+    val hash = ScalaHashMap.spread(keyHash.hash(key))
+    var entry = buckets(hash & (buckets.length - 1))
+    while (entry != null && !(entry.hash == hash && entry.key == key)) {
+      entry = entry.next
+    }
+    entry
+  }
 
-    def get(bucket: Option[Entry]): Option[V] = bucket match {
-      case None => None
-      case Some(entry) if entry.key.## == key.## && entry.key == entry.key => Some(entry.value)
-      case Some(entry) if key.## < entry.key.## => get(entry.leftChild)
-      case Some(entry) => get(entry.rightChild)
+  // doubles the capacity and relinks the existing entries, no entries are allocated
+  // since the capacity is a power of two, every chain is split into a "low" and a "high" chain
+  // (the entries either stay at the same index or move by the old capacity)
+  private def resize(): Unit = {
+    val oldBuckets = buckets
+    val oldCapacity = oldBuckets.length
+    if (oldCapacity == ScalaHashMap.MaxCapacity) {
+      threshold = Int.MaxValue
+      return
     }
 
-    val bucket = elements(bucketIndex(key))
-    get(bucket)
+    val newBuckets = new Array[HashEntry[K, V]](oldCapacity * 2)
+    var index = 0
+    while (index < oldCapacity) {
+      var lowHead: HashEntry[K, V] = null
+      var lowTail: HashEntry[K, V] = null
+      var highHead: HashEntry[K, V] = null
+      var highTail: HashEntry[K, V] = null
+      var entry = oldBuckets(index)
+      while (entry != null) {
+        val nextEntry = entry.next
+        entry.next = null
+        if ((entry.hash & oldCapacity) == 0) {
+          if (lowTail == null) lowHead = entry else lowTail.next = entry
+          lowTail = entry
+        } else {
+          if (highTail == null) highHead = entry else highTail.next = entry
+          highTail = entry
+        }
+        entry = nextEntry
+      }
+      newBuckets(index) = lowHead
+      newBuckets(index + oldCapacity) = highHead
+      index += 1
+    }
+
+    buckets = newBuckets
+    threshold = (newBuckets.length * loadFactor).toInt
+  }
+
+}
+
+// the helpers are kept here since private members of specialized classes
+// are not accessible from their specialized subclasses
+object ScalaHashMap {
+
+  private[mutable] val MaxCapacity = 1 << 30
+
+  // the higher bits also affect the bucket index
+  private[mutable] def spread(hash: Int): Int = hash ^ (hash >>> 16)
+
+  private[mutable] def tableSizeFor(capacity: Int): Int = {
+    if (capacity >= MaxCapacity) MaxCapacity
+    else Integer.highestOneBit(math.max(capacity, 2) - 1) << 1
   }
+}
+
+trait KeyHash[@specialized(Int, Long) K] {
+  def hash(key: K): Int
+}
+
+object KeyHash extends LowPriorityKeyHash {
+
+  implicit object IntKeyHash extends KeyHash[Int] {
+    override def hash(key: Int): Int = key
+  }
+
+  implicit object LongKeyHash extends KeyHash[Long] {
+    override def hash(key: Long): Int = (key ^ (key >>> 32)).toInt
+  }
+}
+
+trait LowPriorityKeyHash {
 
-  private def bucketIndex(key: K): Int = {
-    key.## % capacity
+  private val AnyKeyHash = new KeyHash[Any] {
+    override def hash(key: Any): Int = key.##
   }
 
-  private case class Entry(key: K, value: V, leftChild: Option[Entry], rightChild: Option[Entry])
+  implicit def anyKeyHash[K]: KeyHash[K] = AnyKeyHash.asInstanceOf[KeyHash[K]]
 }
 
+// a node in the chain of a bucket, the key is specialized together with the map
+private[mutable] final class HashEntry[@specialized(Int, Long) K, V](
+    val key: K,
+    val hash: Int,
+    var value: V,
+    var next: HashEntry[K, V])
@@ -21,6 +21,40 @@ object ScalaMutableHashMapExamples {
     map += (1, "updated-1")
 
     println(map.get(1))
+
+    println(map.remove(4))
+    println(map.remove(4))
+    println(map.get(4))
+    println(map.size)
+
+    // negative hash codes
+    map += (-7, "-7")
+    println(map.get(-7))
+
+    // the table grows once the load factor is exceeded
+    val intMap = new ScalaHashMap[Int, Int](initialCapacity = 4)
+    for (key <- 0 until 100000) {
+      intMap += (key, key * 2)
+    }
+    for (key <- 0 until 100000 by 2) {
+      intMap.remove(key)
+    }
+    println(intMap.size)
+    println(intMap.capacity)
+    println(intMap.get(99999))
+    println(intMap.get(99998))
+    println(intMap.getOrElse(99998, -1))
+
+    // updates of existing keys are done in place
+    val longMap = new ScalaHashMap[Long, Long](initialCapacity = 1 << 20)
+    for (round <- 1 to 3) {
+      val startTime = System.nanoTime()
+      for (key <- 0L until 1000000L) {
+        longMap += (key % 100000L, key)
+      }
+      val elapsedTime = (System.nanoTime() - startTime) / 1000000
+      println(s"Round $round: 1M updates took $elapsedTime ms, size ${longMap.size}")
+    }
   }
 
 }
@@ -1,5 +1,7 @@
 package com.aokolnychyi.ds.map
 
+import java.util.concurrent.{ForkJoinPool, ForkJoinTask, RecursiveTask}
+
 import scala.collection.immutable.ListMap
 
 // the base class that provides common functionality and also acts as an empty HashMap
@@ -11,11 +13,102 @@ class ScalaHashMap[K, V] {
 
   def +(element: (K, V)): ScalaHashMap[K, V] = put(element._1, element._2)
 
+  def remove(key: K): ScalaHashMap[K, V] = removeKey(key, 0)
+
+  def -(key: K): ScalaHashMap[K, V] = remove(key)
+
+  def isEmpty: Boolean = true
+
+  // the iterator keeps a stack of children arrays instead of creating intermediate collections
+  def iterator: Iterator[(K, V)] = new ScalaHashMapIterator(this)
+
+  def foreach[U](function: ((K, V)) => U): Unit = iterator.foreach(function)
+
+  // the values from that map win if both maps contain a key
+  def union(that: ScalaHashMap[K, V]): ScalaHashMap[K, V] = mergeWith(that, 0, ScalaHashMap.rightValue[V])
+
+  // walks both tries in lockstep, so subtrees that exist only in one map are reused by reference
+  // instead of inserting their entries one by one
+  // resolve is called with the values from this and that map if both maps contain a key
+  def merge(that: ScalaHashMap[K, V])(resolve: (V, V) => V): ScalaHashMap[K, V] =
+    mergeWith(that, 0, resolve)
+
+  // the bulk operations below process the subtrees of the top trie levels in parallel on the fork/join pool
+  // the result is rebuilt bottom-up and subtrees that did not change are reused by reference
+
+  // unlike mapValues in Scala collections, the values are computed eagerly
+  def mapValues[W](function: V => W): ScalaHashMap[K, W] =
+    ScalaHashMap.runInForkJoinPool(mapValuesAt(function, 0))
+
+  // a subtree that loses some entries collapses in the same way as on removal
+  def filter(predicate: ((K, V)) => Boolean): ScalaHashMap[K, V] =
+    ScalaHashMap.runInForkJoinPool(filterAt(predicate, 0))
+
+  // folding from the left defines the order in which entries are visited, so it is sequential
+  def foldLeft[B](zero: B)(operation: (B, (K, V)) => B): B = iterator.foldLeft(zero)(operation)
+
+  // seqop folds the entries of one subtree starting from zero, combop combines the results of subtrees
+  def aggregate[B](zero: => B)(seqop: (B, (K, V)) => B, combop: (B, B) => B): B =
+    ScalaHashMap.runInForkJoinPool(aggregateAt(zero, seqop, combop, 0))
+
+  // creates a builder that starts with the entries of this map
+  // this map is not affected by the builder since it does not own any of its nodes
+  def toBuilder: ScalaHashMapBuilder[K, V] = new ScalaHashMapBuilder(this)
+
   private[map] def getValue(key: K, level: Int): Option[V] = None
 
   private[map] def putKeyValue(key: K, value: V, level: Int): ScalaHashMap[K, V] =
     SingleEntryHashMap(key, value)
 
+  // the same as putKeyValue but nodes that belong to the owner are updated in place
+  // new nodes are tagged with the owner, so subsequent insertions can update them as well
+  private[map] def putKeyValueInPlace(key: K, value: V, level: Int, owner: AnyRef): ScalaHashMap[K, V] =
+    putKeyValue(key, value, level)
+
+  private[map] def removeKey(key: K, level: Int): ScalaHashMap[K, V] = this
+
+  private[map] def mapValuesAt[W](function: V => W, level: Int): ScalaHashMap[K, W] = ScalaHashMap()
+
+  private[map] def filterAt(predicate: ((K, V)) => Boolean, level: Int): ScalaHashMap[K, V] = this
+
+  private[map] def aggregateAt[B](zero: => B, seqop: (B, (K, V)) => B, combop: (B, B) => B, level: Int): B = zero
+
+  private[map] def mergeWith(that: ScalaHashMap[K, V], level: Int, resolve: (V, V) => V): ScalaHashMap[K, V] =
+    that
+
+  // entries of a leaf map (SingleEntryHashMap or CollisionHashMap)
+  private[map] def leafEntries: Iterator[(K, V)] = Iterator.empty
+
+  // merges entries of this leaf map into that map (which is located at the same level)
+  private[map] def mergeLeafInto(
+      that: ScalaHashMap[K, V],
+      level: Int,
+      resolve: (V, V) => V): ScalaHashMap[K, V] = {
+
+    leafEntries.foldLeft(that) { case (result, (key, value)) =>
+      val mergedValue = that.getValue(key, level) match {
+        case Some(thatValue) => resolve(value, thatValue)
+        case None => value
+      }
+      result.putKeyValue(key, mergedValue, level)
+    }
+  }
+
+  // merges entries of that leaf map into this map (which is located at the same level)
+  private[map] def mergeLeafFrom(
+      that: ScalaHashMap[K, V],
+      level: Int,
+      resolve: (V, V) => V): ScalaHashMap[K, V] = {
+
+    that.leafEntries.foldLeft(this) { case (result, (key, thatValue)) =>
+      val mergedValue = getValue(key, level) match {
+        case Some(value) => resolve(value, thatValue)
+        case None => thatValue
+      }
+      result.putKeyValue(key, mergedValue, level)
+    }
+  }
+
   // a utility method to merge two leaf hash maps (SingleEntryHashMap or CollisionHashMap)
   // into an instance of HashTrieMap
   private[map] def makeHashTrieMap(
@@ -23,7 +116,8 @@ class ScalaHashMap[K, V] {
       firstElement: ScalaHashMap[K, V],
       secondHash: Int,
       secondElement: ScalaHashMap[K, V],
-      level: Int): HashTrieMap[K, V] = {
+      level: Int,
+      owner: AnyRef = null): HashTrieMap[K, V] = {
 
     // 0x1f is a hex representation of 31, which is 11111 in binary
     // first, get rid of level * 5 lowest bits since they were considered before
@@ -42,13 +136,13 @@ class ScalaHashMap[K, V] {
       } else {
         Array(secondElement, firstElement)
       }
-      HashTrieMap(bitmap, elements)
+      HashTrieMap(bitmap, elements, owner)
     } else {
       // the hashes are the same at this level (i.e., current 5 bits are equal)
       // therefore, we need to recurse and handle this later on
       val bitmap = 1 << firstIndex
-      val element = makeHashTrieMap(firstHash, firstElement, secondHash, secondElement, level + 1)
-      HashTrieMap(bitmap, Array(element))
+      val element = makeHashTrieMap(firstHash, firstElement, secondHash, secondElement, level + 1, owner)
+      HashTrieMap(bitmap, Array(element), owner)
     }
   }
 
@@ -56,6 +150,64 @@ class ScalaHashMap[K, V] {
 
 object ScalaHashMap {
   def apply[K, V](): ScalaHashMap[K, V] = new ScalaHashMap()
+
+  def newBuilder[K, V]: ScalaHashMapBuilder[K, V] = new ScalaHashMapBuilder(ScalaHashMap[K, V]())
+
+  private val RightValue: (Any, Any) => Any = (_, rightValue) => rightValue
+
+  // union relies on the identity of this function to reuse subtrees that are shared by both maps
+  private[map] def rightValue[V]: (V, V) => V = RightValue.asInstanceOf[(V, V) => V]
+
+  // children of the first two levels are processed in separate tasks (up to 32 * 32 tasks)
+  // deeper subtrees are processed sequentially within the task of their ancestor
+  private val ParallelLevels = 2
+
+  private[map] def runInForkJoinPool[T](body: => T): T = {
+    if (ForkJoinTask.inForkJoinPool()) body
+    else ForkJoinPool.commonPool().invoke(new ScalaHashMapTask(() => body))
+  }
+
+  // applies the function to every child and returns the results in the same order
+  private[map] def computeChildren[K, V](
+      elements: Array[ScalaHashMap[K, V]],
+      level: Int)(
+      function: ScalaHashMap[K, V] => Any): Array[Any] = {
+
+    val results = new Array[Any](elements.length)
+    if (level >= ParallelLevels || elements.length == 1) {
+      var index = 0
+      while (index < elements.length) {
+        results(index) = function(elements(index))
+        index += 1
+      }
+    } else {
+      val tasks = new Array[ScalaHashMapTask[Any]](elements.length)
+      // fork all children except the first one, which is processed by the current thread
+      var index = elements.length - 1
+      while (index > 0) {
+        val element = elements(index)
+        tasks(index) = new ScalaHashMapTask(() => function(element))
+        tasks(index).fork()
+        index -= 1
+      }
+      results(0) = function(elements(0))
+      // the most recently forked task is joined first, so the current thread can run it itself
+      index = 1
+      while (index < elements.length) {
+        results(index) = tasks(index).join()
+        index += 1
+      }
+    }
+    results
+  }
+
+  // values are compared by reference to detect subtrees that were not changed by mapValues
+  private[map] def isSameValue(value: Any, otherValue: Any): Boolean =
+    value.asInstanceOf[AnyRef] eq otherValue.asInstanceOf[AnyRef]
+}
+
+private[map] class ScalaHashMapTask[T](body: () => T) extends RecursiveTask[T] {
+  override protected def compute(): T = body()
 }
 
 // a class that represents hash maps with one entry
@@ -74,6 +226,52 @@ case class SingleEntryHashMap[K, V](key: K, value: V) extends ScalaHashMap[K, V]
     }
   }
 
+  override private[map] def putKeyValueInPlace(
+      key: K,
+      value: V,
+      level: Int,
+      owner: AnyRef): ScalaHashMap[K, V] = {
+
+    if (this.key.## != key.##) {
+      makeHashTrieMap(this.key.##, this, key.##, SingleEntryHashMap(key, value), level, owner)
+    } else {
+      putKeyValue(key, value, level)
+    }
+  }
+
+  override def isEmpty: Boolean = false
+
+  override private[map] def removeKey(key: K, level: Int): ScalaHashMap[K, V] =
+    if (this.key.## == key.## && this.key == key) ScalaHashMap() else this
+
+  override private[map] def mergeWith(
+      that: ScalaHashMap[K, V],
+      level: Int,
+      resolve: (V, V) => V): ScalaHashMap[K, V] = {
+
+    if (that.isEmpty) this else mergeLeafInto(that, level, resolve)
+  }
+
+  override private[map] def leafEntries: Iterator[(K, V)] = Iterator.single(key -> value)
+
+  override private[map] def mapValuesAt[W](function: V => W, level: Int): ScalaHashMap[K, W] = {
+    val mappedValue = function(value)
+    if (ScalaHashMap.isSameValue(value, mappedValue)) this.asInstanceOf[ScalaHashMap[K, W]]
+    else SingleEntryHashMap(key, mappedValue)
+  }
+
+  override private[map] def filterAt(predicate: ((K, V)) => Boolean, level: Int): ScalaHashMap[K, V] =
+    if (predicate(key -> value)) this else ScalaHashMap()
+
+  override private[map] def aggregateAt[B](
+      zero: => B,
+      seqop: (B, (K, V)) => B,
+      combop: (B, B) => B,
+      level: Int): B = {
+
+    seqop(zero, key -> value)
+  }
+
 }
 
 // a class that represents hash maps with multiple elements, which have the same hash
@@ -89,6 +287,78 @@ case class CollisionHashMap[K, V](hash: Int, keyValuePairs: ListMap[K, V]) exten
     }
   }
 
+  override private[map] def putKeyValueInPlace(
+      key: K,
+      value: V,
+      level: Int,
+      owner: AnyRef): ScalaHashMap[K, V] = {
+
+    if (key.## == hash) {
+      putKeyValue(key, value, level)
+    } else {
+      makeHashTrieMap(hash, this, key.##, SingleEntryHashMap(key, value), level, owner)
+    }
+  }
+
+  override def isEmpty: Boolean = false
+
+  override private[map] def removeKey(key: K, level: Int): ScalaHashMap[K, V] = {
+    if (key.## != hash || !keyValuePairs.contains(key)) {
+      this
+    } else {
+      val remainingKeyValuePairs = keyValuePairs - key
+      if (remainingKeyValuePairs.size == 1) {
+        val (remainingKey, remainingValue) = remainingKeyValuePairs.head
+        SingleEntryHashMap(remainingKey, remainingValue)
+      } else {
+        CollisionHashMap(hash, remainingKeyValuePairs)
+      }
+    }
+  }
+
+  override private[map] def mergeWith(
+      that: ScalaHashMap[K, V],
+      level: Int,
+      resolve: (V, V) => V): ScalaHashMap[K, V] = {
+
+    if (that.isEmpty) this else mergeLeafInto(that, level, resolve)
+  }
+
+  override private[map] def leafEntries: Iterator[(K, V)] = keyValuePairs.iterator
+
+  override private[map] def mapValuesAt[W](function: V => W, level: Int): ScalaHashMap[K, W] = {
+    var isSame = true
+    val mappedKeyValuePairs = keyValuePairs.foldLeft(ListMap.empty[K, W]) { case (result, (key, value)) =>
+      val mappedValue = function(value)
+      isSame &&= ScalaHashMap.isSameValue(value, mappedValue)
+      result + (key -> mappedValue)
+    }
+    if (isSame) this.asInstanceOf[ScalaHashMap[K, W]] else CollisionHashMap(hash, mappedKeyValuePairs)
+  }
+
+  override private[map] def filterAt(predicate: ((K, V)) => Boolean, level: Int): ScalaHashMap[K, V] = {
+    val filteredKeyValuePairs = keyValuePairs.filter(predicate)
+    if (filteredKeyValuePairs.size == keyValuePairs.size) {
+      this
+    } else if (filteredKeyValuePairs.isEmpty) {
+      ScalaHashMap()
+    } else if (filteredKeyValuePairs.size == 1) {
+      val (remainingKey, remainingValue) = filteredKeyValuePairs.head
+      SingleEntryHashMap(remainingKey, remainingValue)
+    } else {
+      CollisionHashMap(hash, filteredKeyValuePairs)
+    }
+  }
+
+  override private[map] def aggregateAt[B](
+      zero: => B,
+      seqop: (B, (K, V)) => B,
+      combop: (B, B) => B,
+      level: Int): B = {
+
+    keyValuePairs.foldLeft(zero)(seqop)
+  }
+
 }
 
 // a class that represents hash maps using the trie data structure
@@ -99,6 +369,10 @@ case class HashTrieMap[K, V](
     bitmap: Int,
     elements: Array[ScalaHashMap[K, V]]) extends ScalaHashMap[K, V] {
 
+  // the builder that created this node and may still mutate its elements (null if none)
+  // this is not a part of the case class, so it does not affect equality
+  @transient private[map] var owner: AnyRef = _
+
   override private[map] def getValue(key: K, level: Int): Option[V] = {
     // take 5 relevant bits of the key hash at this level and
     // determine the index in the children array
@@ -145,4 +419,306 @@ case class HashTrieMap[K, V](
     }
   }
 
-}
\ No newline at end of file
+  override private[map] def putKeyValueInPlace(
+      key: K,
+      value: V,
+      level: Int,
+      owner: AnyRef): ScalaHashMap[K, V] = {
+
+    val index = (key.## >>> (level * 5)) & 0x1f
+    val mask = 1 << index
+    val offset = Integer.bitCount(bitmap & (mask - 1))
+
+    if ((bitmap & mask) != 0) {
+      val currentElement = elements(offset)
+      val updatedCurrentElement = currentElement.putKeyValueInPlace(key, value, level + 1, owner)
+      if (updatedCurrentElement eq currentElement) {
+        this
+      } else if (this.owner eq owner) {
+        // this node was created by the same builder and is not visible to anyone else yet
+        elements(offset) = updatedCurrentElement
+        this
+      } else {
+        val newElements = elements.clone()
+        newElements(offset) = updatedCurrentElement
+        HashTrieMap(bitmap, newElements, owner)
+      }
+    } else {
+      // the bitmap is immutable, so a new node is required even if this one is owned
+      val newElements = new Array[ScalaHashMap[K, V]](elements.length + 1)
+      Array.copy(elements, 0, newElements, 0, offset)
+      newElements(offset) = SingleEntryHashMap(key, value)
+      Array.copy(elements, offset, newElements, offset + 1, elements.length - offset)
+      HashTrieMap(bitmap | mask, newElements, owner)
+    }
+  }
+
+  override def isEmpty: Boolean = false
+
+  override private[map] def removeKey(key: K, level: Int): ScalaHashMap[K, V] = {
+    val index = (key.## >>> (level * 5)) & 0x1f
+    val mask = 1 << index
+
+    if ((bitmap & mask) == 0) {
+      this
+    } else {
+      val offset = Integer.bitCount(bitmap & (mask - 1))
+      val currentElement = elements(offset)
+      val updatedCurrentElement = currentElement.removeKey(key, level + 1)
+
+      if (updatedCurrentElement eq currentElement) {
+        this
+      } else if (updatedCurrentElement.isEmpty) {
+        if (elements.length == 1) {
+          ScalaHashMap()
+        } else if (elements.length == 2 && !elements(1 - offset).isInstanceOf[HashTrieMap[K, V]]) {
+          // only one leaf remains, so this node can be replaced with it
+          // leaves do not depend on their level, so it is safe to move them up
+          elements(1 - offset)
+        } else {
+          val newElements = new Array[ScalaHashMap[K, V]](elements.length - 1)
+          Array.copy(elements, 0, newElements, 0, offset)
+          Array.copy(elements, offset + 1, newElements, offset, elements.length - offset - 1)
+          HashTrieMap(bitmap ^ mask, newElements)
+        }
+      } else if (elements.length == 1 && !updatedCurrentElement.isInstanceOf[HashTrieMap[K, V]]) {
+        // a single leaf child collapses into this node
+        updatedCurrentElement
+      } else {
+        val newElements = elements.clone()
+        newElements(offset) = updatedCurrentElement
+        HashTrieMap(bitmap, newElements)
+      }
+    }
+  }
+
+  override private[map] def mergeWith(
+      that: ScalaHashMap[K, V],
+      level: Int,
+      resolve: (V, V) => V): ScalaHashMap[K, V] = that match {
+
+    case _ if (this eq that) && (resolve eq ScalaHashMap.rightValue[V]) => this
+    case thatHashTrieMap: HashTrieMap[K, V] => mergeHashTrieMaps(thatHashTrieMap, level, resolve)
+    case _ if that.isEmpty => this
+    case _ => mergeLeafFrom(that, level, resolve)
+  }
+
+  private def mergeHashTrieMaps(
+      that: HashTrieMap[K, V],
+      level: Int,
+      resolve: (V, V) => V): ScalaHashMap[K, V] = {
+
+    val mergedBitmap = bitmap | that.bitmap
+    val mergedElements = new Array[ScalaHashMap[K, V]](Integer.bitCount(mergedBitmap))
+    // track whether the result is equivalent to one of the inputs to return it as is
+    var isSameAsThis = mergedBitmap == bitmap
+    var isSameAsThat = mergedBitmap == that.bitmap
+
+    var remainingBits = mergedBitmap
+    var thisOffset = 0
+    var thatOffset = 0
+    var mergedOffset = 0
+    while (remainingBits != 0) {
+      // the lowest set bit
+      val mask = remainingBits & -remainingBits
+      val isInThis = (bitmap & mask) != 0
+      val isInThat = (that.bitmap & mask) != 0
+
+      val mergedElement = if (isInThis && isInThat) {
+        elements(thisOffset).mergeWith(that.elements(thatOffset), level + 1, resolve)
+      } else if (isInThis) {
+        elements(thisOffset)
+      } else {
+        that.elements(thatOffset)
+      }
+      isSameAsThis &&= isInThis && (mergedElement eq elements(thisOffset))
+      isSameAsThat &&= isInThat && (mergedElement eq that.elements(thatOffset))
+      mergedElements(mergedOffset) = mergedElement
+
+      if (isInThis) thisOffset += 1
+      if (isInThat) thatOffset += 1
+      mergedOffset += 1
+      remainingBits &= remainingBits - 1
+    }
+
+    if (isSameAsThis) this
+    else if (isSameAsThat) that
+    else HashTrieMap(mergedBitmap, mergedElements)
+  }
+
+  override private[map] def mapValuesAt[W](function: V => W, level: Int): ScalaHashMap[K, W] = {
+    val mappedChildren = ScalaHashMap.computeChildren(elements, level)(_.mapValuesAt(function, level + 1))
+    val mappedElements = new Array[ScalaHashMap[K, W]](elements.length)
+    var isSame = true
+    var offset = 0
+    while (offset < elements.length) {
+      mappedElements(offset) = mappedChildren(offset).asInstanceOf[ScalaHashMap[K, W]]
+      isSame &&= mappedElements(offset) eq elements(offset)
+      offset += 1
+    }
+    if (isSame) this.asInstanceOf[ScalaHashMap[K, W]] else HashTrieMap(bitmap, mappedElements)
+  }
+
+  override private[map] def filterAt(predicate: ((K, V)) => Boolean, level: Int): ScalaHashMap[K, V] = {
+    val filteredChildren = ScalaHashMap.computeChildren(elements, level)(_.filterAt(predicate, level + 1))
+
+    // bits of the children that still have entries
+    var filteredBitmap = 0
+    var numberOfFilteredElements = 0
+    var isSame = true
+    var remainingBits = bitmap
+    var offset = 0
+    while (remainingBits != 0) {
+      val filteredElement = filteredChildren(offset).asInstanceOf[ScalaHashMap[K, V]]
+      isSame &&= filteredElement eq elements(offset)
+      if (!filteredElement.isEmpty) {
+        filteredBitmap |= remainingBits & -remainingBits
+        numberOfFilteredElements += 1
+      }
+      offset += 1
+      remainingBits &= remainingBits - 1
+    }
+
+    if (isSame) {
+      this
+    } else if (numberOfFilteredElements == 0) {
+      ScalaHashMap()
+    } else {
+      val filteredElements = new Array[ScalaHashMap[K, V]](numberOfFilteredElements)
+      var filteredOffset = 0
+      for (filteredChild <- filteredChildren) {
+        val filteredElement = filteredChild.asInstanceOf[ScalaHashMap[K, V]]
+        if (!filteredElement.isEmpty) {
+          filteredElements(filteredOffset) = filteredElement
+          filteredOffset += 1
+        }
+      }
+      if (numberOfFilteredElements == 1 && !filteredElements(0).isInstanceOf[HashTrieMap[K, V]]) {
+        // a single leaf child collapses into this node like in removeKey
+        filteredElements(0)
+      } else {
+        HashTrieMap(filteredBitmap, filteredElements)
+      }
+    }
+  }
+
+  override private[map] def aggregateAt[B](
+      zero: => B,
+      seqop: (B, (K, V)) => B,
+      combop: (B, B) => B,
+      level: Int): B = {
+
+    val aggregatedChildren = ScalaHashMap.computeChildren(elements, level)(_.aggregateAt(zero, seqop, combop, level + 1))
+    var result = aggregatedChildren(0).asInstanceOf[B]
+    var offset = 1
+    while (offset < aggregatedChildren.length) {
+      result = combop(result, aggregatedChildren(offset).asInstanceOf[B])
+      offset += 1
+    }
+    result
+  }
+
+}
+
+object HashTrieMap {
+
+  private[map] def apply[K, V](
+      bitmap: Int,
+      elements: Array[ScalaHashMap[K, V]],
+      owner: AnyRef): HashTrieMap[K, V] = {
+
+    val hashTrieMap = HashTrieMap(bitmap, elements)
+    hashTrieMap.owner = owner
+    hashTrieMap
+  }
+
+}
+
+// a builder that avoids copying the path to the root on every insertion (like transients in Clojure)
+// nodes created by the builder are tagged with an owner token and are mutated in place
+// nodes that come from an existing map are copied once and then owned by the builder
+// result() replaces the token, so the returned map can never be mutated by the builder again
+class ScalaHashMapBuilder[K, V] private[map] (private var root: ScalaHashMap[K, V]) {
+
+  private var owner = new AnyRef
+
+  def +=(element: (K, V)): this.type = put(element._1, element._2)
+
+  def ++=(elements: TraversableOnce[(K, V)]): this.type = {
+    elements.foreach(element => put(element._1, element._2))
+    this
+  }
+
+  def put(key: K, value: V): this.type = {
+    root = root.putKeyValueInPlace(key, value, 0, owner)
+    this
+  }
+
+  def result(): ScalaHashMap[K, V] = {
+    owner = new AnyRef
+    root
+  }
+
+}
+
+// iterates through the trie in the depth-first order
+// the trie is at most 7 levels deep (32 bits of the hash, 5 bits per level), so the stack is fixed
+private[map] class ScalaHashMapIterator[K, V](root: ScalaHashMap[K, V]) extends Iterator[(K, V)] {
+
+  private val elementsStack = new Array[Array[ScalaHashMap[K, V]]](8)
+  private val offsetStack = new Array[Int](8)
+  private var depth = -1
+  private var nextSingleEntry: SingleEntryHashMap[K, V] = _
+  private var collisionIterator: Iterator[(K, V)] = Iterator.empty
+
+  visit(root)
+
+  override def hasNext: Boolean =
+    nextSingleEntry != null || collisionIterator.hasNext || advance()
+
+  override def next(): (K, V) = {
+    if (!hasNext) throw new NoSuchElementException("No more entries in the map")
+
+    if (nextSingleEntry != null) {
+      val entry = nextSingleEntry
+      nextSingleEntry = null
+      entry.key -> entry.value
+    } else {
+      collisionIterator.next()
+    }
+  }
+
+  // moves to the next leaf, returns false if there are no more leaves
+  private def advance(): Boolean = {
+    while (depth >= 0) {
+      val elements = elementsStack(depth)
+      val offset = offsetStack(depth)
+      if (offset == elements.length) {
+        elementsStack(depth) = null
+        depth -= 1
+      } else {
+        offsetStack(depth) = offset + 1
+        if (visit(elements(offset))) return true
+      }
+    }
+    false
+  }
+
+  // returns true if the element is a leaf with entries
+  private def visit(element: ScalaHashMap[K, V]): Boolean = element match {
+    case singleEntry: SingleEntryHashMap[K, V] =>
+      nextSingleEntry = singleEntry
+      true
+    case collision: CollisionHashMap[K, V] =>
+      collisionIterator = collision.keyValuePairs.iterator
+      collisionIterator.hasNext
+    case hashTrieMap: HashTrieMap[K, V] =>
+      depth += 1
+      elementsStack(depth) = hashTrieMap.elements
+      offsetStack(depth) = 0
+      false
+    case _ =>
+      false
+  }
+
+}